@@ -0,0 +1,62 @@
+package cz.tomasdvorak.codegen.benchmarks;
+
+import cz.tomasdvorak.codegen.Codegen;
+import cz.tomasdvorak.codegen.parser.ParserEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * The whole {@link Codegen#execute(String, String, String)} path - parse, generate and persist.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CodegenBenchmark {
+
+    @Param({"false", "true"})
+    public boolean incremental;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private Codegen codegen;
+    private Path targetPath;
+
+    @Setup
+    public void setUp() throws IOException {
+        codegen = new Codegen.Builder(ParserEngine.PARBOILED).incremental(incremental).threads(threads).build();
+        targetPath = Files.createTempDirectory("codegen-benchmark-");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(targetPath)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void execute(final SyntheticConfig config) throws Exception {
+        codegen.execute(config.getPath(), targetPath.toString(), "cz.tomasdvorak.benchmarks");
+    }
+}
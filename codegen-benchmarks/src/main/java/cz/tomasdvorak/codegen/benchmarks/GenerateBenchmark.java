@@ -0,0 +1,99 @@
+package cz.tomasdvorak.codegen.benchmarks;
+
+import cz.tomasdvorak.codegen.dto.Config;
+import cz.tomasdvorak.codegen.dto.Section;
+import cz.tomasdvorak.codegen.generator.ClassesGenerator;
+import cz.tomasdvorak.codegen.generator.StreamingSourceEmitter;
+import cz.tomasdvorak.codegen.parser.ConfigurationParser;
+import cz.tomasdvorak.codegen.parser.ParserEngine;
+import cz.tomasdvorak.codegen.parser.utils.ParsingException;
+import org.jboss.forge.roaster.model.source.JavaClassSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generator phases on an already parsed config - {@link ClassesGenerator#convert(Config)} building the Roaster model
+ * and {@link JavaClassSource#toString()} formatting it to the source code. Compared with the
+ * {@link StreamingSourceEmitter}, writing the same source without any model.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GenerateBenchmark {
+
+    private ClassesGenerator generator;
+    private StreamingSourceEmitter emitter;
+    private Config config;
+    private List<JavaClassSource> classes;
+
+    @Setup
+    public void setUp(final SyntheticConfig syntheticConfig) throws IOException, ParsingException {
+        generator = new ClassesGenerator("cz.tomasdvorak.benchmarks");
+        emitter = new StreamingSourceEmitter("cz.tomasdvorak.benchmarks");
+        config = new ConfigurationParser(ParserEngine.SCANNER).parse(syntheticConfig.getPath());
+        classes = generator.convert(config);
+    }
+
+    @Benchmark
+    public List<JavaClassSource> convert() {
+        return generator.convert(config);
+    }
+
+    @Benchmark
+    public void format(final Blackhole blackhole) {
+        for (JavaClassSource cls : classes) {
+            blackhole.consume(cls.toString());
+        }
+    }
+
+    @Benchmark
+    public void stream(final Blackhole blackhole) throws IOException {
+        final Writer writer = new BlackholeWriter(blackhole);
+        for (Section section : config.getSections()) {
+            emitter.emit(section, writer);
+        }
+    }
+
+    private static class BlackholeWriter extends Writer {
+        private final Blackhole blackhole;
+
+        BlackholeWriter(final Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void write(final char[] buffer, final int off, final int len) {
+            blackhole.consume(buffer);
+        }
+
+        @Override
+        public void write(final String str) {
+            blackhole.consume(str);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package cz.tomasdvorak.codegen.benchmarks;
+
+import cz.tomasdvorak.codegen.dto.Config;
+import cz.tomasdvorak.codegen.parser.ConfigurationParser;
+import cz.tomasdvorak.codegen.parser.ParserEngine;
+import cz.tomasdvorak.codegen.parser.utils.ParsingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ConfigurationParser#parse(String)} of the whole config file, including file reading.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({"PARBOILED", "SCANNER"})
+    public ParserEngine engine;
+
+    private ConfigurationParser parser;
+
+    @Setup
+    public void setUp() {
+        parser = new ConfigurationParser(engine);
+    }
+
+    @Benchmark
+    public Config parse(final SyntheticConfig config) throws IOException, ParsingException {
+        return parser.parse(config.getPath());
+    }
+}
@@ -0,0 +1,152 @@
+package cz.tomasdvorak.codegen.benchmarks;
+
+import cz.tomasdvorak.codegen.dto.Section;
+import cz.tomasdvorak.codegen.runtime.ReloadableSection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot read of a config value, like UserUtils.getDiskQuota does it - inlined static final constant, accessor of the
+ * reloadable class and a plain volatile field as the usual mutable alternative.
+ *
+ * The *Loop benchmarks read the value once per loop iteration and consume every product. A folded constant is
+ * hoisted out of the loop, a volatile field is read in every iteration, so the difference shows whether the reloadable
+ * accessor is really folded. {@link #reloadableAfterReload} reads the accessor of a section reloaded before every
+ * iteration, i.e. after its switch point was invalidated and the compiled code deoptimized.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReloadableConstantBenchmark {
+
+    private static final int LOOP = 1000;
+
+    private double users = 3;
+
+    @Benchmark
+    public double staticFinal() {
+        return users * Constants.DISK_QUOTA;
+    }
+
+    @Benchmark
+    public double reloadable() {
+        return users * ReloadableConstants.DISK_QUOTA();
+    }
+
+    @Benchmark
+    public double volatileField() {
+        return users * VolatileConstants.diskQuota;
+    }
+
+    @Benchmark
+    public double reloadableAfterReload(final Reloaded reloaded) {
+        return users * ReloadedConstants.DISK_QUOTA();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOP)
+    public void staticFinalLoop(final Blackhole blackhole) {
+        for (int i = 0; i < LOOP; i++) {
+            blackhole.consume(i * Constants.DISK_QUOTA);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOP)
+    public void reloadableLoop(final Blackhole blackhole) {
+        for (int i = 0; i < LOOP; i++) {
+            blackhole.consume(i * ReloadableConstants.DISK_QUOTA());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOP)
+    public void volatileFieldLoop(final Blackhole blackhole) {
+        for (int i = 0; i < LOOP; i++) {
+            blackhole.consume(i * VolatileConstants.diskQuota);
+        }
+    }
+
+    /**
+     * Reloads {@link ReloadedConstants} with a different value before every iteration
+     */
+    @State(Scope.Benchmark)
+    public static class Reloaded {
+
+        private int value = 50;
+
+        @Setup(Level.Iteration)
+        public void reload() {
+            value = value == 50 ? 60 : 50;
+            ReloadedConstants.RELOADABLE.reload(new Section.Builder("ReloadedConstants").add("DISK_QUOTA", value).build());
+        }
+    }
+
+    /**
+     * Same as generated by the STREAMING emitter
+     */
+    public static final class Constants {
+        public static final int DISK_QUOTA = 50;
+    }
+
+    /**
+     * Same as generated by the RELOADABLE emitter
+     */
+    public static final class ReloadableConstants {
+
+        public static final ReloadableSection RELOADABLE = new ReloadableSection("ReloadableConstants",
+                new String[]{"DISK_QUOTA"},
+                new Object[]{50});
+
+        private static final MethodHandle DISK_QUOTA = RELOADABLE.getter(0);
+
+        public static int DISK_QUOTA() {
+            try {
+                return (int) DISK_QUOTA.invokeExact();
+            } catch (Throwable e) {
+                throw ReloadableSection.rethrow(e);
+            }
+        }
+    }
+
+    /**
+     * Same as {@link ReloadableConstants}, reloaded by the {@link Reloaded} state only
+     */
+    public static final class ReloadedConstants {
+
+        public static final ReloadableSection RELOADABLE = new ReloadableSection("ReloadedConstants",
+                new String[]{"DISK_QUOTA"},
+                new Object[]{50});
+
+        private static final MethodHandle DISK_QUOTA = RELOADABLE.getter(0);
+
+        public static int DISK_QUOTA() {
+            try {
+                return (int) DISK_QUOTA.invokeExact();
+            } catch (Throwable e) {
+                throw ReloadableSection.rethrow(e);
+            }
+        }
+    }
+
+    public static final class VolatileConstants {
+        public static volatile int diskQuota = 50;
+    }
+}
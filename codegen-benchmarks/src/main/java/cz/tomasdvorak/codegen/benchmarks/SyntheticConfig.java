@@ -0,0 +1,71 @@
+package cz.tomasdvorak.codegen.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Generated config file of the requested size, shared by all benchmarks. Values rotate over all supported types
+ * (int, double, boolean, string), sections are split by the requested number of keys per section.
+ */
+@State(Scope.Benchmark)
+public class SyntheticConfig {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int keys;
+
+    @Param({"10", "1000"})
+    public int keysPerSection;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("synthetic-", ".cfg");
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            write(writer, keys, keysPerSection);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    public String getPath() {
+        return file.toString();
+    }
+
+    static void write(final Writer writer, final int keys, final int keysPerSection) throws IOException {
+        for (int key = 0; key < keys; key++) {
+            if (key % keysPerSection == 0) {
+                writer.write("\n# Section number " + key / keysPerSection + "\n");
+                writer.write("[Section" + key / keysPerSection + "]\n");
+            }
+            writer.write("KEY_" + key + " = ");
+            switch (key % 4) {
+                case 0:
+                    writer.write(Integer.toString(key));
+                    break;
+                case 1:
+                    writer.write(key % 10 + "." + key);
+                    break;
+                case 2:
+                    writer.write(Boolean.toString(key % 3 == 0));
+                    break;
+                default:
+                    writer.write("\"value of key " + key + "\"");
+            }
+            writer.write('\n');
+        }
+    }
+}
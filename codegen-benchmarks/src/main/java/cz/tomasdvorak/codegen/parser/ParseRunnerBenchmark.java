@@ -0,0 +1,80 @@
+package cz.tomasdvorak.codegen.parser;
+
+import cz.tomasdvorak.codegen.benchmarks.SyntheticConfig;
+import cz.tomasdvorak.codegen.parser.utils.CharSequenceInputBuffer;
+import cz.tomasdvorak.codegen.parser.utils.ParsingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.parboiled.Parboiled;
+import org.parboiled.Rule;
+import org.parboiled.parserunners.ReportingParseRunner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Grammar parse of in-memory content, the reporting runner (used for all inputs before) against the basic runner with
+ * the recovering scanner fallback of {@link ConfigurationParser}. Lives in the parser package to access the grammar.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParseRunnerBenchmark {
+
+    public enum Runner {
+        REPORTING, BASIC
+    }
+
+    @Param({"REPORTING", "BASIC"})
+    public Runner runner;
+
+    private Rule rule;
+    private ConfigurationParser parser;
+    private String valid;
+    private String invalid;
+
+    @Setup
+    public void setUp(final SyntheticConfig config) throws IOException {
+        rule = Parboiled.createParser(ConfigurationGrammar.class).Configuration();
+        parser = new ConfigurationParser(ParserEngine.PARBOILED);
+        valid = new String(Files.readAllBytes(Paths.get(config.getPath())), ConfigurationParser.DEFAULT_CHARSET);
+        // one broken assignment in the middle of the config
+        final int middle = valid.indexOf('\n', valid.length() / 2) + 1;
+        invalid = valid.substring(0, middle) + "BROKEN = \n" + valid.substring(middle);
+    }
+
+    @Benchmark
+    public Object parseValid() throws ParsingException {
+        return parse(valid);
+    }
+
+    @Benchmark
+    public Object parseInvalid() {
+        try {
+            return parse(invalid);
+        } catch (ParsingException e) {
+            return e;
+        }
+    }
+
+    private Object parse(final String content) throws ParsingException {
+        if (runner == Runner.REPORTING) {
+            return new ReportingParseRunner<>(rule).run(new CharSequenceInputBuffer(content));
+        }
+        return parser.parseContent(content);
+    }
+}
@@ -0,0 +1,50 @@
+package cz.tomasdvorak.codegen.maven;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One config file and the package of its generated classes, configured as
+ * <pre>
+ * &lt;configs&gt;
+ *     &lt;config&gt;
+ *         &lt;file&gt;src/main/resources/settings.cfg&lt;/file&gt;
+ *         &lt;targetPackage&gt;cz.tomasdvorak.myapp.settings&lt;/targetPackage&gt;
+ *         &lt;overlays&gt;
+ *             &lt;overlay&gt;src/main/resources/prod.cfg&lt;/overlay&gt;
+ *         &lt;/overlays&gt;
+ *     &lt;/config&gt;
+ * &lt;/configs&gt;
+ * </pre>
+ */
+public class ConfigFile {
+
+    private File file;
+    private String targetPackage;
+
+    /**
+     * Overlay files of the config, each generated to a subpackage of the target package named by the file
+     */
+    private List<File> overlays;
+
+    public ConfigFile() {
+    }
+
+    public ConfigFile(final File file, final String targetPackage) {
+        this.file = file;
+        this.targetPackage = targetPackage;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public String getTargetPackage() {
+        return targetPackage;
+    }
+
+    public List<File> getOverlays() {
+        return overlays == null ? Collections.emptyList() : overlays;
+    }
+}
@@ -0,0 +1,285 @@
+package cz.tomasdvorak.codegen.maven;
+
+import cz.tomasdvorak.codegen.Codegen;
+import cz.tomasdvorak.codegen.batch.BatchCodegen;
+import cz.tomasdvorak.codegen.batch.BatchEntry;
+import cz.tomasdvorak.codegen.batch.BatchException;
+import cz.tomasdvorak.codegen.generator.EmitterType;
+import cz.tomasdvorak.codegen.parser.ConfigurationParser;
+import cz.tomasdvorak.codegen.parser.ParserEngine;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.MavenProjectHelper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Generates constants classes of config files and registers them as compile sources of the project. The generation is
+ * skipped completely when neither the configs nor the plugin configuration changed since the last build.
+ *
+ * In the bytecode mode the classes are written directly to the output directory of the project, javac doesn't compile
+ * them at all. Sources are generated only as stubs for IDEs, to the state directory, which is not a compile source
+ * root, and attached to the project as the jar of the {@code sources} classifier. The state directory keeps also the
+ * manifest of class files of the incremental mode, so nothing but the classes gets into the output directory and the
+ * packaged jar.
+ */
+@Mojo(name = "generate", defaultPhase = LifecyclePhase.GENERATE_SOURCES, threadSafe = true)
+public class GenerateMojo extends AbstractMojo {
+
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    private MavenProject project;
+
+    @Parameter(defaultValue = "${plugin}", readonly = true, required = true)
+    private PluginDescriptor plugin;
+
+    @Component
+    private MavenProjectHelper projectHelper;
+
+    /**
+     * Single config file, shortcut for one item of configs
+     */
+    @Parameter
+    private File configFile;
+
+    /**
+     * Package of classes generated from the configFile
+     */
+    @Parameter
+    private String targetPackage;
+
+    @Parameter
+    private List<ConfigFile> configs;
+
+    @Parameter(defaultValue = "${project.build.directory}/generated-sources/cfg", required = true)
+    private File outputDirectory;
+
+    /**
+     * Emit class files directly instead of sources compiled by javac
+     */
+    @Parameter(defaultValue = "false")
+    private boolean bytecode;
+
+    @Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
+    private File classesDirectory;
+
+    /**
+     * Name of the registry class looking up all constants of a config by section and key name, not generated if empty.
+     * Not available in the bytecode mode.
+     */
+    @Parameter
+    private String registry;
+
+    /**
+     * Directory of parsed configs reused across builds, e.g. a local cache directory shared by projects. Only changed
+     * configs are parsed again. Configs are always parsed if not set.
+     */
+    @Parameter(property = "codegen.parseCache")
+    private File parseCache;
+
+    @Parameter(defaultValue = "PARBOILED")
+    private ParserEngine engine;
+
+    @Parameter(defaultValue = "ROASTER")
+    private EmitterType emitter;
+
+    /**
+     * Charset of config files
+     */
+    @Parameter(defaultValue = "${project.build.sourceEncoding}")
+    private String encoding;
+
+    @Parameter(defaultValue = "true")
+    private boolean incremental;
+
+    /**
+     * Number of threads generating classes. Configs are generated in parallel, sections of a single config are
+     * generated in parallel instead.
+     */
+    @Parameter(defaultValue = "1")
+    private int threads;
+
+    @Parameter(defaultValue = "${project.build.directory}/codegen-maven-plugin", readonly = true)
+    private File stateDirectory;
+
+    @Parameter(defaultValue = "${mojoExecution.executionId}", readonly = true)
+    private String executionId;
+
+    @Parameter(property = "codegen.skip", defaultValue = "false")
+    private boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (skip) {
+            getLog().info("Codegen skipped");
+            return;
+        }
+        if (bytecode && registry != null) {
+            throw new MojoExecutionException("Registry class can't be generated in the bytecode mode");
+        }
+        final File sourcesDirectory = bytecode ? new File(stateDirectory, executionId + "-stubs") : outputDirectory;
+        final File stubsJar = new File(stateDirectory, executionId + "-sources.jar");
+        if (!bytecode) {
+            project.addCompileSourceRoot(outputDirectory.getAbsolutePath());
+        }
+
+        final List<BatchEntry> entries = getEntries();
+        final Charset charset = encoding == null ? ConfigurationParser.DEFAULT_CHARSET : Charset.forName(encoding);
+        final String configuration = engine + "|" + emitter + "|" + charset.name() + "|" + incremental + "|" + sourcesDirectory.getAbsolutePath()
+                + (bytecode ? "|" + classesDirectory.getAbsolutePath() : "") + (registry != null ? "|" + registry : "")
+                + (parseCache != null ? "|" + parseCache.getAbsolutePath() : "");
+        final UpToDateCheck upToDateCheck = new UpToDateCheck(new File(stateDirectory, executionId + ".stamp").toPath(), pluginVersion(), charset);
+        try {
+            final String fingerprint = upToDateCheck.fingerprint(entries, configuration);
+            if (isGenerated(entries, bytecode ? classesDirectory : sourcesDirectory) && (!bytecode || stubsJar.isFile())
+                    && upToDateCheck.isUpToDate(fingerprint)) {
+                getLog().info("Generated classes are up to date");
+            } else {
+                upToDateCheck.invalidate();
+                final Codegen codegen = codegen(charset, entries.size() == 1 ? threads : 1);
+                new BatchCodegen(codegen, threads).execute(entries, sourcesDirectory.getAbsolutePath());
+                if (bytecode) {
+                    writeSourcesJar(sourcesDirectory.toPath(), stubsJar.toPath());
+                }
+                upToDateCheck.save(fingerprint);
+            }
+            if (bytecode) {
+                projectHelper.attachArtifact(project, "jar", "sources", stubsJar);
+            }
+        } catch (BatchException e) {
+            throw new MojoFailureException(e.getMessage(), e);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to generate classes of config files", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Codegen interrupted", e);
+        }
+    }
+
+    /**
+     * Plugin classes are loaded once per Maven JVM and shared by all modules of a reactor build. The parser keeps its
+     * constructed grammar in static fields, so a new Codegen is cheap and only the first module pays for the parser
+     * construction.
+     *
+     * @param sectionThreads threads generating sections of one config, the batch runs {@link #threads} configs at once
+     * @throws MojoExecutionException if the options can't be combined, e.g. the reloadable emitter in the bytecode mode
+     */
+    private Codegen codegen(final Charset charset, final int sectionThreads) throws MojoExecutionException {
+        try {
+            return new Codegen.Builder(engine)
+                    .incremental(incremental)
+                    .emitter(emitter)
+                    .charset(charset)
+                    .threads(sectionThreads)
+                    .bytecode(bytecode ? classesDirectory.toPath() : null)
+                    .registry(registry)
+                    .parseCache(parseCache == null ? null : parseCache.toPath())
+                    .build();
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException("Invalid codegen configuration: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Version of the plugin. A snapshot is rebuilt without changing its version, snapshot jars of the plugin and of
+     * the codegen are identified by their size and modification time then.
+     */
+    private String pluginVersion() {
+        final StringBuilder version = new StringBuilder(plugin.getVersion());
+        final List<Artifact> artifacts = new ArrayList<>(plugin.getArtifacts());
+        artifacts.add(plugin.getPluginArtifact());
+        for (Artifact artifact : artifacts) {
+            if (artifact != null && artifact.isSnapshot() && artifact.getFile() != null) {
+                version.append('|').append(artifact.getId()).append(':').append(artifact.getFile().length())
+                        .append(':').append(artifact.getFile().lastModified());
+            }
+        }
+        return version.toString();
+    }
+
+    /**
+     * Pack the source stubs of the bytecode mode, in the order of their paths, so the jar changes only with them
+     */
+    static void writeSourcesJar(final Path sourcesDirectory, final Path jar) throws IOException {
+        final List<Path> stubs;
+        try (Stream<Path> files = Files.walk(sourcesDirectory)) {
+            stubs = files.filter(file -> file.getFileName().toString().endsWith(".java")).sorted().collect(Collectors.toList());
+        }
+        final Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar), manifest)) {
+            for (Path stub : stubs) {
+                final JarEntry entry = new JarEntry(sourcesDirectory.relativize(stub).toString().replace(File.separatorChar, '/'));
+                entry.setTime(Files.getLastModifiedTime(stub).toMillis());
+                out.putNextEntry(entry);
+                Files.copy(stub, out);
+                out.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Package directories of all configs and of their overlays still exist, they may have been deleted without the
+     * state directory
+     */
+    static boolean isGenerated(final List<BatchEntry> entries, final File directory) {
+        for (BatchEntry entry : entries) {
+            final List<String> packages = new ArrayList<>();
+            packages.add(entry.getTargetPackage());
+            try {
+                for (Path overlay : entry.getOverlays()) {
+                    packages.add(Codegen.overlayPackage(entry.getTargetPackage(), overlay.toString()));
+                }
+            } catch (IllegalArgumentException e) {
+                return false; // invalid overlay name, reported by the codegen
+            }
+            for (String targetPackage : packages) {
+                if (!new File(directory, targetPackage.replace('.', File.separatorChar)).isDirectory()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private List<BatchEntry> getEntries() throws MojoExecutionException {
+        final List<ConfigFile> all = new ArrayList<>();
+        if (configFile != null) {
+            all.add(new ConfigFile(configFile, targetPackage));
+        }
+        if (configs != null) {
+            all.addAll(configs);
+        }
+        if (all.isEmpty()) {
+            throw new MojoExecutionException("No config file configured, set configFile and targetPackage or configs");
+        }
+        final List<BatchEntry> entries = new ArrayList<>();
+        for (ConfigFile config : all) {
+            if (config.getFile() == null || config.getTargetPackage() == null) {
+                throw new MojoExecutionException("Both file and targetPackage have to be set for every config");
+            }
+            entries.add(new BatchEntry(config.getFile().toPath(), config.getTargetPackage(),
+                    config.getOverlays().stream().map(File::toPath).collect(Collectors.toList())));
+        }
+        return entries;
+    }
+}
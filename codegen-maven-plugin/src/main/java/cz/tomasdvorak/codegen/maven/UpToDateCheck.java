@@ -0,0 +1,119 @@
+package cz.tomasdvorak.codegen.maven;
+
+import cz.tomasdvorak.codegen.batch.BatchEntry;
+import cz.tomasdvorak.codegen.parser.ConfigurationParser;
+import cz.tomasdvorak.codegen.parser.ParserEngine;
+import cz.tomasdvorak.codegen.parser.utils.ParsingException;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Decides if the generation can be skipped. A fingerprint of all input configs (content, not timestamps), the plugin
+ * configuration and the plugin version is stored after every successful run, next run with the same fingerprint has
+ * nothing to do. Files included by the configs are a part of the fingerprint as well, they are resolved by the parser
+ * itself, so any include it accepts is followed.
+ */
+class UpToDateCheck {
+
+    /**
+     * Cheap to construct, includes are the same for all engines
+     */
+    private final ConfigurationParser parser = new ConfigurationParser(ParserEngine.SCANNER);
+
+    private final Path stampFile;
+
+    /**
+     * Version of the plugin, output of another version may differ even for the same configs
+     */
+    private final String version;
+
+    private final Charset charset;
+
+    UpToDateCheck(final Path stampFile, final String version, final Charset charset) {
+        this.stampFile = stampFile;
+        this.version = version;
+        this.charset = charset;
+    }
+
+    String fingerprint(final List<BatchEntry> entries, final String configuration) throws IOException {
+        final MessageDigest digest = newDigest();
+        update(digest, version);
+        update(digest, configuration);
+        for (BatchEntry entry : entries) {
+            update(digest, entry.getConfigFile().toAbsolutePath().toString());
+            update(digest, entry.getTargetPackage());
+            final Set<Path> included = new HashSet<>();
+            update(digest, entry.getConfigFile(), included);
+            for (Path overlay : entry.getOverlays()) {
+                update(digest, overlay.toAbsolutePath().toString());
+                update(digest, overlay, included);
+            }
+        }
+        final StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    boolean isUpToDate(final String fingerprint) throws IOException {
+        return Files.exists(stampFile) && new String(Files.readAllBytes(stampFile), StandardCharsets.UTF_8).equals(fingerprint);
+    }
+
+    void save(final String fingerprint) throws IOException {
+        Files.createDirectories(stampFile.getParent());
+        Files.write(stampFile, fingerprint.getBytes(StandardCharsets.UTF_8));
+    }
+
+    void invalidate() throws IOException {
+        Files.deleteIfExists(stampFile);
+    }
+
+    /**
+     * Content of the config file and of all files included by it, each of them once
+     */
+    private void update(final MessageDigest digest, final Path file, final Set<Path> included) throws IOException {
+        final byte[] content = Files.readAllBytes(file);
+        digest.update(content);
+        // every include directive contains the keyword, configs without it are not parsed at all
+        if (!new String(content, charset).contains("include")) {
+            return;
+        }
+        final List<Path> includedFiles;
+        try {
+            includedFiles = parser.parseTemplate(file, charset).getIncludedFiles();
+        } catch (ParsingException e) {
+            // never saved, generation of an invalid config fails
+            update(digest, "invalid " + file.toAbsolutePath());
+            return;
+        }
+        for (Path path : includedFiles) {
+            if (included.add(path)) {
+                update(digest, path.toString());
+                digest.update(Files.readAllBytes(path));
+            }
+        }
+    }
+
+    private static void update(final MessageDigest digest, final String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package cz.tomasdvorak.codegen.maven;
+
+import cz.tomasdvorak.codegen.batch.BatchEntry;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+
+public class GenerateMojoTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void overlayPackagesChecked() throws Exception {
+        final Path config = folder.getRoot().toPath().resolve("settings.cfg");
+        final File output = folder.newFolder("output");
+        final List<BatchEntry> entries = Collections.singletonList(new BatchEntry(config, "cz.app",
+                Arrays.asList(config.resolveSibling("dev.cfg"), config.resolveSibling("prod.cfg"))));
+        Assert.assertFalse(GenerateMojo.isGenerated(entries, output));
+
+        Files.createDirectories(output.toPath().resolve("cz/app/dev"));
+        Assert.assertFalse(GenerateMojo.isGenerated(entries, output));
+
+        Files.createDirectories(output.toPath().resolve("cz/app/prod"));
+        Assert.assertTrue(GenerateMojo.isGenerated(entries, output));
+    }
+
+    @Test
+    public void invalidOverlayNameNotGenerated() throws Exception {
+        final Path config = folder.getRoot().toPath().resolve("settings.cfg");
+        final File output = folder.newFolder("output");
+        Files.createDirectories(output.toPath().resolve("cz/app"));
+        final List<BatchEntry> entries = Collections.singletonList(new BatchEntry(config, "cz.app",
+                Collections.singletonList(config.resolveSibling("my-env.cfg"))));
+        Assert.assertFalse(GenerateMojo.isGenerated(entries, output));
+    }
+
+    @Test
+    public void sourcesJarContainsOnlyStubs() throws Exception {
+        final Path stubs = folder.newFolder("stubs").toPath();
+        Files.createDirectories(stubs.resolve("cz/app"));
+        Files.write(stubs.resolve("cz/app/B.java"), "class B {}".getBytes(StandardCharsets.UTF_8));
+        Files.write(stubs.resolve("cz/app/A.java"), "class A {}".getBytes(StandardCharsets.UTF_8));
+        Files.write(stubs.resolve("cz/app/.codegen.lock"), new byte[0]);
+        final Path jar = folder.getRoot().toPath().resolve("sources.jar");
+        GenerateMojo.writeSourcesJar(stubs, jar);
+        try (JarFile file = new JarFile(jar.toFile())) {
+            Assert.assertEquals(Arrays.asList("META-INF/MANIFEST.MF", "cz/app/A.java", "cz/app/B.java"),
+                    file.stream().map(JarEntry::getName).collect(Collectors.toList()));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package cz.tomasdvorak.codegen.maven;
+
+import cz.tomasdvorak.codegen.batch.BatchEntry;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+public class UpToDateCheckTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void fingerprintChanges() throws Exception {
+        final Path config = folder.getRoot().toPath().resolve("settings.cfg");
+        Files.write(config, "[A]\nX = 1\n".getBytes());
+        final List<BatchEntry> entries = Collections.singletonList(new BatchEntry(config, "cz.app"));
+
+        final UpToDateCheck check = new UpToDateCheck(folder.getRoot().toPath().resolve("state/default.stamp"), "1.0", StandardCharsets.UTF_8);
+        final String fingerprint = check.fingerprint(entries, "PARBOILED");
+        Assert.assertFalse(check.isUpToDate(fingerprint));
+
+        check.save(fingerprint);
+        Assert.assertTrue(check.isUpToDate(check.fingerprint(entries, "PARBOILED")));
+
+        Assert.assertFalse(check.isUpToDate(check.fingerprint(entries, "SCANNER")));
+        Assert.assertFalse(check.isUpToDate(check.fingerprint(Collections.singletonList(new BatchEntry(config, "cz.other")), "PARBOILED")));
+
+        final UpToDateCheck upgraded = new UpToDateCheck(folder.getRoot().toPath().resolve("state/default.stamp"), "1.1", StandardCharsets.UTF_8);
+        Assert.assertFalse(upgraded.isUpToDate(upgraded.fingerprint(entries, "PARBOILED")));
+
+        Files.write(config, "[A]\nX = 2\n".getBytes());
+        Assert.assertFalse(check.isUpToDate(check.fingerprint(entries, "PARBOILED")));
+
+        check.invalidate();
+        Assert.assertFalse(check.isUpToDate(fingerprint));
+    }
+
+    @Test
+    public void includedFilesChangeFingerprint() throws Exception {
+        final Path config = folder.getRoot().toPath().resolve("settings.cfg");
+        final Path common = folder.newFolder("common").toPath().resolve("system.cfg");
+        final Path nested = common.resolveSibling("nested.cfg");
+        Files.write(config, "include \"common/system.cfg\"\n[A]\nX = 1\n# include \"ignored.cfg\"\n".getBytes());
+        Files.write(common, "  include \"nested.cfg\"\n[System]\nY = 1\n".getBytes());
+        Files.write(nested, "[Nested]\nZ = 1\n".getBytes());
+        final List<BatchEntry> entries = Collections.singletonList(new BatchEntry(config, "cz.app"));
+
+        final UpToDateCheck check = new UpToDateCheck(folder.getRoot().toPath().resolve("state/default.stamp"), "1.0", StandardCharsets.UTF_8);
+        check.save(check.fingerprint(entries, "PARBOILED"));
+        Assert.assertTrue(check.isUpToDate(check.fingerprint(entries, "PARBOILED")));
+
+        Files.write(nested, "[Nested]\nZ = 2\n".getBytes());
+        Assert.assertFalse(check.isUpToDate(check.fingerprint(entries, "PARBOILED")));
+    }
+
+    @Test
+    public void includeAfterValueOnSameLineFollowed() throws Exception {
+        final Path config = folder.getRoot().toPath().resolve("settings.cfg");
+        final Path common = folder.getRoot().toPath().resolve("common.cfg");
+        Files.write(config, "[A]\nX = 1 include \"common.cfg\"\n".getBytes());
+        Files.write(common, "[Common]\nY = 1\n".getBytes());
+        final List<BatchEntry> entries = Collections.singletonList(new BatchEntry(config, "cz.app"));
+
+        final UpToDateCheck check = new UpToDateCheck(folder.getRoot().toPath().resolve("state/default.stamp"), "1.0", StandardCharsets.UTF_8);
+        check.save(check.fingerprint(entries, "PARBOILED"));
+        Assert.assertTrue(check.isUpToDate(check.fingerprint(entries, "PARBOILED")));
+
+        Files.write(common, "[Common]\nY = 2\n".getBytes());
+        Assert.assertFalse(check.isUpToDate(check.fingerprint(entries, "PARBOILED")));
+    }
+}
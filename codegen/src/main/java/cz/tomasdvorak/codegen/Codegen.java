@@ -1,20 +1,52 @@
 package cz.tomasdvorak.codegen;
 
+import cz.tomasdvorak.codegen.batch.BatchCodegen;
+import cz.tomasdvorak.codegen.batch.BatchEntries;
+import cz.tomasdvorak.codegen.batch.BatchEntry;
 import cz.tomasdvorak.codegen.dto.Config;
-import cz.tomasdvorak.codegen.generator.ClassesGenerator;
+import cz.tomasdvorak.codegen.dto.Section;
+import cz.tomasdvorak.codegen.generator.BytecodeEmitter;
+import cz.tomasdvorak.codegen.generator.EmitterType;
+import cz.tomasdvorak.codegen.generator.RegistryEmitter;
+import cz.tomasdvorak.codegen.generator.SourceEmitter;
+import cz.tomasdvorak.codegen.metrics.CodegenMetrics;
+import cz.tomasdvorak.codegen.metrics.MetricsReport;
+import cz.tomasdvorak.codegen.metrics.SectionMetrics;
+import cz.tomasdvorak.codegen.parser.ConfigTemplate;
 import cz.tomasdvorak.codegen.parser.ConfigurationParser;
+import cz.tomasdvorak.codegen.parser.ParseCache;
+import cz.tomasdvorak.codegen.parser.ParserEngine;
+import cz.tomasdvorak.codegen.parser.utils.ConfigInput;
+import cz.tomasdvorak.codegen.parser.utils.OverlayException;
 import cz.tomasdvorak.codegen.parser.utils.ParsingException;
+import cz.tomasdvorak.codegen.pipeline.SectionPipeline;
+import cz.tomasdvorak.codegen.watch.ConfigWatcher;
+import cz.tomasdvorak.codegen.writer.AtomicFiles;
+import cz.tomasdvorak.codegen.writer.DirectoryLock;
+import cz.tomasdvorak.codegen.writer.IncrementalWriter;
+import cz.tomasdvorak.codegen.writer.SourceContent;
 import org.apache.log4j.Logger;
-import org.jboss.forge.roaster.model.source.JavaClassSource;
 
+import javax.lang.model.SourceVersion;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
 
 /**
  * Main codegen class. Serves for converting config file to java classes.
@@ -23,69 +55,568 @@ public class Codegen {
 
     private static final Logger logger = Logger.getLogger(Codegen.class);
 
+    static final String CLASSES_MANIFEST_FILE = ".codegen-classes-manifest";
+
 
     private final ConfigurationParser parser;
 
-    private Codegen() {
-        this.parser = new ConfigurationParser();
+    /**
+     * Write only changed files and delete files of removed sections, see {@link IncrementalWriter}
+     */
+    private final boolean incremental;
+
+    private final EmitterType emitterType;
+
+    /**
+     * Charset of config files
+     */
+    private final Charset charset;
+
+    /**
+     * Sections generated and written concurrently, see {@link SectionPipeline}
+     */
+    private final int threads;
+
+    /**
+     * Root of class files compiled directly by the {@link BytecodeEmitter}, null if only sources are generated
+     */
+    private final Path classesPath;
+
+    /**
+     * Sources are written to the target path, false only in the bytecode mode without stubs for IDEs
+     */
+    private final boolean sources;
+
+    /**
+     * Name of the lookup registry class generated for the whole config, null if no registry is generated, see
+     * {@link RegistryEmitter}
+     */
+    private final String registryClass;
+
+    /**
+     * Parsed configs reused across runs, null if every config is parsed, see {@link ParseCache}
+     */
+    private final ParseCache parseCache;
+
+    private final CodegenMetrics metrics = new CodegenMetrics();
+
+    private Codegen(final Builder builder) {
+        final long start = System.nanoTime();
+        this.parser = new ConfigurationParser(builder.engine);
+        metrics.recordParserConstruction(System.nanoTime() - start);
+        this.incremental = builder.incremental;
+        this.emitterType = builder.emitterType;
+        this.charset = builder.charset;
+        this.threads = builder.threads;
+        this.classesPath = builder.classesPath;
+        this.sources = builder.classesPath == null || builder.stubs;
+        this.registryClass = builder.registryClass;
+        this.parseCache = builder.parseCache == null ? null : new ParseCache(builder.parseCache);
+    }
+
+    /**
+     * Options of the codegen, everything but the parser engine is optional. Sources are generated by the
+     * {@link EmitterType#ROASTER} emitter from UTF-8 configs, by as many threads as there are CPUs, all files are
+     * written on every run.
+     */
+    public static class Builder {
+        private final ParserEngine engine;
+        private boolean incremental;
+        private EmitterType emitterType = EmitterType.ROASTER;
+        private Charset charset = ConfigurationParser.DEFAULT_CHARSET;
+        private int threads = Runtime.getRuntime().availableProcessors();
+        private Path classesPath;
+        private boolean stubs = true;
+        private String registryClass;
+        private Path parseCache;
+
+        public Builder(final ParserEngine engine) {
+            this.engine = engine;
+        }
+
+        /**
+         * Write only changed files and delete files of removed sections, see {@link IncrementalWriter}
+         */
+        public Builder incremental(final boolean incremental) {
+            this.incremental = incremental;
+            return this;
+        }
+
+        public Builder emitter(final EmitterType emitterType) {
+            this.emitterType = emitterType;
+            return this;
+        }
+
+        /**
+         * Charset of config files
+         */
+        public Builder charset(final Charset charset) {
+            this.charset = charset;
+            return this;
+        }
+
+        /**
+         * Sections generated and written concurrently, see {@link SectionPipeline}
+         */
+        public Builder threads(final int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * Compile every section directly to a class file under this path. Sources written to the target path then
+         * serve only as stubs for IDEs and must not be compiled again.
+         */
+        public Builder bytecode(final Path classesPath) {
+            this.classesPath = classesPath;
+            return this;
+        }
+
+        /**
+         * If false, the bytecode mode writes no sources at all, the target path keeps only the manifest of class files
+         * of the incremental mode
+         */
+        public Builder stubs(final boolean stubs) {
+            this.stubs = stubs;
+            return this;
+        }
+
+        /**
+         * Generate also a registry class of this name next to the constants classes, see {@link RegistryEmitter}
+         */
+        public Builder registry(final String registryClass) {
+            this.registryClass = registryClass;
+            return this;
+        }
+
+        /**
+         * Cache parsed configs in this directory, they are not parsed again until changed, see {@link ParseCache}
+         */
+        public Builder parseCache(final Path parseCache) {
+            this.parseCache = parseCache;
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException if the options can't be combined
+         */
+        public Codegen build() {
+            if (registryClass != null && !RegistryEmitter.isClassName(registryClass)) {
+                throw new IllegalArgumentException("Registry class name " + registryClass + " is not a valid Java identifier");
+            }
+            if (classesPath != null && registryClass != null) {
+                throw new IllegalArgumentException("Registry class has to be compiled by javac, it can't be generated in the bytecode mode");
+            }
+            if (emitterType == EmitterType.RELOADABLE && (classesPath != null || registryClass != null)) {
+                throw new IllegalArgumentException("Reloadable classes have no constants, neither the bytecode mode nor the registry can be used with them");
+            }
+            return new Codegen(this);
+        }
     }
 
     /**
      * Entry point, called from the maven exec plugin (see pom.xml of myapp)
-     * @param args Three string arguments - config file, target path, targetPackage
+     * @param args Three string arguments - config file, target path, targetPackage. Optionally followed by
+     *             the --incremental flag, --engine=parboiled|scanner parser selection,
+     *             --emitter=roaster|streaming|reloadable source emitter selection and --charset=name of config files
+     *             (UTF-8 by default). Classes are generated and written by --threads (number of CPUs by default).
+     *
+     *             --bytecode=dir compiles classes directly to class files in the given directory, sources in the
+     *             target path are then only stubs for IDEs.
+     *
+     *             --registry=ClassName generates also a registry class, looking up all constants by section and
+     *             key name without reflection.
+     *
+     *             --overlays=dev.cfg,prod.cfg generates also classes of the config with values overridden by every
+     *             overlay file, into a subpackage of the target package named by the file (dev, prod).
+     *
+     *             --parse-cache=dir keeps parsed configs in the directory, unchanged configs are not parsed again.
+     *
+     *             --metrics=file writes timing, file and memory counters of the run as JSON, or appends them
+     *             as one CSV line if the file ends with .csv. --metrics-summary logs them as one line.
+     *
+     *             --profile-grammar logs invocations, matches, rematches and time of every grammar rule, measured
+     *             on the config file, --profile-grammar-report=file writes the report to a file instead.
+     *
+     *             With the --watch flag, the codegen keeps running and regenerates classes of changed sections
+     *             whenever the config file changes. Bursts of file events are merged within --debounce=ms.
+     *
+     *             With the --batch flag, arguments are target path followed by any number of config files or globs.
+     *             Target package of each config is derived from its path and --base-package, or read from
+     *             --mapping=file. Configs are processed in parallel by --threads (number of CPUs by default).
      */
     public static void main(String[] args) throws Exception {
+        final CodegenOptions options = CodegenOptions.parse(args);
+        final List<String> positional = options.getPositional();
 
-        if(args.length != 3) {
+        if (options.isSet("batch")) {
+            report(options, executeBatch(options, positional));
+            return;
+        }
+
+        if(positional.size() != 3) {
             throw new RuntimeException("Codegen requires exactly 3 arguments: config file path, target path, target package");
         }
 
-        final Codegen codegen = new Codegen();
-        codegen.execute(args[0], args[1], args[2]);
+        final Codegen codegen = create(options);
+        if (options.isSet("watch")) {
+            if (options.get("overlays").isPresent()) {
+                throw new RuntimeException("Overlays can't be used with --watch, only the config itself is watched and regenerated");
+            }
+            final long debounce = options.get("debounce").map(Long::parseLong).orElse(ConfigWatcher.DEFAULT_DEBOUNCE_MILLIS);
+            try (ConfigWatcher watcher = new ConfigWatcher(codegen, Paths.get(positional.get(0)), positional.get(1), positional.get(2), debounce)) {
+                watcher.run();
+            }
+            return;
+        }
+        if (options.isSet("profile-grammar") || options.get("profile-grammar-report").isPresent()) {
+            profileGrammar(options.get("profile-grammar-report"), codegen, positional.get(0));
+        }
+        final List<String> overlays = options.get("overlays").map(files -> Arrays.asList(files.split(","))).orElse(Collections.emptyList());
+        codegen.execute(positional.get(0), overlays, positional.get(1), positional.get(2));
+        report(options, codegen);
+    }
+
+    /**
+     * @param reportFile file of the report, the report is logged if not present
+     */
+    private static void profileGrammar(final Optional<String> reportFile, final Codegen codegen, final String configFile) throws IOException, ParsingException {
+        final String report = codegen.profileGrammar(configFile);
+        if (reportFile.isPresent()) {
+            Files.write(Paths.get(reportFile.get()), report.getBytes(StandardCharsets.UTF_8));
+            logger.info("Grammar profile of " + configFile + " written to " + reportFile.get());
+        } else {
+            logger.info("Grammar profile of " + configFile + ":\n" + report);
+        }
+    }
+
+    private static void report(final CodegenOptions options, final Codegen codegen) throws IOException {
+        final Optional<String> metricsFile = options.get("metrics");
+        if (metricsFile.isPresent()) {
+            MetricsReport.write(codegen.getMetrics(), Paths.get(metricsFile.get()));
+        }
+        if (options.isSet("metrics-summary")) {
+            logger.info(codegen.getMetrics().summary());
+        }
+    }
+
+    private static Codegen executeBatch(final CodegenOptions options, final List<String> positional) throws Exception {
+        if (positional.isEmpty() || (positional.size() == 1 && !options.get("mapping").isPresent())) {
+            throw new RuntimeException("Codegen batch requires target path followed by config files, or --mapping=file");
+        }
+        final List<BatchEntry> entries = options.get("mapping").isPresent()
+                ? BatchEntries.fromMappingFile(Paths.get(options.get("mapping").get()))
+                : BatchEntries.fromPatterns(positional.subList(1, positional.size()), Paths.get(""), options.get("base-package").orElse(""));
+        final int threads = options.get("threads").map(Integer::parseInt).orElse(Runtime.getRuntime().availableProcessors());
+        // files are processed in parallel already, sections of one file are generated sequentially
+        final Codegen codegen = create(options, 1);
+        new BatchCodegen(codegen, threads).execute(entries, positional.get(0));
+        return codegen;
+    }
+
+    private static Codegen create(final CodegenOptions options) {
+        return create(options, options.get("threads").map(Integer::parseInt).orElse(Runtime.getRuntime().availableProcessors()));
+    }
+
+    private static Codegen create(final CodegenOptions options, final int threads) {
+        final ParserEngine engine = options.get("engine").map(name -> name.toUpperCase(Locale.ROOT)).map(ParserEngine::valueOf).orElse(ParserEngine.PARBOILED);
+        final EmitterType emitterType = options.get("emitter").map(name -> name.toUpperCase(Locale.ROOT)).map(EmitterType::valueOf).orElse(EmitterType.ROASTER);
+        final Charset charset = options.get("charset").map(Charset::forName).orElse(ConfigurationParser.DEFAULT_CHARSET);
+        final Path classesPath = options.get("bytecode").map(Paths::get).orElse(null);
+        final String registryClass = options.get("registry").orElse(null);
+        final Path parseCache = options.get("parse-cache").map(Paths::get).orElse(null);
+        return new Builder(engine)
+                .incremental(options.isSet("incremental"))
+                .emitter(emitterType)
+                .charset(charset)
+                .threads(threads)
+                .bytecode(classesPath)
+                .registry(registryClass)
+                .parseCache(parseCache)
+                .build();
+    }
+
+    /**
+     * Read config file, parse it to the Config instance, transform every section to a Java class and persist it
+     */
+    public void execute(final String configFile, final String targetPath, final String targetPackage) throws ParsingException, IOException, URISyntaxException {
+        logger.info("Running Codegen with following params:");
+        logger.info("Config file: " + configFile);
+        logger.info("Target path: " + targetPath);
+        logger.info("Target package: " + targetPackage);
+        if (classesPath != null) {
+            logger.info("Classes path: " + classesPath);
+        }
+
+        generate(parse(configFile), targetPath, targetPackage);
     }
 
     /**
-     * Read config file, parse it to the Config instance, transform to a List of Java classes and persist them
+     * Generate classes of the config to the target package and of every overlay of it to a subpackage named by
+     * the overlay file, e.g. prod.cfg to targetPackage.prod. The config is parsed only once, overlays are applied to
+     * the parsed tree, see {@link ConfigTemplate#overlay(Config)}.
      */
-    private void execute(final String configFile, final String targetPath, final String targetPackage) throws ParsingException, IOException, URISyntaxException {
+    public void execute(final String configFile, final List<String> overlayFiles, final String targetPath, final String targetPackage) throws ParsingException, OverlayException, IOException, URISyntaxException {
+        if (overlayFiles.isEmpty()) {
+            execute(configFile, targetPath, targetPackage);
+            return;
+        }
         logger.info("Running Codegen with following params:");
         logger.info("Config file: " + configFile);
+        logger.info("Overlays: " + String.join(", ", overlayFiles));
         logger.info("Target path: " + targetPath);
         logger.info("Target package: " + targetPackage);
 
-        final Config config = parser.parse(configFile);
-        final ClassesGenerator converter = new ClassesGenerator(targetPackage);
-        final List<JavaClassSource> classes = converter.convert(config);
-        classes.stream().parallel().forEach(cls -> persistClass(targetPath, cls));
+        final ConfigTemplate template = parseTemplate(configFile);
+        generate(template.getConfig(), targetPath, targetPackage);
+        for (String overlayFile : overlayFiles) {
+            final String overlayPackage = overlayPackage(targetPackage, overlayFile);
+            final Config config;
+            try {
+                config = template.overlay(parse(overlayFile));
+            } catch (OverlayException e) {
+                throw new OverlayException("Overlay " + overlayFile + " doesn't fit config " + configFile + "!", e.getErrors());
+            }
+            generate(config, targetPath, overlayPackage);
+        }
+    }
+
+    /**
+     * Package of classes generated from the overlay file, see {@link #execute(String, List, String, String)}
+     * @throws IllegalArgumentException if the name of the file is not a valid package name
+     */
+    public static String overlayPackage(final String targetPackage, final String overlayFile) {
+        return targetPackage + "." + environment(overlayFile);
+    }
+
+    /**
+     * Name of the environment of the overlay file, its name without extension
+     */
+    private static String environment(final String overlayFile) {
+        final String fileName = Paths.get(overlayFile).getFileName().toString();
+        final String environment = fileName.contains(".") ? fileName.substring(0, fileName.lastIndexOf('.')) : fileName;
+        if (!SourceVersion.isName(environment) || environment.contains(".")) {
+            throw new IllegalArgumentException("Name of overlay file " + overlayFile + " is not a valid package name");
+        }
+        return environment;
+    }
+
+    private void generate(final Config config, final String targetPath, final String targetPackage) throws IOException {
+        final Path dir = Paths.get(targetPath, packageToPath(targetPackage));
+        final SourceEmitter emitter = emitterType.create(targetPackage);
+        try (DirectoryLock lock = DirectoryLock.acquire(dir); DirectoryLock classesLock = lockClasses(targetPackage)) {
+            if (incremental) {
+                persistChangedClasses(dir, targetPackage, config, name -> true, emitter);
+            } else {
+                persistClasses(dir, targetPackage, config.getSections(), emitter);
+                persistRegistry(dir, targetPackage, config);
+            }
+        }
+    }
+
+    private Optional<Path> classesDir(final String targetPackage) throws IOException {
+        if (classesPath == null) {
+            return Optional.empty();
+        }
+        return Optional.of(AtomicFiles.createDirectories(classesPath.resolve(packageToPath(targetPackage))));
+    }
+
+    /**
+     * Lock of the package directory of class files in the bytecode mode, null otherwise. Always acquired after the
+     * lock of the sources directory, which holds the manifest of the class files. The lock file is kept next to the
+     * classes directory, not inside of it, so it doesn't get into the packaged jar.
+     */
+    private DirectoryLock lockClasses(final String targetPackage) throws IOException {
+        if (classesPath == null) {
+            return null;
+        }
+        final Path root = classesPath.toAbsolutePath();
+        return DirectoryLock.acquire(root.resolve(packageToPath(targetPackage)),
+                root.resolveSibling("." + root.getFileName() + "-" + targetPackage + ".codegen.lock"));
+    }
+
+    public Config parse(final String configFile) throws IOException, ParsingException {
+        final long start = System.nanoTime();
+        final Config config = parseCache == null
+                ? parser.parse(Paths.get(configFile), charset)
+                : parseCache.parse(parser, Paths.get(configFile), charset);
+        metrics.recordParse(System.nanoTime() - start);
+        if (parseCache != null) {
+            metrics.recordParseCache(parseCache.getHits(), parseCache.getMisses());
+        }
+        return config;
+    }
+
+    /**
+     * Parse the config keeping its derived values as expressions and the list of its included files,
+     * see {@link ConfigTemplate}
+     */
+    public ConfigTemplate parseTemplate(final String configFile) throws IOException, ParsingException {
+        final long start = System.nanoTime();
+        final ConfigTemplate template = parseCache == null
+                ? parser.parseTemplate(Paths.get(configFile), charset)
+                : parseCache.parseTemplate(parser, Paths.get(configFile), charset);
+        metrics.recordParse(System.nanoTime() - start);
+        if (parseCache != null) {
+            metrics.recordParseCache(parseCache.getHits(), parseCache.getMisses());
+        }
+        return template;
+    }
+
+    /**
+     * Parse the config file with the profiling runner, see {@link ConfigurationParser#profile(CharSequence)}
+     * @return printed profiling report
+     */
+    public String profileGrammar(final String configFile) throws IOException, ParsingException {
+        return parser.profile(ConfigInput.read(Paths.get(configFile), charset)).print();
+    }
+
+    public CodegenMetrics getMetrics() {
+        return metrics;
     }
 
-    private void persistClass(final String targetPath, final JavaClassSource cls) {
-        final Path path = prepareClassDirectory(cls, targetPath);
-        writeClass(cls, path);
+    /**
+     * Generate classes of the changed sections of the config and delete all previously generated files, which don't
+     * belong to the config anymore, including files of sections removed before this run. Classes of the other sections
+     * are kept as they are, without generating them again, if they have been generated by a previous run.
+     * @param changed names of sections whose classes have to be generated
+     * @return number of deleted files
+     */
+    public int persistChanged(final Config config, final Set<String> changed, final String targetPath, final String targetPackage) throws IOException {
+        final Path dir = Paths.get(targetPath, packageToPath(targetPackage));
+        try (DirectoryLock lock = DirectoryLock.acquire(dir); DirectoryLock classesLock = lockClasses(targetPackage)) {
+            return persistChangedClasses(dir, targetPackage, config, changed::contains, emitterType.create(targetPackage));
+        }
     }
 
-    private void writeClass(final JavaClassSource cls, final Path dir) {
+    private void persistRegistry(final Path dir, final String targetPackage, final Config config) throws IOException {
+        if (registryClass == null) {
+            return;
+        }
+        final boolean written;
         try {
-            Files.write(dir.resolve(cls.getName() + ".java"), cls.toString().getBytes());
-            logger.info("Class " + cls.getPackage() + "." + cls.getName() + " persisted");
+            written = AtomicFiles.write(dir.resolve(registryClass + ".java"), registryContent(targetPackage, config));
         } catch (IOException e) {
-            throw new RuntimeException("Failed to write class class " + cls.getName() + " to directory " + dir.toAbsolutePath());
+            throw new IOException("Failed to write registry class " + registryClass + " to directory " + dir.toAbsolutePath(), e);
         }
+        logger.info("Registry " + targetPackage + "." + registryClass + (written ? " persisted" : " is up to date"));
     }
 
     /**
-     * Create required directory for source code generation.
+     * @param changed sections to be generated, the other ones are kept if generated by a previous run
+     * @return number of deleted files
      */
-    private Path prepareClassDirectory(final JavaClassSource cls, final String basePath) {
-        final String packagePath = packageToPath(cls.getPackage());
-        final Path dir = Paths.get(basePath, packagePath);
+    private int persistChangedClasses(final Path dir, final String targetPackage, final Config config, final Predicate<String> changed, final SourceEmitter emitter) throws IOException {
+        final IncrementalWriter writer = new IncrementalWriter(dir);
+        final Optional<Path> classesDir = classesDir(targetPackage);
+        // manifest of class files is kept next to the sources, the classes directory is packaged as it is
+        final Optional<IncrementalWriter> classWriter = classesDir.isPresent()
+                ? Optional.of(new IncrementalWriter(classesDir.get(), dir.resolve(CLASSES_MANIFEST_FILE)))
+                : Optional.empty();
+        final List<Section> sections = new ArrayList<>();
+        for (Section section : config.getSections()) {
+            boolean kept = !changed.test(section.getName()) && (!sources || writer.keep(section.getName() + ".java"));
+            if (kept && classWriter.isPresent()) {
+                kept = classWriter.get().keep(section.getName() + ".class");
+            }
+            if (!kept) {
+                sections.add(section);
+            }
+        }
+        final BytecodeEmitter bytecodeEmitter = new BytecodeEmitter(targetPackage);
+        new SectionPipeline(threads).run(sections, section -> {
+            final long start = System.nanoTime();
+            final String fileName = section.getName() + ".java";
+            boolean written = sources && writer.write(fileName, content(section, emitter));
+            long bytes = written ? Files.size(dir.resolve(fileName)) : 0;
+            if (classWriter.isPresent()) {
+                final byte[] bytecode = bytecodeEmitter.emit(section);
+                if (classWriter.get().write(section.getName() + ".class", bytecode)) {
+                    written = true;
+                    bytes += bytecode.length;
+                }
+            }
+            recordSection(targetPackage, section, start, bytes, written);
+            if (written) {
+                logger.info("Class " + targetPackage + "." + section.getName() + " persisted");
+            } else {
+                logger.info("Class " + targetPackage + "." + section.getName() + " is up to date");
+            }
+        });
+        if (registryClass != null && writer.write(registryClass + ".java", registryContent(targetPackage, config))) {
+            logger.info("Registry " + targetPackage + "." + registryClass + " persisted");
+        }
+        final int deleted = writer.prune().size();
+        metrics.recordDeleted(deleted);
+        writer.saveManifest();
+        if (classWriter.isPresent()) {
+            classWriter.get().prune();
+            classWriter.get().saveManifest();
+        }
+        return deleted;
+    }
+
+    private void persistClasses(final Path dir, final String targetPackage, final List<Section> sections, final SourceEmitter emitter) throws IOException {
+        final Optional<Path> classesDir = classesDir(targetPackage);
+        final BytecodeEmitter bytecodeEmitter = new BytecodeEmitter(targetPackage);
+        new SectionPipeline(threads).run(sections, section -> {
+            final long start = System.nanoTime();
+            long bytes = sources ? writeClass(section, content(section, emitter), dir) : 0;
+            if (classesDir.isPresent()) {
+                bytes += writeBytecode(section, bytecodeEmitter.emit(section), classesDir.get());
+            }
+            recordSection(targetPackage, section, start, bytes, bytes > 0);
+            if (bytes > 0) {
+                logger.info("Class " + targetPackage + "." + section.getName() + " persisted");
+            } else {
+                logger.info("Class " + targetPackage + "." + section.getName() + " is up to date");
+            }
+        });
+    }
+
+    private void recordSection(final String targetPackage, final Section section, final long start, final long bytes, final boolean written) {
+        metrics.recordSection(new SectionMetrics(targetPackage + "." + section.getName(), System.nanoTime() - start, bytes, written));
+    }
+
+    /**
+     * @return size of the written file, 0 if the file already had the content
+     */
+    private long writeClass(final Section section, final SourceContent content, final Path dir) throws IOException {
+        final Path file = dir.resolve(section.getName() + ".java");
         try {
-            return Files.createDirectories(dir);
+            return AtomicFiles.write(file, content) ? Files.size(file) : 0;
         } catch (IOException e) {
-            throw new RuntimeException("Failed to create path for class " + cls.getName() + " in directory " + dir.toAbsolutePath());
+            throw new IOException("Failed to write class " + section.getName() + " to directory " + dir.toAbsolutePath(), e);
         }
     }
 
+    /**
+     * @return size of the written class file, 0 if the file already had the content
+     */
+    private long writeBytecode(final Section section, final byte[] bytecode, final Path dir) throws IOException {
+        try {
+            return AtomicFiles.write(dir.resolve(section.getName() + ".class"), bytecode) ? bytecode.length : 0;
+        } catch (IOException e) {
+            throw new IOException("Failed to write class file " + section.getName() + " to directory " + dir.toAbsolutePath(), e);
+        }
+    }
+
+    private SourceContent content(final Section section, final SourceEmitter emitter) {
+        return out -> {
+            final Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            emitter.emit(section, writer);
+            writer.flush();
+        };
+    }
+
+    private SourceContent registryContent(final String targetPackage, final Config config) {
+        return out -> {
+            final Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            new RegistryEmitter(targetPackage, registryClass).emit(config, writer);
+            writer.flush();
+        };
+    }
+
     private String packageToPath(final String aPackage) {
         return Optional.ofNullable(aPackage).map(pkg -> pkg.replace(".", File.separator)).orElse("");
     }
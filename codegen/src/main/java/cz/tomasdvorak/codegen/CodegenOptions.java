@@ -0,0 +1,85 @@
+package cz.tomasdvorak.codegen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Command line arguments of the {@link Codegen}. Arguments starting with <code>--</code> are options, either plain
+ * flags (<code>--incremental</code>) or valued (<code>--name=value</code>). Everything else is a positional argument.
+ * Options not understood by the codegen are rejected, a typo would run it with the default silently.
+ */
+class CodegenOptions {
+
+    /**
+     * All options of {@link Codegen#main}
+     */
+    private static final Set<String> KNOWN = new TreeSet<>(Arrays.asList("incremental", "engine", "emitter", "charset",
+            "threads", "bytecode", "registry", "overlays", "parse-cache", "metrics", "metrics-summary", "profile-grammar",
+            "profile-grammar-report", "watch", "debounce", "batch", "base-package", "mapping"));
+
+    private final List<String> positional;
+    private final Map<String, String> options;
+
+    private CodegenOptions(final List<String> positional, final Map<String, String> options) {
+        this.positional = positional;
+        this.options = options;
+    }
+
+    /**
+     * @throws IllegalArgumentException on an unknown option, with the list of known ones
+     */
+    static CodegenOptions parse(final String[] args) {
+        final List<String> positional = new ArrayList<>();
+        final Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                final int separator = arg.indexOf('=');
+                if (separator < 0) {
+                    options.put(arg.substring(2), "true");
+                } else {
+                    options.put(arg.substring(2, separator), arg.substring(separator + 1));
+                }
+            } else {
+                positional.add(arg);
+            }
+        }
+        for (String name : options.keySet()) {
+            if (!KNOWN.contains(name)) {
+                throw new IllegalArgumentException("Unknown option --" + name + ", known options are "
+                        + KNOWN.stream().map(known -> "--" + known).collect(Collectors.joining(", ")));
+            }
+        }
+        return new CodegenOptions(Collections.unmodifiableList(positional), options);
+    }
+
+    List<String> getPositional() {
+        return positional;
+    }
+
+    /**
+     * @return value of a flag, false if missing
+     * @throws IllegalArgumentException if the value is neither true nor false, e.g. a typo
+     */
+    boolean isSet(final String name) {
+        final String value = options.get(name);
+        if (value == null || value.equalsIgnoreCase("false")) {
+            return false;
+        }
+        if (value.equalsIgnoreCase("true")) {
+            return true;
+        }
+        throw new IllegalArgumentException("Option --" + name + " has to be true or false, not " + value);
+    }
+
+    Optional<String> get(final String name) {
+        return Optional.ofNullable(options.get(name));
+    }
+}
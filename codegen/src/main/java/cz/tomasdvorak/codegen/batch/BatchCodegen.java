@@ -0,0 +1,104 @@
+package cz.tomasdvorak.codegen.batch;
+
+import cz.tomasdvorak.codegen.Codegen;
+import org.apache.log4j.Logger;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Generates classes of many config files in one process. Files are processed in parallel on a bounded pool, all sharing
+ * one {@link Codegen} and therefore one warmed-up parser. A failing file doesn't stop the others, all failures are
+ * reported together at the end.
+ */
+public class BatchCodegen {
+
+    private static final Logger logger = Logger.getLogger(BatchCodegen.class);
+
+    private final Codegen codegen;
+    private final int threads;
+
+    public BatchCodegen(final Codegen codegen, final int threads) {
+        this.codegen = codegen;
+        this.threads = threads;
+    }
+
+    public void execute(final List<BatchEntry> entries, final String targetPath) throws BatchException, InterruptedException {
+        checkDuplicatePackages(entries);
+        logger.info("Running batch of " + entries.size() + " config files on " + threads + " threads");
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final Map<BatchEntry, Future<?>> results = new LinkedHashMap<>();
+        try {
+            for (BatchEntry entry : entries) {
+                results.put(entry, executor.submit(() -> {
+                    codegen.execute(entry.getConfigFile().toString(), entry.getOverlays().stream().map(Path::toString).collect(Collectors.toList()),
+                            targetPath, entry.getTargetPackage());
+                    return null;
+                }));
+            }
+            final Map<BatchEntry, Exception> failures = new LinkedHashMap<>();
+            for (Map.Entry<BatchEntry, Future<?>> result : results.entrySet()) {
+                try {
+                    result.getValue().get();
+                } catch (ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    failures.put(result.getKey(), cause instanceof Exception ? (Exception) cause : e);
+                }
+            }
+            if (!failures.isEmpty()) {
+                throw new BatchException(entries.size(), failures);
+            }
+            logger.info("Batch of " + entries.size() + " config files finished");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Two configs generated to one package would overwrite each others classes, the package of a config may be also
+     * the subpackage of an overlay of another config
+     */
+    private void checkDuplicatePackages(final List<BatchEntry> entries) {
+        final Set<String> packages = new HashSet<>();
+        final List<String> duplicates = new ArrayList<>();
+        for (BatchEntry entry : entries) {
+            for (String targetPackage : packagesOf(entry)) {
+                if (!packages.add(targetPackage)) {
+                    duplicates.add(entry.toString());
+                    break;
+                }
+            }
+        }
+        if (!duplicates.isEmpty()) {
+            throw new IllegalArgumentException("More config files generated to the same package: " + duplicates);
+        }
+    }
+
+    /**
+     * Target package of the config and subpackages of its overlays. Overlays with invalid names are left out, they are
+     * reported as failures of their config.
+     */
+    private static List<String> packagesOf(final BatchEntry entry) {
+        final List<String> packages = new ArrayList<>();
+        packages.add(entry.getTargetPackage());
+        for (Path overlay : entry.getOverlays()) {
+            try {
+                packages.add(Codegen.overlayPackage(entry.getTargetPackage(), overlay.toString()));
+            } catch (IllegalArgumentException e) {
+                // generation of the config fails
+            }
+        }
+        return packages;
+    }
+}
@@ -0,0 +1,125 @@
+package cz.tomasdvorak.codegen.batch;
+
+import javax.lang.model.SourceVersion;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Resolves config files of a batch and their target packages.
+ */
+public final class BatchEntries {
+
+    private static final String GLOB_CHARS = "*?[{";
+
+    private BatchEntries() {
+    }
+
+    /**
+     * Read explicit mapping, one <code>path/to/config.cfg=target.package</code> line per config. Paths are relative
+     * to the directory of the mapping file.
+     */
+    public static List<BatchEntry> fromMappingFile(final Path mappingFile) throws IOException {
+        final Properties mapping = new Properties();
+        try (Reader reader = Files.newBufferedReader(mappingFile, StandardCharsets.UTF_8)) {
+            mapping.load(reader);
+        }
+        final Path baseDir = mappingFile.toAbsolutePath().getParent();
+        return new TreeSet<>(mapping.stringPropertyNames()).stream()
+                .map(file -> new BatchEntry(baseDir.resolve(file).normalize(), mapping.getProperty(file).trim()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Resolve files and globs (e.g. <code>services/**&#47;*.cfg</code>) relative to the base directory. Target package
+     * is derived from the relative path of the config by convention - <code>services/billing/settings.cfg</code>
+     * becomes <code>basePackage.services.billing.settings</code>.
+     */
+    public static List<BatchEntry> fromPatterns(final List<String> patterns, final Path baseDir, final String basePackage) throws IOException {
+        final TreeSet<Path> files = new TreeSet<>();
+        for (String pattern : patterns) {
+            files.addAll(resolve(pattern, baseDir));
+        }
+        final List<BatchEntry> entries = new ArrayList<>();
+        for (Path file : files) {
+            entries.add(new BatchEntry(file, packageOf(baseDir.toAbsolutePath().normalize().relativize(file), basePackage)));
+        }
+        return entries;
+    }
+
+    private static List<Path> resolve(final String pattern, final Path baseDir) throws IOException {
+        final String normalized = pattern.replace('\\', '/');
+        if (normalized.chars().noneMatch(c -> GLOB_CHARS.indexOf(c) >= 0)) {
+            final Path file = baseDir.resolve(normalized).toAbsolutePath().normalize();
+            if (!Files.isRegularFile(file)) {
+                throw new IOException("Config file " + file + " doesn't exist");
+            }
+            return Arrays.asList(file);
+        }
+        // walk only the directory before the first wildcard
+        final int wildcard = firstGlobChar(normalized);
+        final int lastSlash = normalized.lastIndexOf('/', wildcard);
+        final Path root = baseDir.resolve(lastSlash < 0 ? "" : normalized.substring(0, lastSlash)).toAbsolutePath().normalize();
+        if (!Files.isDirectory(root)) {
+            return new ArrayList<>();
+        }
+        final Path absoluteBase = baseDir.toAbsolutePath().normalize();
+        final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + normalized);
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(path -> matcher.matches(absoluteBase.relativize(path)))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static int firstGlobChar(final String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            if (GLOB_CHARS.indexOf(pattern.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static String packageOf(final Path relativeFile, final String basePackage) {
+        final List<String> segments = new ArrayList<>();
+        if (!basePackage.isEmpty()) {
+            segments.add(basePackage);
+        }
+        for (Path segment : relativeFile) {
+            String name = segment.toString();
+            final int extension = name.lastIndexOf('.');
+            if (extension > 0 && segment.equals(relativeFile.getFileName())) {
+                name = name.substring(0, extension);
+            }
+            segments.add(toIdentifier(name));
+        }
+        return String.join(".", segments);
+    }
+
+    private static String toIdentifier(final String name) {
+        final StringBuilder identifier = new StringBuilder();
+        for (char c : name.toLowerCase(Locale.ROOT).toCharArray()) {
+            identifier.append(Character.isJavaIdentifierPart(c) ? c : '_');
+        }
+        if (identifier.length() == 0 || !Character.isJavaIdentifierStart(identifier.charAt(0))) {
+            identifier.insert(0, '_');
+        }
+        if (SourceVersion.isKeyword(identifier)) {
+            identifier.append('_'); // e.g. directory "class" or "new"
+        }
+        return identifier.toString();
+    }
+}
@@ -0,0 +1,44 @@
+package cz.tomasdvorak.codegen.batch;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One config file of the batch and the package its classes are generated to.
+ */
+public class BatchEntry {
+    private final Path configFile;
+    private final String targetPackage;
+    private final List<Path> overlays;
+
+    public BatchEntry(final Path configFile, final String targetPackage) {
+        this(configFile, targetPackage, Collections.emptyList());
+    }
+
+    /**
+     * @param overlays overlay files of the config, each generated to a subpackage of the target package
+     */
+    public BatchEntry(final Path configFile, final String targetPackage, final List<Path> overlays) {
+        this.configFile = configFile;
+        this.targetPackage = targetPackage;
+        this.overlays = Collections.unmodifiableList(overlays);
+    }
+
+    public Path getConfigFile() {
+        return configFile;
+    }
+
+    public String getTargetPackage() {
+        return targetPackage;
+    }
+
+    public List<Path> getOverlays() {
+        return overlays;
+    }
+
+    @Override
+    public String toString() {
+        return configFile + " -> " + targetPackage;
+    }
+}
@@ -0,0 +1,28 @@
+package cz.tomasdvorak.codegen.batch;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Some configs of the batch failed. Contains errors of all of them, not only the first one.
+ */
+public class BatchException extends Exception {
+
+    private final Map<BatchEntry, Exception> failures;
+
+    public BatchException(final int total, final Map<BatchEntry, Exception> failures) {
+        super(report(total, failures));
+        this.failures = Collections.unmodifiableMap(failures);
+    }
+
+    public Map<BatchEntry, Exception> getFailures() {
+        return failures;
+    }
+
+    private static String report(final int total, final Map<BatchEntry, Exception> failures) {
+        final StringBuilder report = new StringBuilder();
+        report.append(failures.size()).append(" of ").append(total).append(" config files failed:");
+        failures.forEach((entry, e) -> report.append("\n  ").append(entry.getConfigFile()).append(": ").append(e.getMessage()));
+        return report.toString();
+    }
+}
@@ -1,10 +1,19 @@
 package cz.tomasdvorak.codegen.dto;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 
 public class Config {
     private final List<Section> sections;
 
+    /**
+     * Sections by name, built on the first {@link #getSection(String)}
+     */
+    private volatile Map<String, Section> index;
+
     public Config(final List<Section> sections) {
         this.sections = sections;
     }
@@ -13,6 +22,30 @@ public class Config {
         return sections;
     }
 
+    public Optional<Section> getSection(final String name) {
+        Map<String, Section> sectionsByName = index;
+        if (sectionsByName == null) {
+            sectionsByName = new HashMap<>(sections.size() * 2);
+            for (Section section : sections) {
+                sectionsByName.putIfAbsent(section.getName(), section);
+            }
+            index = sectionsByName;
+        }
+        return Optional.ofNullable(sectionsByName.get(name));
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return Objects.equals(sections, ((Config) o).sections);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(sections);
+    }
+
     @Override
     public String toString() {
         return sections.toString();
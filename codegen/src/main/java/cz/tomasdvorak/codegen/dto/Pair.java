@@ -1,5 +1,7 @@
 package cz.tomasdvorak.codegen.dto;
 
+import java.util.Objects;
+
 public class Pair {
     private final String key;
     private final Object value;
@@ -17,6 +19,19 @@ public class Pair {
         return value;
     }
 
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final Pair pair = (Pair) o;
+        return Objects.equals(key, pair.key) && Objects.equals(value, pair.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(key, value);
+    }
+
     @Override
     public String toString() {
         return key + "=" + String.valueOf(value);
@@ -1,29 +1,289 @@
 package cz.tomasdvorak.codegen.dto;
 
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 
+/**
+ * One section of the config, an ordered list of key-value assignments. Values are stored in parallel arrays, primitive
+ * values unboxed in a long (doubles as their bits), strings in a separate array allocated only if the section
+ * contains any. Keys are indexed on the first lookup.
+ *
+ * Build it by the {@link Builder}, which accepts primitive values directly. The older {@link Pair} based API is kept
+ * as a view, see {@link #getValues()}.
+ */
 public class Section {
     private final String name;
-    private final List<Pair> values;
+    private final int size;
+    private final String[] keys;
+    private final byte[] types;
+    private final long[] primitives;
+    private final String[] strings;
+
+    /**
+     * Open addressing hash table of key positions (position + 1, 0 is free), built on the first {@link #indexOf(String)}
+     */
+    private volatile int[] index;
 
     public Section(final String name, final List<Pair> values) {
-        this.name = name;
-        this.values = values;
+        this(fromPairs(name, values));
+    }
+
+    private Section(final Builder builder) {
+        this.name = builder.name;
+        this.size = builder.size;
+        this.keys = Arrays.copyOf(builder.keys, size);
+        this.types = Arrays.copyOf(builder.types, size);
+        this.primitives = Arrays.copyOf(builder.primitives, size);
+        this.strings = builder.strings == null ? null : Arrays.copyOf(builder.strings, size);
+    }
+
+    private static Builder fromPairs(final String name, final List<Pair> values) {
+        final Builder builder = new Builder(name, values.size());
+        values.forEach(pair -> builder.add(pair.getKey(), pair.getValue()));
+        return builder;
     }
 
     public String getName() {
         return name;
     }
 
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public String getKey(final int i) {
+        return keys[checkIndex(i)];
+    }
+
+    public ValueType getType(final int i) {
+        return ValueType.VALUES[types[checkIndex(i)]];
+    }
+
+    public int getInt(final int i) {
+        return (int) primitive(i, ValueType.INT);
+    }
+
+    public long getLong(final int i) {
+        return primitive(i, ValueType.LONG);
+    }
+
+    public double getDouble(final int i) {
+        return Double.longBitsToDouble(primitive(i, ValueType.DOUBLE));
+    }
+
+    public boolean getBoolean(final int i) {
+        return primitive(i, ValueType.BOOLEAN) != 0;
+    }
+
+    public String getString(final int i) {
+        checkType(i, ValueType.STRING);
+        return strings[i];
+    }
+
+    /**
+     * Value boxed to its wrapper type
+     */
+    public Object getValue(final int i) {
+        switch (getType(i)) {
+            case INT:
+                return getInt(i);
+            case LONG:
+                return getLong(i);
+            case DOUBLE:
+                return getDouble(i);
+            case BOOLEAN:
+                return getBoolean(i);
+            default:
+                return strings[i];
+        }
+    }
+
+    /**
+     * @return position of the key, or -1 if the section doesn't contain it
+     */
+    public int indexOf(final String key) {
+        int[] table = index;
+        if (table == null) {
+            index = table = buildIndex();
+        }
+        final int mask = table.length - 1;
+        for (int slot = key.hashCode() & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[table[slot] - 1].equals(key)) {
+                return table[slot] - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Assignments as {@link Pair}s. The list is a view, pairs are created on access.
+     */
     public List<Pair> getValues() {
-        return values;
+        return new AbstractList<Pair>() {
+            @Override
+            public Pair get(final int i) {
+                return new Pair(getKey(i), getValue(i));
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private int[] buildIndex() {
+        final int[] table = new int[Integer.highestOneBit(Math.max(size, 1) * 2) * 2];
+        final int mask = table.length - 1;
+        for (int i = 0; i < size; i++) {
+            int slot = keys[i].hashCode() & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = i + 1;
+        }
+        return table;
+    }
+
+    private long primitive(final int i, final ValueType type) {
+        checkType(i, type);
+        return primitives[i];
+    }
+
+    private void checkType(final int i, final ValueType type) {
+        if (types[checkIndex(i)] != type.ordinal()) {
+            throw new IllegalStateException("Value " + keys[i] + " of section " + name + " is " + getType(i) + ", not " + type);
+        }
+    }
+
+    private int checkIndex(final int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index " + i + ", size " + size);
+        }
+        return i;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final Section section = (Section) o;
+        return Objects.equals(name, section.name)
+                && Arrays.equals(keys, section.keys)
+                && Arrays.equals(types, section.types)
+                && Arrays.equals(primitives, section.primitives)
+                && Arrays.equals(strings, section.strings);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, Arrays.hashCode(keys), Arrays.hashCode(primitives), Arrays.hashCode(strings));
     }
 
     @Override
     public String toString() {
         return "{" +
                 "name='" + name + '\'' +
-                ", values=" + values +
+                ", values=" + getValues() +
                 '}';
     }
+
+    /**
+     * Collects assignments of one section. Storage grows as needed, pass the expected number of assignments
+     * if known to avoid copying.
+     */
+    public static class Builder {
+        private final String name;
+        private int size;
+        private String[] keys;
+        private byte[] types;
+        private long[] primitives;
+        private String[] strings;
+
+        public Builder(final String name) {
+            this(name, 8);
+        }
+
+        public Builder(final String name, final int expectedSize) {
+            this.name = name;
+            final int capacity = Math.max(expectedSize, 1);
+            this.keys = new String[capacity];
+            this.types = new byte[capacity];
+            this.primitives = new long[capacity];
+        }
+
+        public Builder add(final String key, final int value) {
+            return add(key, ValueType.INT, value);
+        }
+
+        public Builder add(final String key, final long value) {
+            return add(key, ValueType.LONG, value);
+        }
+
+        public Builder add(final String key, final double value) {
+            return add(key, ValueType.DOUBLE, Double.doubleToLongBits(value));
+        }
+
+        public Builder add(final String key, final boolean value) {
+            return add(key, ValueType.BOOLEAN, value ? 1 : 0);
+        }
+
+        public Builder add(final String key, final String value) {
+            add(key, ValueType.STRING, 0);
+            if (strings == null) {
+                strings = new String[keys.length];
+            }
+            strings[size - 1] = value;
+            return this;
+        }
+
+        /**
+         * Add a boxed value, one of Integer, Long, Double, Boolean or String
+         */
+        public Builder add(final String key, final Object value) {
+            if (value instanceof Integer) {
+                return add(key, ((Integer) value).intValue());
+            } else if (value instanceof Long) {
+                return add(key, ((Long) value).longValue());
+            } else if (value instanceof Double) {
+                return add(key, ((Double) value).doubleValue());
+            } else if (value instanceof Boolean) {
+                return add(key, ((Boolean) value).booleanValue());
+            } else if (value instanceof String) {
+                return add(key, (String) value);
+            }
+            throw new IllegalArgumentException("Unsupported value " + value + " of key " + key);
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public Section build() {
+            return new Section(this);
+        }
+
+        private Builder add(final String key, final ValueType type, final long primitive) {
+            if (size == keys.length) {
+                final int capacity = size * 2;
+                keys = Arrays.copyOf(keys, capacity);
+                types = Arrays.copyOf(types, capacity);
+                primitives = Arrays.copyOf(primitives, capacity);
+                if (strings != null) {
+                    strings = Arrays.copyOf(strings, capacity);
+                }
+            }
+            keys[size] = key;
+            types[size] = (byte) type.ordinal();
+            primitives[size] = primitive;
+            size++;
+            return this;
+        }
+    }
 }
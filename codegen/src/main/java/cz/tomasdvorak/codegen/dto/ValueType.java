@@ -0,0 +1,27 @@
+package cz.tomasdvorak.codegen.dto;
+
+/**
+ * Type of a config value, stored as a tag next to the value in the {@link Section}
+ */
+public enum ValueType {
+    INT("int"),
+    LONG("long"),
+    DOUBLE("double"),
+    BOOLEAN("boolean"),
+    STRING("String");
+
+    static final ValueType[] VALUES = values();
+
+    private final String javaType;
+
+    ValueType(final String javaType) {
+        this.javaType = javaType;
+    }
+
+    /**
+     * Type of the generated constant
+     */
+    public String getJavaType() {
+        return javaType;
+    }
+}
@@ -0,0 +1,136 @@
+package cz.tomasdvorak.codegen.expression;
+
+import java.util.Objects;
+
+/**
+ * Arithmetic (+ - * / %), string concatenation (+ with a String operand), comparison (== != &lt; &gt; &lt;= &gt;=) and
+ * logical (&amp;&amp; ||) operations. Numbers are promoted to the wider type of both operands, as in Java.
+ */
+public class BinaryOperation implements Expression {
+
+    private final String operator;
+    private final Expression left;
+    private final Expression right;
+
+    public BinaryOperation(final String operator, final Object left, final Object right) {
+        this.operator = operator;
+        this.left = Expression.of(left);
+        this.right = Expression.of(right);
+    }
+
+    @Override
+    public Object evaluate(final Scope scope) throws EvaluationException {
+        final Object a = left.evaluate(scope);
+        final Object b = right.evaluate(scope);
+        switch (operator) {
+            case "&&":
+            case "||":
+                if (a instanceof Boolean && b instanceof Boolean) {
+                    return operator.equals("&&") ? (Boolean) a && (Boolean) b : (Boolean) a || (Boolean) b;
+                }
+                break;
+            case "==":
+            case "!=":
+                if (Operands.isNumber(a) && Operands.isNumber(b)) {
+                    return (compare(a, b) == 0) == operator.equals("==");
+                }
+                if (a.getClass() == b.getClass()) {
+                    return Objects.equals(a, b) == operator.equals("==");
+                }
+                break;
+            case "<":
+            case ">":
+            case "<=":
+            case ">=":
+                if (Operands.isNumber(a) && Operands.isNumber(b)) {
+                    final int comparison = compare(a, b);
+                    switch (operator) {
+                        case "<":
+                            return comparison < 0;
+                        case ">":
+                            return comparison > 0;
+                        case "<=":
+                            return comparison <= 0;
+                        default:
+                            return comparison >= 0;
+                    }
+                }
+                break;
+            case "+":
+                if (a instanceof String || b instanceof String) {
+                    return String.valueOf(a) + b;
+                }
+                // falls through to arithmetic
+            default:
+                if (Operands.isNumber(a) && Operands.isNumber(b)) {
+                    return arithmetic(a, b);
+                }
+        }
+        throw new EvaluationException("Operator " + operator + " can't be applied to " + Operands.typeOf(a) + " and " + Operands.typeOf(b));
+    }
+
+    private Object arithmetic(final Object a, final Object b) throws EvaluationException {
+        if (a instanceof Double || b instanceof Double) {
+            final double x = ((Number) a).doubleValue();
+            final double y = ((Number) b).doubleValue();
+            switch (operator) {
+                case "+":
+                    return x + y;
+                case "-":
+                    return x - y;
+                case "*":
+                    return x * y;
+                case "/":
+                    return x / y;
+                default:
+                    return x % y;
+            }
+        }
+        if (a instanceof Long || b instanceof Long) {
+            final long x = ((Number) a).longValue();
+            final long y = ((Number) b).longValue();
+            return Operands.exact(() -> {
+                switch (operator) {
+                    case "+":
+                        return Math.addExact(x, y);
+                    case "-":
+                        return Math.subtractExact(x, y);
+                    case "*":
+                        return Math.multiplyExact(x, y);
+                    case "/":
+                        return x == Long.MIN_VALUE && y == -1 ? Math.negateExact(x) : x / y;
+                    default:
+                        return x % y;
+                }
+            }, this);
+        }
+        final int x = (Integer) a;
+        final int y = (Integer) b;
+        return Operands.exact(() -> {
+            switch (operator) {
+                case "+":
+                    return Math.addExact(x, y);
+                case "-":
+                    return Math.subtractExact(x, y);
+                case "*":
+                    return Math.multiplyExact(x, y);
+                case "/":
+                    return x == Integer.MIN_VALUE && y == -1 ? Math.negateExact(x) : x / y;
+                default:
+                    return x % y;
+            }
+        }, this);
+    }
+
+    private static int compare(final Object a, final Object b) {
+        if (a instanceof Double || b instanceof Double) {
+            return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+        }
+        return Long.compare(((Number) a).longValue(), ((Number) b).longValue());
+    }
+
+    @Override
+    public String toString() {
+        return "(" + left + " " + operator + " " + right + ")";
+    }
+}
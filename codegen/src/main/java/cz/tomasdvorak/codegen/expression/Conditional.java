@@ -0,0 +1,45 @@
+package cz.tomasdvorak.codegen.expression;
+
+/**
+ * Ternary condition ? a : b over a boolean. Both branches are evaluated and have to be of the same type, or both
+ * numbers, promoted to the wider type as in Java.
+ */
+public class Conditional implements Expression {
+
+    private final Expression condition;
+    private final Expression whenTrue;
+    private final Expression whenFalse;
+
+    public Conditional(final Object condition, final Object whenTrue, final Object whenFalse) {
+        this.condition = Expression.of(condition);
+        this.whenTrue = Expression.of(whenTrue);
+        this.whenFalse = Expression.of(whenFalse);
+    }
+
+    @Override
+    public Object evaluate(final Scope scope) throws EvaluationException {
+        final Object test = condition.evaluate(scope);
+        if (!(test instanceof Boolean)) {
+            throw new EvaluationException("Condition " + condition + " has to be boolean, found " + Operands.typeOf(test));
+        }
+        final Object a = whenTrue.evaluate(scope);
+        final Object b = whenFalse.evaluate(scope);
+        final Object result = (Boolean) test ? a : b;
+        if (a.getClass() == b.getClass()) {
+            return result;
+        }
+        if (Operands.isNumber(a) && Operands.isNumber(b)) {
+            final Number number = (Number) result;
+            if (a instanceof Double || b instanceof Double) {
+                return number.doubleValue();
+            }
+            return number.longValue();
+        }
+        throw new EvaluationException("Branches of " + this + " have different types " + Operands.typeOf(a) + " and " + Operands.typeOf(b));
+    }
+
+    @Override
+    public String toString() {
+        return "(" + condition + " ? " + whenTrue + " : " + whenFalse + ")";
+    }
+}
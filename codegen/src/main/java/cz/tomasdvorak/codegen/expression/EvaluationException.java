@@ -0,0 +1,8 @@
+package cz.tomasdvorak.codegen.expression;
+
+public class EvaluationException extends Exception {
+
+    public EvaluationException(final String message) {
+        super(message);
+    }
+}
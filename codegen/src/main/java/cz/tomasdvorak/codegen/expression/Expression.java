@@ -0,0 +1,18 @@
+package cz.tomasdvorak.codegen.expression;
+
+/**
+ * Value derived from literals and other keys of the config, evaluated during the generation into a plain constant.
+ * Values are boxed Integer, Long, Double, Boolean or String, with semantics of Java constant expressions, except that
+ * integer overflow, division by zero and non-finite doubles are errors.
+ */
+public interface Expression {
+
+    Object evaluate(Scope scope) throws EvaluationException;
+
+    /**
+     * Operand of an operation, either a nested expression or a literal value
+     */
+    static Expression of(final Object operand) {
+        return operand instanceof Expression ? (Expression) operand : new Literal(operand);
+    }
+}
@@ -0,0 +1,20 @@
+package cz.tomasdvorak.codegen.expression;
+
+public class Literal implements Expression {
+
+    private final Object value;
+
+    public Literal(final Object value) {
+        this.value = value;
+    }
+
+    @Override
+    public Object evaluate(final Scope scope) {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return value instanceof String ? "\"" + value + "\"" : String.valueOf(value);
+    }
+}
@@ -0,0 +1,37 @@
+package cz.tomasdvorak.codegen.expression;
+
+import java.util.function.Supplier;
+
+final class Operands {
+
+    private Operands() {
+    }
+
+    static String typeOf(final Object value) {
+        if (value instanceof Integer) {
+            return "int";
+        } else if (value instanceof Long) {
+            return "long";
+        } else if (value instanceof Double) {
+            return "double";
+        } else if (value instanceof Boolean) {
+            return "boolean";
+        }
+        return "String";
+    }
+
+    static boolean isNumber(final Object value) {
+        return value instanceof Integer || value instanceof Long || value instanceof Double;
+    }
+
+    /**
+     * Integer arithmetic, overflow and division by zero are reported as evaluation errors
+     */
+    static Object exact(final Supplier<Object> operation, final Expression expression) throws EvaluationException {
+        try {
+            return operation.get();
+        } catch (ArithmeticException e) {
+            throw new EvaluationException("Invalid " + expression + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package cz.tomasdvorak.codegen.expression;
+
+/**
+ * Value of another key, in the same section (KEY) or in another one (Section.KEY)
+ */
+public class Reference implements Expression {
+
+    private final String section;
+    private final String key;
+
+    public Reference(final String section, final String key) {
+        this.section = section;
+        this.key = key;
+    }
+
+    @Override
+    public Object evaluate(final Scope scope) throws EvaluationException {
+        return scope.get(section, key);
+    }
+
+    @Override
+    public String toString() {
+        return section == null ? key : section + "." + key;
+    }
+}
@@ -0,0 +1,12 @@
+package cz.tomasdvorak.codegen.expression;
+
+/**
+ * Values of keys referenced by expressions
+ */
+public interface Scope {
+
+    /**
+     * @param section name of the section, null for the section of the evaluated expression
+     */
+    Object get(String section, String key) throws EvaluationException;
+}
@@ -0,0 +1,38 @@
+package cz.tomasdvorak.codegen.expression;
+
+/**
+ * Negation of a number (-) or of a boolean (!)
+ */
+public class UnaryOperation implements Expression {
+
+    private final char operator;
+    private final Expression operand;
+
+    public UnaryOperation(final char operator, final Object operand) {
+        this.operator = operator;
+        this.operand = Expression.of(operand);
+    }
+
+    @Override
+    public Object evaluate(final Scope scope) throws EvaluationException {
+        final Object value = operand.evaluate(scope);
+        if (operator == '!' && value instanceof Boolean) {
+            return !(Boolean) value;
+        }
+        if (operator == '-') {
+            if (value instanceof Integer) {
+                return Operands.exact(() -> Math.negateExact((Integer) value), this);
+            } else if (value instanceof Long) {
+                return Operands.exact(() -> Math.negateExact((Long) value), this);
+            } else if (value instanceof Double) {
+                return -(Double) value;
+            }
+        }
+        throw new EvaluationException("Operator " + operator + " can't be applied to " + Operands.typeOf(value));
+    }
+
+    @Override
+    public String toString() {
+        return operator + "(" + operand + ")";
+    }
+}
@@ -0,0 +1,71 @@
+package cz.tomasdvorak.codegen.generator;
+
+import cz.tomasdvorak.codegen.dto.Section;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Compiles a section directly to the class file, the same javac would produce from the source of the
+ * {@link StreamingSourceEmitter}. Every field carries the ConstantValue attribute, so the constants stay compile-time
+ * constants and are inlined into the code using them.
+ */
+public class BytecodeEmitter {
+
+    private final String internalPackage;
+
+    public BytecodeEmitter(final String targetPackage) {
+        this.internalPackage = targetPackage.replace('.', '/');
+    }
+
+    public byte[] emit(final Section section) {
+        final ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER,
+                internalPackage + "/" + section.getName(), null, "java/lang/Object", null);
+        writer.visitSource(section.getName() + ".java", null);
+
+        for (int i = 0; i < section.size(); i++) {
+            writer.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL,
+                    section.getKey(i), descriptor(section, i), null, constantValue(section, i)).visitEnd();
+        }
+
+        // default constructor, as added by javac to a class without one
+        final MethodVisitor constructor = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(Opcodes.ALOAD, 0);
+        constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        constructor.visitInsn(Opcodes.RETURN);
+        constructor.visitMaxs(1, 1);
+        constructor.visitEnd();
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static String descriptor(final Section section, final int i) {
+        switch (section.getType(i)) {
+            case INT:
+                return "I";
+            case LONG:
+                return "J";
+            case DOUBLE:
+                return "D";
+            case BOOLEAN:
+                return "Z";
+            default:
+                return "Ljava/lang/String;";
+        }
+    }
+
+    /**
+     * Booleans are int constants in the class file
+     */
+    private static Object constantValue(final Section section, final int i) {
+        switch (section.getType(i)) {
+            case BOOLEAN:
+                return section.getBoolean(i) ? 1 : 0;
+            default:
+                return section.getValue(i);
+        }
+    }
+}
@@ -1,13 +1,14 @@
 package cz.tomasdvorak.codegen.generator;
 
-import cz.tomasdvorak.codegen.dto.Pair;
 import cz.tomasdvorak.codegen.dto.Config;
 import cz.tomasdvorak.codegen.dto.Section;
-import cz.tomasdvorak.codegen.generator.utils.BoxingUtils;
+import cz.tomasdvorak.codegen.dto.ValueType;
 import org.jboss.forge.roaster.Roaster;
 import org.jboss.forge.roaster.model.source.FieldSource;
 import org.jboss.forge.roaster.model.source.JavaClassSource;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -16,7 +17,7 @@ import java.util.stream.Collectors;
 
 import static org.jboss.forge.roaster._shade.org.eclipse.jdt.internal.compiler.parser.Parser.name;
 
-public class ClassesGenerator {
+public class ClassesGenerator implements SourceEmitter {
 
     /**
      * All generated classes will be located in one package
@@ -31,6 +32,11 @@ public class ClassesGenerator {
        return config.getSections().stream().map(this::sectionToClass).collect(Collectors.toList());
     }
 
+    @Override
+    public void emit(final Section section, final Writer writer) throws IOException {
+        writer.write(sectionToClass(section).toString());
+    }
+
     /**
      * Convert configuration section to a java class, which contains all key=value pairs as constants
      */
@@ -40,25 +46,24 @@ public class ClassesGenerator {
         javaClassSource.setName(section.getName());
         javaClassSource.setFinal(true);
 
-        section.getValues().forEach(assignment -> {
+        for (int i = 0; i < section.size(); i++) {
+            final ValueType type = section.getType(i);
             final FieldSource<JavaClassSource> field = javaClassSource.addField()
-                    .setType(getPrimitiveType(assignment))
-                    .setName(assignment.getKey())
+                    .setType(type.getJavaType())
+                    .setName(section.getKey(i))
                     .setPublic()
                     .setStatic(true)
                     .setFinal(true);
-            if(assignment.getValue() instanceof String) {
-                field.setStringInitializer(String.valueOf(assignment.getValue()));
+            if(type == ValueType.STRING) {
+                field.setStringInitializer(section.getString(i));
+            } else if (type == ValueType.LONG) {
+                field.setLiteralInitializer(section.getLong(i) + "L");
             } else {
-                field.setLiteralInitializer(String.valueOf(assignment.getValue()));
+                field.setLiteralInitializer(String.valueOf(section.getValue(i)));
             }
-        });
+        }
 
         return javaClassSource;
     }
 
-    private Class<?> getPrimitiveType(final Pair assignment) {
-        return BoxingUtils.toPrimitiveIfAvailable(assignment.getValue().getClass());
-    }
-
 }
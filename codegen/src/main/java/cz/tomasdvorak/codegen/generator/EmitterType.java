@@ -0,0 +1,41 @@
+package cz.tomasdvorak.codegen.generator;
+
+/**
+ * Available {@link SourceEmitter} implementations. ROASTER and STREAMING produce identical source code, RELOADABLE
+ * generates accessor methods instead of constant fields.
+ */
+public enum EmitterType {
+    /**
+     * Reference implementation, builds the Roaster model of the class, see {@link ClassesGenerator}
+     */
+    ROASTER {
+        @Override
+        public SourceEmitter create(final String targetPackage) {
+            return new ClassesGenerator(targetPackage);
+        }
+    },
+
+    /**
+     * Writes the source directly, see {@link StreamingSourceEmitter}
+     */
+    STREAMING {
+        @Override
+        public SourceEmitter create(final String targetPackage) {
+            return new StreamingSourceEmitter(targetPackage);
+        }
+    },
+
+    /**
+     * Values can be replaced at runtime, see {@link ReloadableSourceEmitter}. Unlike the constants classes of the
+     * other emitters, generated classes use {@link cz.tomasdvorak.codegen.runtime.ReloadableSection}, so the codegen
+     * jar has to be a runtime dependency of the project.
+     */
+    RELOADABLE {
+        @Override
+        public SourceEmitter create(final String targetPackage) {
+            return new ReloadableSourceEmitter(targetPackage);
+        }
+    };
+
+    public abstract SourceEmitter create(String targetPackage);
+}
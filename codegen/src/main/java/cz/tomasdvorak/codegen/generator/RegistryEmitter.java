@@ -0,0 +1,335 @@
+package cz.tomasdvorak.codegen.generator;
+
+import cz.tomasdvorak.codegen.dto.Config;
+import cz.tomasdvorak.codegen.dto.Section;
+import cz.tomasdvorak.codegen.dto.ValueType;
+
+import javax.lang.model.SourceVersion;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes the registry class of the whole config. It looks up constants by section and key name without reflection and
+ * without allocation - string switches select the section and the key, and the constant itself is inlined from the
+ * constants class. Every section and value type gets its own method.
+ *
+ * A method of the class file is limited to 64 KB of code, so switches and snapshots longer than {@link #CHUNK_SIZE}
+ * entries are split into chained methods {@code name$1}, {@code name$2}, ... ({@code $} never appears in config names).
+ * The constant pool is limited to 65535 entries, a config which would exceed it is rejected before anything is written.
+ *
+ * The registry also holds an immutable snapshot of all values, built once when the registry class is initialized.
+ */
+public class RegistryEmitter {
+
+    /**
+     * Cases of one switch method or values of one snapshot method, far below the method size limit
+     */
+    static final int CHUNK_SIZE = 1000;
+
+    private static final int MAX_CONSTANT_POOL = 65535;
+
+    /**
+     * Types referenced by the registry by simple name, a section class of the same name would shadow them
+     */
+    private static final Set<String> USED_TYPES = new HashSet<>(Arrays.asList(
+            "String", "Object", "IllegalArgumentException", "Collections", "LinkedHashMap", "Map"));
+
+    /**
+     * Parameters and arguments of the section lookups and of the key lookups in one section
+     */
+    private static final String SECTION_PARAMETERS = "final String section, final String key";
+    private static final String SECTION_ARGUMENTS = "section, key";
+    private static final String KEY_PARAMETERS = "final String key";
+    private static final String KEY_ARGUMENTS = "key";
+
+    private final String targetPackage;
+    private final String className;
+
+    public RegistryEmitter(final String targetPackage, final String className) {
+        if (!isClassName(className)) {
+            throw new IllegalArgumentException("Registry class name " + className + " is not a valid Java identifier");
+        }
+        this.targetPackage = targetPackage;
+        this.className = className;
+    }
+
+    /**
+     * Simple class name, without package
+     */
+    public static boolean isClassName(final String name) {
+        return name != null && SourceVersion.isIdentifier(name) && !SourceVersion.isKeyword(name);
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public void emit(final Config config, final Writer writer) throws IOException {
+        for (Section section : config.getSections()) {
+            if (section.getName().equals(className) || USED_TYPES.contains(section.getName())) {
+                throw new IllegalArgumentException("Section " + section.getName() + " conflicts with a type used by the registry " + className);
+            }
+        }
+        final long constants = estimateConstantPool(config);
+        if (constants > MAX_CONSTANT_POOL) {
+            throw new IllegalArgumentException("Config is too large for the registry " + className + ", it needs up to "
+                    + constants + " constant pool entries, the class file limit is " + MAX_CONSTANT_POOL);
+        }
+        writer.write("package ");
+        writer.write(targetPackage);
+        writer.write(";\n\nimport java.util.Collections;\nimport java.util.LinkedHashMap;\nimport java.util.Map;\n\n");
+        writer.write("public final class ");
+        writer.write(className);
+        writer.write(" {\n\n");
+        writer.write("\tprivate static final Map<String, Map<String, Object>> SNAPSHOT = snapshotValues();\n\n");
+        writer.write("\tprivate ");
+        writer.write(className);
+        writer.write("() {\n\t}\n\n");
+
+        writeContains(config, writer);
+        writeGetter(config, "int", "getInt", "intOf", EnumSet.of(ValueType.INT), writer);
+        writeGetter(config, "long", "getLong", "longOf", EnumSet.of(ValueType.INT, ValueType.LONG), writer);
+        writeGetter(config, "double", "getDouble", "doubleOf", EnumSet.of(ValueType.INT, ValueType.LONG, ValueType.DOUBLE), writer);
+        writeGetter(config, "boolean", "getBoolean", "booleanOf", EnumSet.of(ValueType.BOOLEAN), writer);
+        writeGetter(config, "String", "getString", "stringOf", EnumSet.of(ValueType.STRING), writer);
+        writeSnapshot(config, writer);
+
+        writer.write("\tprivate static IllegalArgumentException missing(final String section, final String key, final String type) {\n");
+        writer.write("\t\treturn new IllegalArgumentException(\"No \" + type + \" constant \" + section + \".\" + key);\n");
+        writer.write("\t}\n}");
+    }
+
+    private void writeContains(final Config config, final Writer writer) throws IOException {
+        final List<String> sections = new ArrayList<>();
+        final List<String> calls = new ArrayList<>();
+        for (Section section : config.getSections()) {
+            sections.add(section.getName());
+            calls.add("contains" + section.getName() + "(key)");
+        }
+        writeSwitch("public", "boolean", "contains", SECTION_PARAMETERS, SECTION_ARGUMENTS, "section", sections, calls, "return false", writer);
+
+        for (Section section : config.getSections()) {
+            final List<String> keys = new ArrayList<>();
+            for (int i = 0; i < section.size(); i++) {
+                keys.add(section.getKey(i));
+            }
+            writeSwitch("private", "boolean", "contains" + section.getName(), KEY_PARAMETERS, KEY_ARGUMENTS, "key", keys, null, "return false", writer);
+        }
+    }
+
+    /**
+     * Getter of one java type, accepting all value types which widen to it
+     */
+    private void writeGetter(final Config config, final String javaType, final String name, final String sectionPrefix, final Set<ValueType> types, final Writer writer) throws IOException {
+        final List<String> sections = new ArrayList<>();
+        final List<String> calls = new ArrayList<>();
+        for (Section section : config.getSections()) {
+            if (hasType(section, types)) {
+                sections.add(section.getName());
+                calls.add(sectionPrefix + section.getName() + "(key)");
+            }
+        }
+        writeSwitch("public", javaType, name, SECTION_PARAMETERS, SECTION_ARGUMENTS, "section", sections, calls,
+                "throw missing(section, key, \"" + javaType + "\")", writer);
+
+        for (Section section : config.getSections()) {
+            if (!hasType(section, types)) {
+                continue;
+            }
+            final List<String> keys = new ArrayList<>();
+            final List<String> constants = new ArrayList<>();
+            for (int i = 0; i < section.size(); i++) {
+                if (types.contains(section.getType(i))) {
+                    keys.add(section.getKey(i));
+                    constants.add(constant(section, i));
+                }
+            }
+            writeSwitch("private", javaType, sectionPrefix + section.getName(), KEY_PARAMETERS, KEY_ARGUMENTS, "key", keys, constants,
+                    "throw missing(\"" + section.getName() + "\", key, \"" + javaType + "\")", writer);
+        }
+    }
+
+    /**
+     * String switch returning the value of the matched case, or the same value for all cases if values are null.
+     * Every {@link #CHUNK_SIZE} cases continue in the next method, called from the default branch.
+     */
+    private static void writeSwitch(final String visibility, final String javaType, final String name, final String parameters,
+                                    final String arguments, final String selector, final List<String> cases,
+                                    final List<String> values, final String otherwise, final Writer writer) throws IOException {
+        final int chunks = Math.max(1, (cases.size() + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            writer.write('\t');
+            writer.write(chunk == 0 ? visibility : "private");
+            writer.write(" static ");
+            writer.write(javaType);
+            writer.write(' ');
+            writer.write(chunkName(name, chunk));
+            writer.write('(');
+            writer.write(parameters);
+            writer.write(") {\n\t\tswitch (");
+            writer.write(selector);
+            writer.write(") {\n");
+            final int end = Math.min(cases.size(), (chunk + 1) * CHUNK_SIZE);
+            for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                writeCase(cases.get(i), writer);
+                if (values != null) {
+                    writer.write("\t\t\t\treturn ");
+                    writer.write(values.get(i));
+                    writer.write(";\n");
+                }
+            }
+            if (values == null && end > chunk * CHUNK_SIZE) {
+                writer.write("\t\t\t\treturn true;\n");
+            }
+            writer.write("\t\t\tdefault:\n\t\t\t\t");
+            if (chunk + 1 < chunks) {
+                writer.write("return ");
+                writer.write(chunkName(name, chunk + 1));
+                writer.write('(');
+                writer.write(arguments);
+                writer.write(')');
+            } else {
+                writer.write(otherwise);
+            }
+            writer.write(";\n\t\t}\n\t}\n\n");
+        }
+    }
+
+    private void writeSnapshot(final Config config, final Writer writer) throws IOException {
+        writer.write("\t/**\n\t * Immutable values of all sections and keys, in order of the config\n\t */\n");
+        writer.write("\tpublic static Map<String, Map<String, Object>> snapshot() {\n\t\treturn SNAPSHOT;\n\t}\n\n");
+
+        final List<String> sections = new ArrayList<>();
+        final List<String> snapshots = new ArrayList<>();
+        for (Section section : config.getSections()) {
+            sections.add(section.getName());
+            snapshots.add("snapshot" + section.getName() + "()");
+        }
+        writeMap("Map<String, Object>", "snapshotValues", "sections", sections, snapshots, writer);
+
+        for (Section section : config.getSections()) {
+            final List<String> keys = new ArrayList<>();
+            final List<String> constants = new ArrayList<>();
+            for (int i = 0; i < section.size(); i++) {
+                keys.add(section.getKey(i));
+                constants.add(constant(section, i));
+            }
+            writeMap("Object", "snapshot" + section.getName(), "values", keys, constants, writer);
+        }
+    }
+
+    /**
+     * Method returning an immutable map of the given entries, filled by one method per {@link #CHUNK_SIZE} entries
+     */
+    private static void writeMap(final String valueType, final String name, final String variable, final List<String> keys,
+                                 final List<String> values, final Writer writer) throws IOException {
+        final String mapType = "Map<String, " + valueType + ">";
+        final int chunks = (keys.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        writer.write("\tprivate static ");
+        writer.write(mapType);
+        writer.write(' ');
+        writer.write(name);
+        writer.write("() {\n\t\tfinal ");
+        writer.write(mapType);
+        writer.write(' ');
+        writer.write(variable);
+        writer.write(" = new LinkedHashMap<>();\n");
+        for (int chunk = 1; chunk <= chunks; chunk++) {
+            writer.write("\t\t");
+            writer.write(chunkName(name, chunk));
+            writer.write('(');
+            writer.write(variable);
+            writer.write(");\n");
+        }
+        writer.write("\t\treturn Collections.unmodifiableMap(");
+        writer.write(variable);
+        writer.write(");\n\t}\n\n");
+
+        for (int chunk = 1; chunk <= chunks; chunk++) {
+            writer.write("\tprivate static void ");
+            writer.write(chunkName(name, chunk));
+            writer.write("(final ");
+            writer.write(mapType);
+            writer.write(' ');
+            writer.write(variable);
+            writer.write(") {\n");
+            final int end = Math.min(keys.size(), chunk * CHUNK_SIZE);
+            for (int i = (chunk - 1) * CHUNK_SIZE; i < end; i++) {
+                writer.write("\t\t");
+                writer.write(variable);
+                writer.write(".put(\"");
+                writer.write(keys.get(i));
+                writer.write("\", ");
+                writer.write(values.get(i));
+                writer.write(");\n");
+            }
+            writer.write("\t}\n\n");
+        }
+    }
+
+    private static String chunkName(final String name, final int chunk) {
+        return chunk == 0 ? name : name + "$" + chunk;
+    }
+
+    /**
+     * Upper bound of the constant pool size: every key and section name is a string constant (2 entries), values are
+     * constants of their own unless they fit an instruction operand, and every generated method is referenced (4
+     * entries with its name and descriptor). Shared names and values are counted repeatedly, the real pool is smaller.
+     */
+    private static long estimateConstantPool(final Config config) {
+        long entries = 200;
+        for (Section section : config.getSections()) {
+            final long chunks = 1 + section.size() / CHUNK_SIZE;
+            // contains, five getters and the snapshot
+            entries += 2 + 7 * chunks * 4;
+            for (int i = 0; i < section.size(); i++) {
+                entries += 2 + valueEntries(section, i);
+            }
+        }
+        return entries;
+    }
+
+    private static int valueEntries(final Section section, final int i) {
+        switch (section.getType(i)) {
+            case BOOLEAN:
+                return 0;
+            case INT:
+                final int value = section.getInt(i);
+                return value >= Short.MIN_VALUE && value <= Short.MAX_VALUE ? 0 : 1;
+            default:
+                // long and double take two slots, string a string entry and its utf8 content
+                return 2;
+        }
+    }
+
+    /**
+     * Reference to the constant, javac inlines its value
+     */
+    private static String constant(final Section section, final int i) {
+        return section.getName() + "." + section.getKey(i);
+    }
+
+    /**
+     * Names are java identifiers, no escaping needed
+     */
+    private static void writeCase(final String name, final Writer writer) throws IOException {
+        writer.write("\t\t\tcase \"");
+        writer.write(name);
+        writer.write("\":\n");
+    }
+
+    private static boolean hasType(final Section section, final Set<ValueType> types) {
+        for (int i = 0; i < section.size(); i++) {
+            if (types.contains(section.getType(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,89 @@
+package cz.tomasdvorak.codegen.generator;
+
+import cz.tomasdvorak.codegen.dto.Section;
+import cz.tomasdvorak.codegen.dto.ValueType;
+import cz.tomasdvorak.codegen.runtime.ReloadableSection;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes a class exposing every key through a static accessor method instead of a constant field. Values are held by
+ * the {@link ReloadableSection}, so they can be replaced at runtime without rebuild, while the JIT still treats them as
+ * constants.
+ */
+public class ReloadableSourceEmitter implements SourceEmitter {
+
+    /**
+     * Public field holding the {@link ReloadableSection}, used to reload the values
+     */
+    public static final String SECTION_FIELD = "RELOADABLE";
+
+    private final String targetPackage;
+
+    public ReloadableSourceEmitter(final String targetPackage) {
+        this.targetPackage = targetPackage;
+    }
+
+    @Override
+    public void emit(final Section section, final Writer writer) throws IOException {
+        if (section.indexOf(SECTION_FIELD) >= 0) {
+            throw new IllegalArgumentException("Key " + section.getName() + "." + SECTION_FIELD + " conflicts with the reloadable section field");
+        }
+        writer.write("package ");
+        writer.write(targetPackage);
+        writer.write(";\n\nimport ");
+        writer.write(ReloadableSection.class.getName());
+        writer.write(";\nimport java.lang.invoke.MethodHandle;\n\npublic final class ");
+        writer.write(section.getName());
+        writer.write(" {\n\n\tpublic static final ReloadableSection ");
+        writer.write(SECTION_FIELD);
+        writer.write(" = new ReloadableSection(\"");
+        writer.write(section.getName());
+        writer.write("\",\n\t\t\tnew String[]{");
+        for (int i = 0; i < section.size(); i++) {
+            if (i > 0) {
+                writer.write(", ");
+            }
+            writer.write('"');
+            writer.write(section.getKey(i));
+            writer.write('"');
+        }
+        writer.write("},\n\t\t\tnew Object[]{");
+        for (int i = 0; i < section.size(); i++) {
+            if (i > 0) {
+                writer.write(", ");
+            }
+            StreamingSourceEmitter.writeLiteral(section, i, section.getType(i), writer);
+        }
+        writer.write("});\n");
+
+        // handle fields share names with their accessors, fields and methods don't clash
+        for (int i = 0; i < section.size(); i++) {
+            writer.write("\n\tprivate static final MethodHandle ");
+            writer.write(section.getKey(i));
+            writer.write(" = ");
+            writer.write(SECTION_FIELD);
+            writer.write(".getter(");
+            writer.write(Integer.toString(i));
+            writer.write(");");
+        }
+        if (!section.isEmpty()) {
+            writer.write('\n');
+        }
+
+        for (int i = 0; i < section.size(); i++) {
+            final ValueType type = section.getType(i);
+            writer.write("\n\tpublic static ");
+            writer.write(type.getJavaType());
+            writer.write(' ');
+            writer.write(section.getKey(i));
+            writer.write("() {\n\t\ttry {\n\t\t\treturn (");
+            writer.write(type.getJavaType());
+            writer.write(") ");
+            writer.write(section.getKey(i));
+            writer.write(".invokeExact();\n\t\t} catch (Throwable e) {\n\t\t\tthrow ReloadableSection.rethrow(e);\n\t\t}\n\t}\n");
+        }
+        writer.write('}');
+    }
+}
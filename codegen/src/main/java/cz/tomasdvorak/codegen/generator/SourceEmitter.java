@@ -0,0 +1,13 @@
+package cz.tomasdvorak.codegen.generator;
+
+import cz.tomasdvorak.codegen.dto.Section;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes source code of the constants class generated from one config section.
+ */
+public interface SourceEmitter {
+    void emit(Section section, Writer writer) throws IOException;
+}
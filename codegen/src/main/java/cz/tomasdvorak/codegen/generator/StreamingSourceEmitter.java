@@ -0,0 +1,109 @@
+package cz.tomasdvorak.codegen.generator;
+
+import cz.tomasdvorak.codegen.dto.Section;
+import cz.tomasdvorak.codegen.dto.ValueType;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes the constants class field by field directly to the output, without building any model of the class. Memory
+ * used doesn't depend on the section size. The output is identical to the source formatted by Roaster in the
+ * {@link ClassesGenerator}.
+ */
+public class StreamingSourceEmitter implements SourceEmitter {
+
+    private final String targetPackage;
+
+    public StreamingSourceEmitter(final String targetPackage) {
+        this.targetPackage = targetPackage;
+    }
+
+    @Override
+    public void emit(final Section section, final Writer writer) throws IOException {
+        writer.write("package ");
+        writer.write(targetPackage);
+        writer.write(";\npublic final class ");
+        writer.write(section.getName());
+        writer.write(" {\n");
+        if (!section.isEmpty()) {
+            writer.write('\n');
+        }
+        for (int i = 0; i < section.size(); i++) {
+            final ValueType type = section.getType(i);
+            writer.write("\tpublic static final ");
+            writer.write(type.getJavaType());
+            writer.write(' ');
+            writer.write(section.getKey(i));
+            writer.write(" = ");
+            writeLiteral(section, i, type, writer);
+            writer.write(";\n");
+        }
+        writer.write('}');
+    }
+
+    static void writeLiteral(final Section section, final int i, final ValueType type, final Writer writer) throws IOException {
+        switch (type) {
+            case INT:
+                writer.write(Integer.toString(section.getInt(i)));
+                break;
+            case LONG:
+                writer.write(Long.toString(section.getLong(i)));
+                writer.write('L');
+                break;
+            case DOUBLE:
+                writer.write(Double.toString(section.getDouble(i)));
+                break;
+            case BOOLEAN:
+                writer.write(section.getBoolean(i) ? "true" : "false");
+                break;
+            default:
+                writeStringLiteral(section.getString(i), writer);
+        }
+    }
+
+    /**
+     * Java string literal, escaped the same way as Roaster (JDT) does it - common escape sequences, everything else
+     * outside of printable ASCII as unicode escape.
+     */
+    static void writeStringLiteral(final String value, final Writer writer) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '\b':
+                    writer.write("\\b");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\f':
+                    writer.write("\\f");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7f) {
+                        writer.write("\\u");
+                        writer.write(Character.toUpperCase(Character.forDigit((c >> 12) & 0xF, 16)));
+                        writer.write(Character.toUpperCase(Character.forDigit((c >> 8) & 0xF, 16)));
+                        writer.write(Character.toUpperCase(Character.forDigit((c >> 4) & 0xF, 16)));
+                        writer.write(Character.toUpperCase(Character.forDigit(c & 0xF, 16)));
+                    } else {
+                        writer.write(c);
+                    }
+            }
+        }
+        writer.write('"');
+    }
+}
@@ -0,0 +1,146 @@
+package cz.tomasdvorak.codegen.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of one {@link cz.tomasdvorak.codegen.Codegen} instance, accumulated over all its runs. Thread-safe, sections
+ * and configs are recorded concurrently by the pipeline and batch workers.
+ */
+public class CodegenMetrics {
+
+    private final long created = System.nanoTime();
+    private volatile long parserConstructionNanos;
+    private final LongAdder configs = new LongAdder();
+    private final LongAdder parseNanos = new LongAdder();
+    private final LongAdder filesDeleted = new LongAdder();
+    private final AtomicLong parseCacheHits = new AtomicLong();
+    private final AtomicLong parseCacheMisses = new AtomicLong();
+    private final Queue<SectionMetrics> sections = new ConcurrentLinkedQueue<>();
+
+    public void recordParserConstruction(final long nanos) {
+        parserConstructionNanos = nanos;
+    }
+
+    public void recordParse(final long nanos) {
+        configs.increment();
+        parseNanos.add(nanos);
+    }
+
+    /**
+     * Counters of the parse cache, growing over its lifetime. Recorded after every parse, the highest ones are kept, as
+     * concurrent parses may record them out of order.
+     */
+    public void recordParseCache(final long hits, final long misses) {
+        parseCacheHits.accumulateAndGet(hits, Math::max);
+        parseCacheMisses.accumulateAndGet(misses, Math::max);
+    }
+
+    public void recordSection(final SectionMetrics section) {
+        sections.add(section);
+    }
+
+    public void recordDeleted(final int files) {
+        filesDeleted.add(files);
+    }
+
+    public long getParserConstructionNanos() {
+        return parserConstructionNanos;
+    }
+
+    public long getConfigs() {
+        return configs.sum();
+    }
+
+    public long getParseNanos() {
+        return parseNanos.sum();
+    }
+
+    /**
+     * Configs served by the parse cache, 0 if no cache is used
+     */
+    public long getParseCacheHits() {
+        return parseCacheHits.get();
+    }
+
+    /**
+     * Configs parsed and stored to the parse cache, 0 if no cache is used
+     */
+    public long getParseCacheMisses() {
+        return parseCacheMisses.get();
+    }
+
+    public List<SectionMetrics> getSections() {
+        return new ArrayList<>(sections);
+    }
+
+    /**
+     * Sum of generation times of all sections. With more threads it's higher than the wall-clock time.
+     */
+    public long getGenerateNanos() {
+        return sections.stream().mapToLong(SectionMetrics::getNanos).sum();
+    }
+
+    public long getBytesWritten() {
+        return sections.stream().mapToLong(SectionMetrics::getBytes).sum();
+    }
+
+    public long getFilesWritten() {
+        return sections.stream().filter(SectionMetrics::isWritten).count();
+    }
+
+    /**
+     * Files skipped by the incremental writer, their content hash matched the previous run
+     */
+    public long getFilesUpToDate() {
+        return sections.size() - getFilesWritten();
+    }
+
+    public long getFilesDeleted() {
+        return filesDeleted.sum();
+    }
+
+    /**
+     * Wall-clock time since the codegen has been created, including the parser construction
+     */
+    public long getTotalNanos() {
+        return System.nanoTime() - created;
+    }
+
+    /**
+     * Peak usage of all heap memory pools since the JVM start
+     */
+    public long getPeakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    /**
+     * One human readable line with the most important numbers
+     */
+    public String summary() {
+        return String.format(Locale.ROOT, "Codegen: %d configs (%d parse cache hits, %d misses), %d classes (%d written, %d up to date, %d deleted), %d bytes in %d ms "
+                        + "(parser construction %d ms, parse %d ms, generate %d ms), peak heap %d MB",
+                getConfigs(), getParseCacheHits(), getParseCacheMisses(), sections.size(), getFilesWritten(), getFilesUpToDate(), getFilesDeleted(), getBytesWritten(),
+                millis(getTotalNanos()), millis(parserConstructionNanos), millis(getParseNanos()), millis(getGenerateNanos()),
+                getPeakHeapBytes() / (1024 * 1024));
+    }
+
+    private static long millis(final long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
@@ -0,0 +1,81 @@
+package cz.tomasdvorak.codegen.metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes {@link CodegenMetrics} in a machine readable form, selected by the file extension:
+ * <ul>
+ *     <li>.csv - one line of totals per run, appended to the file, so one file can collect runs of many builds</li>
+ *     <li>anything else - JSON document with totals and a cost of every generated class</li>
+ * </ul>
+ */
+public class MetricsReport {
+
+    private MetricsReport() {
+    }
+
+    public static void write(final CodegenMetrics metrics, final Path file) throws IOException {
+        final Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        if (file.getFileName().toString().toLowerCase().endsWith(".csv")) {
+            writeCsv(metrics, file);
+        } else {
+            Files.write(file, toJson(metrics).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    static Map<String, Long> totals(final CodegenMetrics metrics) {
+        final Map<String, Long> totals = new LinkedHashMap<>();
+        totals.put("timestamp", System.currentTimeMillis());
+        totals.put("totalNanos", metrics.getTotalNanos());
+        totals.put("parserConstructionNanos", metrics.getParserConstructionNanos());
+        totals.put("parseNanos", metrics.getParseNanos());
+        totals.put("generateNanos", metrics.getGenerateNanos());
+        totals.put("configs", metrics.getConfigs());
+        totals.put("parseCacheHits", metrics.getParseCacheHits());
+        totals.put("parseCacheMisses", metrics.getParseCacheMisses());
+        totals.put("classes", (long) metrics.getSections().size());
+        totals.put("filesWritten", metrics.getFilesWritten());
+        totals.put("filesUpToDate", metrics.getFilesUpToDate());
+        totals.put("filesDeleted", metrics.getFilesDeleted());
+        totals.put("bytesWritten", metrics.getBytesWritten());
+        totals.put("peakHeapBytes", metrics.getPeakHeapBytes());
+        return totals;
+    }
+
+    static String toJson(final CodegenMetrics metrics) {
+        final StringBuilder json = new StringBuilder("{\n");
+        totals(metrics).forEach((name, value) -> json.append("  \"").append(name).append("\": ").append(value).append(",\n"));
+        json.append("  \"sections\": [");
+        final List<SectionMetrics> sections = metrics.getSections();
+        for (int i = 0; i < sections.size(); i++) {
+            final SectionMetrics section = sections.get(i);
+            json.append(i == 0 ? "\n" : ",\n")
+                    .append("    {\"class\": \"").append(section.getClassName())
+                    .append("\", \"nanos\": ").append(section.getNanos())
+                    .append(", \"bytes\": ").append(section.getBytes())
+                    .append(", \"written\": ").append(section.isWritten()).append('}');
+        }
+        json.append(sections.isEmpty() ? "]\n" : "\n  ]\n").append("}\n");
+        return json.toString();
+    }
+
+    private static void writeCsv(final CodegenMetrics metrics, final Path file) throws IOException {
+        final Map<String, Long> totals = totals(metrics);
+        final StringBuilder csv = new StringBuilder();
+        if (!Files.exists(file) || Files.size(file) == 0) {
+            csv.append(String.join(",", totals.keySet())).append('\n');
+        }
+        csv.append(String.join(",", totals.values().stream().map(String::valueOf).toArray(String[]::new))).append('\n');
+        Files.write(file, csv.toString().getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,43 @@
+package cz.tomasdvorak.codegen.metrics;
+
+/**
+ * Cost of one generated class
+ */
+public class SectionMetrics {
+    private final String className;
+    private final long nanos;
+    private final long bytes;
+    private final boolean written;
+
+    public SectionMetrics(final String className, final long nanos, final long bytes, final boolean written) {
+        this.className = className;
+        this.nanos = nanos;
+        this.bytes = bytes;
+        this.written = written;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * Time of generation and write of the class
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * Size of the written file, 0 if the file was up to date
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * False if the incremental writer found the file up to date
+     */
+    public boolean isWritten() {
+        return written;
+    }
+}
@@ -0,0 +1,190 @@
+package cz.tomasdvorak.codegen.parser;
+
+import cz.tomasdvorak.codegen.dto.Config;
+import cz.tomasdvorak.codegen.dto.Section;
+import cz.tomasdvorak.codegen.dto.ValueType;
+import cz.tomasdvorak.codegen.parser.utils.OverlayException;
+import cz.tomasdvorak.codegen.parser.utils.ParsingException;
+import cz.tomasdvorak.codegen.parser.utils.SyntaxError;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Parsed config, which keeps its derived values as expressions. Overlays of the config, e.g. values of one deployment
+ * environment, are applied to the parsed tree without parsing the config again, and the expressions are evaluated
+ * with the overridden values.
+ *
+ * Immutable, one template can be overlaid by any number of overlays, also concurrently.
+ */
+public final class ConfigTemplate {
+
+    private final Config sections;
+    private final DerivedValues derived;
+    private final CharSequence input;
+    private final Config config;
+    private final List<Path> includedFiles;
+
+    /**
+     * @param sections parsed sections, with placeholders of derived values
+     * @param input parsed input, for positions of evaluation errors
+     * @throws ParsingException if the derived values can't be evaluated
+     */
+    ConfigTemplate(final Config sections, final DerivedValues derived, final CharSequence input) throws ParsingException {
+        this(sections, derived, input, Collections.emptyList());
+    }
+
+    /**
+     * @param includedFiles files, which sections are a part of the parsed sections
+     */
+    ConfigTemplate(final Config sections, final DerivedValues derived, final CharSequence input, final List<Path> includedFiles) throws ParsingException {
+        this.sections = sections;
+        this.derived = derived;
+        this.input = input;
+        this.includedFiles = Collections.unmodifiableList(includedFiles);
+        this.config = derived.resolve(sections, input);
+    }
+
+    /**
+     * The config itself, without any overlay
+     */
+    public Config getConfig() {
+        return config;
+    }
+
+    /**
+     * Real paths of all files included by the config, directly or by other included files, in the order of includes
+     */
+    public List<Path> getIncludedFiles() {
+        return includedFiles;
+    }
+
+    /**
+     * No derived values and no includes, the template is fully described by its config
+     */
+    boolean isPlain() {
+        return derived.isEmpty() && includedFiles.isEmpty();
+    }
+
+    /**
+     * Apply the overlay to this config. The overlay may override existing keys of existing sections only, each with
+     * a value of the original type. An int value is accepted for long and double keys, it's converted. Derived values
+     * are evaluated again and have to keep their original types as well.
+     *
+     * Sections are copied on write, unchanged sections without derived values are shared with this config.
+     * @throws OverlayException with all violations of the rules above
+     */
+    public Config overlay(final Config overlay) throws OverlayException {
+        final List<String> errors = new ArrayList<>();
+        final List<Section> overlaid = new ArrayList<>(sections.getSections());
+        final Map<Section, Section> copies = new IdentityHashMap<>();
+        for (Section overrides : overlay.getSections()) {
+            final int index = indexOf(overrides.getName());
+            if (index < 0) {
+                errors.add("Unknown section " + overrides.getName());
+                continue;
+            }
+            final Section original = config.getSections().get(index);
+            final Section.Builder copy = new Section.Builder(original.getName(), original.size());
+            final Section current = overlaid.get(index);
+            for (int i = 0; i < current.size(); i++) {
+                final int overridden = overrides.indexOf(current.getKey(i));
+                if (overridden < 0) {
+                    copyValue(current, i, copy);
+                    continue;
+                }
+                final Optional<Object> value = convert(overrides, overridden, original.getType(i));
+                if (value.isPresent()) {
+                    copy.add(current.getKey(i), value.get());
+                } else {
+                    errors.add("Type of " + original.getName() + "." + current.getKey(i) + " is " + original.getType(i).getJavaType()
+                            + ", can't be overridden by " + overrides.getType(overridden).getJavaType() + " value");
+                    copyValue(current, i, copy);
+                }
+            }
+            for (int i = 0; i < overrides.size(); i++) {
+                if (original.indexOf(overrides.getKey(i)) < 0) {
+                    errors.add("Unknown key " + overrides.getName() + "." + overrides.getKey(i));
+                }
+            }
+            final Section copied = copy.build();
+            copies.put(sections.getSections().get(index), copied);
+            overlaid.set(index, copied);
+        }
+        if (!errors.isEmpty()) {
+            throw new OverlayException("Invalid overlay!", errors);
+        }
+
+        final Config result;
+        try {
+            result = derived.overlay(copies).resolve(new Config(overlaid), input);
+        } catch (ParsingException e) {
+            final List<String> evaluationErrors = new ArrayList<>();
+            e.getErrors().stream().map(SyntaxError::toString).forEach(evaluationErrors::add);
+            throw new OverlayException("Invalid overlay, derived values can't be evaluated!", evaluationErrors);
+        }
+        for (int s = 0; s < result.getSections().size(); s++) {
+            final Section original = config.getSections().get(s);
+            final Section section = result.getSections().get(s);
+            for (int i = 0; i < section.size(); i++) {
+                if (section.getType(i) != original.getType(i)) {
+                    errors.add("Type of " + section.getName() + "." + section.getKey(i) + " changed from "
+                            + original.getType(i).getJavaType() + " to " + section.getType(i).getJavaType());
+                }
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new OverlayException("Invalid overlay!", errors);
+        }
+        return result;
+    }
+
+    /**
+     * Position of the first section of the name, the one referenced by expressions
+     */
+    private int indexOf(final String name) {
+        final Optional<Section> section = config.getSection(name);
+        if (!section.isPresent()) {
+            return -1;
+        }
+        final List<Section> all = config.getSections();
+        for (int i = 0; i < all.size(); i++) {
+            if (all.get(i) == section.get()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Copy the value, or the placeholder of a derived value
+     */
+    private static void copyValue(final Section from, final int i, final Section.Builder to) {
+        if (from.getType(i) == ValueType.STRING) {
+            to.add(from.getKey(i), from.getString(i));
+        } else {
+            to.add(from.getKey(i), from.getValue(i));
+        }
+    }
+
+    /**
+     * @return the value converted to the type, empty if it can't be converted without a loss
+     */
+    private static Optional<Object> convert(final Section section, final int i, final ValueType type) {
+        if (section.getType(i) == type) {
+            return Optional.of(section.getValue(i));
+        }
+        if (section.getType(i) == ValueType.INT && type == ValueType.LONG) {
+            return Optional.of((long) section.getInt(i));
+        }
+        if (section.getType(i) == ValueType.INT && type == ValueType.DOUBLE) {
+            return Optional.of((double) section.getInt(i));
+        }
+        return Optional.empty();
+    }
+}
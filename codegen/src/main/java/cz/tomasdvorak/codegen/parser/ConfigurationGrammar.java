@@ -1,9 +1,12 @@
 package cz.tomasdvorak.codegen.parser;
 
-import cz.tomasdvorak.codegen.dto.Pair;
 import cz.tomasdvorak.codegen.dto.Config;
 import cz.tomasdvorak.codegen.dto.Section;
-import cz.tomasdvorak.codegen.parser.utils.ListBuilder;
+import cz.tomasdvorak.codegen.expression.BinaryOperation;
+import cz.tomasdvorak.codegen.expression.Conditional;
+import cz.tomasdvorak.codegen.expression.Expression;
+import cz.tomasdvorak.codegen.expression.Reference;
+import cz.tomasdvorak.codegen.expression.UnaryOperation;
 import org.parboiled.BaseParser;
 import org.parboiled.Rule;
 import org.parboiled.annotations.BuildParseTree;
@@ -11,6 +14,7 @@ import org.parboiled.annotations.Label;
 import org.parboiled.annotations.SuppressNode;
 import org.parboiled.annotations.SuppressSubnodes;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -21,6 +25,17 @@ import java.util.List;
  * For your case you can implement any grammar you like or even skip the grammar part and reuse any of widely used parsing
  * libraries for yml, json, properties or ini files.
  *
+ * Values can be expressions over literals and other keys (see {@link Expression}), with the usual precedence: ternary
+ * condition, ||, &amp;&amp;, comparison, additive, multiplicative and unary operators. Expressions are collected by the
+ * {@link DerivedValues} at the bottom of the value stack and evaluated once the whole input is parsed, a plain literal
+ * value is added to the section directly.
+ *
+ * Include directives ({@code include "common.cfg"}) can precede, follow or separate sections. They are collected by the
+ * {@link IncludeDirectives} right above the {@link DerivedValues} and resolved by the {@link ConfigurationParser}.
+ *
+ * Rules don't keep any state, lists of sections and assignments are collected on the value stack. The parser instance
+ * itself is still not thread-safe, as Parboiled stores the current context in it (see {@link ConfigurationParser}).
+ *
  * @see <a href="https://github.com/sirthias/parboiled/wiki">Parboiled wiki</a>
  * @see <a href="https://en.wikipedia.org/wiki/Parsing_expression_grammar">Parsing expression grammar</a>
  * @see <a href="http://ini4j.sourceforge.net/index.html">ini4j</a>
@@ -31,6 +46,8 @@ class ConfigurationGrammar extends BaseParser<Object> {
 
     Rule Configuration() {
         return Sequence(
+                push(new DerivedValues()), // stays at the bottom of the stack, see ConfigurationParser
+                push(new IncludeDirectives()),
                 Sections(),
                 push(new Config((List<Section>) pop())),
                 END_OF_INPUT
@@ -38,34 +55,52 @@ class ConfigurationGrammar extends BaseParser<Object> {
     }
 
     Rule Sections() {
-        final ListBuilder<Section> list = new ListBuilder<>();
         return Sequence(
-                OneOrMore(
-                        Section(),
-                        list.add((Section) pop()) // save one section to the list
-                ),
-                push(list.getAndReset()) // push all sections to the stack
+                push(new ArrayList<Section>()), // list of all sections, stays on the stack
+                OneOrMore(FirstOf(
+                        Include(),
+                        Sequence(
+                                Section(),
+                                ((List<Section>) peek(1)).add((Section) pop()) // save one section to the list
+                        )
+                ))
+        );
+    }
+
+    Rule Include() {
+        return Sequence(
+                Spacing(),
+                push(currentIndex()),
+                "include",
+                Spacing(),
+                StringLiteral(),
+                Spacing(),
+                include((IncludeDirectives) peek(3), (List<Section>) peek(2), (Integer) pop(1), (String) pop())
         );
     }
 
+    boolean include(final IncludeDirectives includes, final List<Section> sections, final int start, final String path) {
+        includes.add(path, sections.size(), start);
+        return true;
+    }
+
     Rule Section() {
         return Sequence(
                 LBRK,
                 Identifier().label("SectionName"),
                 RBRK,
                 Assignments(),
-                push(new Section((String) pop(1), (List<Pair>) pop()))
+                push(((DerivedValues) peek(3)).build((Section.Builder) pop()))
         );
     }
 
     Rule Assignments() {
-        final ListBuilder<Pair> list = new ListBuilder<>();
         return Sequence(
+                push(new Section.Builder((String) pop())), // builder of the section named by the preceding identifier
                 OneOrMore(
                         Assignment(),
-                        list.add((Pair) pop())
-                ),
-                push(list.getAndReset()));
+                        add((DerivedValues) peek(6), (Section.Builder) peek(3), (String) pop(2), (Integer) pop(1), pop()) // key, start and value left by the assignment
+                ));
     }
 
     Rule Assignment() {
@@ -73,19 +108,118 @@ class ConfigurationGrammar extends BaseParser<Object> {
                 Identifier().label("Key"),
                 EQUAL,
                 Value(),
-                Spacing(),
-                push(new Pair((String) pop(1), pop()))
+                Spacing()
         );
     }
 
+    boolean add(final DerivedValues derived, final Section.Builder builder, final String key, final int start, final Object value) {
+        if (value instanceof Expression) {
+            derived.add(builder, key, (Expression) value, start);
+        } else {
+            builder.add(key, value);
+        }
+        return true;
+    }
+
+    /**
+     * Pushes the start position and the value, a boxed literal or an {@link Expression}. A literal not followed by any
+     * operator is matched directly, without descending through all precedence levels of the expression.
+     */
     @SuppressSubnodes
     @Label("Value")
     Rule Value() {
+        return Sequence(
+                push(currentIndex()),
+                FirstOf(
+                        Sequence(
+                                FirstOf(Double(), Integer(), Boolean(), StringLiteral()),
+                                TestNot(Spacing(), AnyOf("+-*/%<>=!&|?"))
+                        ),
+                        Expression()
+                )
+        );
+    }
+
+    Rule Expression() {
+        return Sequence(
+                Or(),
+                Optional(
+                        QUESTION,
+                        Expression(),
+                        COLON,
+                        Expression(),
+                        push(new Conditional(pop(2), pop(1), pop()))
+                )
+        );
+    }
+
+    Rule Or() {
+        return Sequence(And(), ZeroOrMore(Operator("||"), And(), push(new BinaryOperation((String) pop(1), pop(1), pop()))));
+    }
+
+    Rule And() {
+        return Sequence(Comparison(), ZeroOrMore(Operator("&&"), Comparison(), push(new BinaryOperation((String) pop(1), pop(1), pop()))));
+    }
+
+    Rule Comparison() {
+        return Sequence(Additive(), Optional(Operator("==", "!=", "<=", ">=", "<", ">"), Additive(), push(new BinaryOperation((String) pop(1), pop(1), pop()))));
+    }
+
+    Rule Additive() {
+        return Sequence(Multiplicative(), ZeroOrMore(Operator("+", "-"), Multiplicative(), push(new BinaryOperation((String) pop(1), pop(1), pop()))));
+    }
+
+    Rule Multiplicative() {
+        return Sequence(Unary(), ZeroOrMore(Operator("*", "/", "%"), Unary(), push(new BinaryOperation((String) pop(1), pop(1), pop()))));
+    }
+
+    /**
+     * Negative double or integer stays a literal
+     */
+    Rule Unary() {
         return FirstOf(
                 Double(),
+                Integer(),
+                Sequence('-', Spacing(), Unary(), push(new UnaryOperation('-', pop()))),
+                Sequence('!', Spacing(), Unary(), push(new UnaryOperation('!', pop()))),
+                Primary()
+        );
+    }
+
+    Rule Primary() {
+        return FirstOf(
                 Integer(),
                 Boolean(),
-                StringLiteral()
+                StringLiteral(),
+                Sequence('(', Spacing(), Expression(), Spacing(), ')'),
+                Reference()
+        );
+    }
+
+    /**
+     * $KEY of the same section, or $Section.KEY
+     */
+    Rule Reference() {
+        return Sequence(
+                '$',
+                Identifier(),
+                FirstOf(
+                        Sequence('.', Identifier(), push(new Reference((String) pop(1), (String) pop()))),
+                        push(new Reference(null, (String) pop()))
+                )
+        );
+    }
+
+    /**
+     * Pushes the matched operator
+     */
+    @SuppressNode
+    Rule Operator(final String... operators) {
+        return Sequence(
+                Spacing(),
+                operators.length == 1 ? String(operators[0]) : FirstOf((Object[]) operators),
+                push(match()),
+                Spacing()
         );
     }
 
@@ -105,7 +239,8 @@ class ConfigurationGrammar extends BaseParser<Object> {
     Rule Boolean() {
         return Sequence(
                 FirstOf("true", "false"),
-                push(Boolean.valueOf(match()))
+                push(Boolean.valueOf(match())),
+                TestNot(IdentifierPart()) // identifier starting with true or false
         );
     }
 
@@ -113,25 +248,63 @@ class ConfigurationGrammar extends BaseParser<Object> {
     Rule Identifier() {
         return Sequence(
                 Spacing(),
-                TestNot(OneOrMore(Integer())),
+                TestNot(Digit()), // like the scanner, purely lexical
                 OneOrMore(FirstOf(CharRange('A', 'Z'), CharRange('a', 'z'), OneOrMore("_"), Digit())),
                 push(match()),
                 Spacing()
         );
     }
 
+    Rule IdentifierPart() {
+        return FirstOf(CharRange('A', 'Z'), CharRange('a', 'z'), '_', Digit());
+    }
+
     Rule Digit() {
         return CharRange('0', '9');
     }
 
+    Rule HexDigit() {
+        return FirstOf(Digit(), CharRange('a', 'f'), CharRange('A', 'F'));
+    }
+
+    /**
+     * Decimal or hexadecimal integer, with a long or unit suffix, see {@link NumberLiteral}. Matches also values out
+     * of range, they fail in the action, to be reported by the scanner.
+     */
     @SuppressSubnodes
     Rule Integer() {
         return Sequence(
-                OneOrMore(Digit()),
-                push(Integer.parseInt(match()))
+                Sequence(
+                        Optional(Ch('-')),
+                        FirstOf(
+                                Sequence(FirstOf("0x", "0X"), HexDigit(), ZeroOrMore(ZeroOrMore('_'), HexDigit()), Optional(Suffix("L"))),
+                                Sequence(Digit(), ZeroOrMore(ZeroOrMore('_'), Digit()), Optional(FirstOf(Suffix("L"), Units())))
+                        )
+                ),
+                pushInteger(match())
         );
     }
 
+    Rule Units() {
+        final Object[] units = new Object[NumberLiteral.UNITS.length];
+        for (int i = 0; i < units.length; i++) {
+            units[i] = Suffix(NumberLiteral.UNITS[i]);
+        }
+        return FirstOf(units);
+    }
+
+    /**
+     * Suffix not followed by any other identifier character, 30sec is not 30 seconds
+     */
+    Rule Suffix(final String suffix) {
+        return Sequence(suffix, TestNot(IdentifierPart()));
+    }
+
+    boolean pushInteger(final String literal) {
+        final Object value = NumberLiteral.parse(literal);
+        return value != null && push(value);
+    }
+
     @SuppressSubnodes
     Rule Double() {
         return Sequence(
@@ -162,6 +335,8 @@ class ConfigurationGrammar extends BaseParser<Object> {
     final Rule EQUAL = Terminal("=");
     final Rule LBRK = Terminal("[");
     final Rule RBRK = Terminal("]");
+    final Rule QUESTION = Terminal("?");
+    final Rule COLON = Terminal(":");
     final Rule END_OF_INPUT = EOI.suppressNode();
 
     @SuppressNode
@@ -1,29 +1,296 @@
 package cz.tomasdvorak.codegen.parser;
 
 import cz.tomasdvorak.codegen.dto.Config;
+import cz.tomasdvorak.codegen.dto.Section;
+import cz.tomasdvorak.codegen.parser.utils.CharSequenceInputBuffer;
+import cz.tomasdvorak.codegen.parser.utils.ConfigInput;
 import cz.tomasdvorak.codegen.parser.utils.ParsingException;
+import cz.tomasdvorak.codegen.parser.utils.SyntaxError;
 import org.parboiled.Parboiled;
+import org.parboiled.Rule;
 import org.parboiled.errors.ErrorUtils;
+import org.parboiled.parserunners.BasicParseRunner;
+import org.parboiled.parserunners.ProfilingParseRunner;
 import org.parboiled.parserunners.ReportingParseRunner;
 import org.parboiled.support.ParsingResult;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
 import java.net.URISyntaxException;
-import java.nio.file.Files;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+/**
+ * Parses config files to the {@link Config} tree. Thread-safe, one instance can be shared and used to parse many files
+ * concurrently.
+ *
+ * Files included by configs are parsed only once per instance, see {@link IncludeResolver}. Includes of a config not
+ * read from a file are relative to the working directory.
+ */
 public class ConfigurationParser {
 
-    private final ConfigurationGrammar parser;
+    /**
+     * Charset of config files, if not specified otherwise. Never the platform default, which differs between machines.
+     */
+    public static final Charset DEFAULT_CHARSET = StandardCharsets.UTF_8;
+
+    /**
+     * Parboiled stores the context of the running parse in the parser instance, so one rule tree can't be used by two
+     * threads at once. Rule trees not running any parse wait here and are reused by all parsers and threads of the JVM,
+     * a new one is built only if all are busy. Short-lived threads, e.g. pools of a build tool, don't pay for the
+     * construction again.
+     */
+    private static final Queue<Rule> IDLE_RULES = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Version of the config language accepted by both engines, part of keys of the {@link ParseCache}. Has to be
+     * increased with every change of the language or of values parsed from it.
+     */
+    static final int LANGUAGE_VERSION = 3;
+
+    /**
+     * Inputs of at least two chunks of this size are parsed in parallel, if there is more than one core available
+     */
+    static final int MIN_CHUNK_SIZE = 256 * 1024;
+
+    private final ParserEngine engine;
+    private final IncludeResolver includes = new IncludeResolver(this);
 
     public ConfigurationParser() {
-        this.parser = Parboiled.createParser(ConfigurationGrammar.class);
+        this(ParserEngine.PARBOILED);
+    }
+
+    public ConfigurationParser(final ParserEngine engine) {
+        this.engine = engine;
+        if (engine == ParserEngine.PARBOILED) {
+            withRule(rule -> null); // warm up, don't postpone the parser construction to the first parse
+        }
     }
 
     public Config parse(String configFilePath) throws IOException, ParsingException {
-        final String fileContent = new String(Files.readAllBytes(Paths.get(configFilePath)));
-        final ParsingResult<Object> result = new ReportingParseRunner<>(parser.Configuration()).run(fileContent);
+        return parse(Paths.get(configFilePath), DEFAULT_CHARSET);
+    }
+
+    /**
+     * Parse memory-mapped config file, see {@link ConfigInput#read(Path, Charset)}
+     */
+    public Config parse(final Path configFile, final Charset charset) throws IOException, ParsingException {
+        return parseTemplate(configFile, charset).getConfig();
+    }
+
+    /**
+     * Parse config from any stream, e.g. a resource bundled in a jar. The stream is not closed.
+     */
+    public Config parse(final InputStream inputStream, final Charset charset) throws IOException, ParsingException {
+        return parseTemplate(inputStream, charset).getConfig();
+    }
+
+    ConfigTemplate parseTemplate(final InputStream inputStream, final Charset charset) throws IOException, ParsingException {
+        return includes.resolve(parseFragment(ConfigInput.read(inputStream, charset)), null, Paths.get(""), charset);
+    }
+
+    /**
+     * Parse config from already decoded characters. The reader is not closed.
+     */
+    public Config parse(final Reader reader) throws IOException, ParsingException {
+        return parseContent(ConfigInput.read(reader));
+    }
+
+    /**
+     * Valid input is parsed by the cheapest way of the engine. Invalid input is scanned once more in the recovering
+     * mode, the thrown exception holds all syntax errors of the input and the partially parsed config,
+     * see {@link ParsingException#getErrors()} and {@link ParsingException#getPartialConfig()}.
+     *
+     * Huge inputs are split to chunks of whole sections, which are parsed in parallel, see {@link #parseInChunks}.
+     */
+    public Config parseContent(final CharSequence fileContent) throws ParsingException {
+        return parseTemplate(fileContent).getConfig();
+    }
+
+    /**
+     * Parse the config file keeping its derived values as expressions, so they are evaluated again for every overlay
+     * of the config, see {@link ConfigTemplate#overlay(Config)}
+     */
+    public ConfigTemplate parseTemplate(final Path configFile, final Charset charset) throws IOException, ParsingException {
+        final Path directory = configFile.getParent() == null ? Paths.get("") : configFile.getParent();
+        return includes.resolve(parseFragment(ConfigInput.read(configFile, charset)), configFile, directory, charset);
+    }
+
+    ConfigTemplate parseTemplate(final CharSequence fileContent) throws ParsingException {
+        return includes.resolve(parseFragment(fileContent), null, Paths.get(""), DEFAULT_CHARSET);
+    }
+
+    /**
+     * Parse the input without resolving its includes and evaluating its derived values
+     */
+    Fragment parseFragment(final CharSequence fileContent) throws ParsingException {
+        final int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        if (parallelism > 1 && fileContent.length() >= 2 * MIN_CHUNK_SIZE) {
+            return parseInChunks(fileContent, Math.max(MIN_CHUNK_SIZE, fileContent.length() / (4 * parallelism)));
+        }
+        return parseSequentially(fileContent);
+    }
+
+    private Fragment parseSequentially(final CharSequence fileContent) throws ParsingException {
+        switch (engine) {
+            case SCANNER:
+                return parseWithScanner(fileContent);
+            default:
+                return parseWithGrammar(fileContent);
+        }
+    }
+
+    private Fragment parseWithScanner(final CharSequence fileContent) throws ParsingException {
+        final ConfigurationScanner scanner = new ConfigurationScanner(fileContent);
+        try {
+            return new Fragment(scanner.scanSections(), scanner.getDerivedValues(), scanner.getIncludes(), fileContent);
+        } catch (ParsingException e) {
+            return Fragment.of(new ConfigurationScanner(fileContent).scanRecovering(), fileContent);
+        }
+    }
+
+    /**
+     * Split the input to chunks of whole sections and parse them on the common fork-join pool. Every chunk is parsed
+     * by the engine of this parser, sections of all chunks are merged in the original order and only then are the
+     * derived values evaluated, so an expression can refer to a section of any other chunk. Invalid chunks are scanned
+     * once more in the recovering mode, errors are reported in the order and with positions of the whole input, exactly
+     * as by the sequential parse.
+     * @param chunkSize minimal length of a chunk, it ends before the first section header following this length
+     */
+    Fragment parseInChunks(final CharSequence fileContent, final int chunkSize) throws ParsingException {
+        final List<int[]> bounds = split(fileContent, chunkSize);
+        if (bounds.size() == 1) {
+            return parseSequentially(fileContent);
+        }
+        final List<Chunk> chunks = bounds.parallelStream()
+                .map(chunk -> parseChunk(fileContent, chunk[0], chunk[1]))
+                .collect(Collectors.toList());
+
+        final List<Section> sections = new ArrayList<>();
+        final DerivedValues derived = new DerivedValues();
+        final IncludeDirectives includes = new IncludeDirectives();
+        final List<SyntaxError> errors = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            if (chunk.config == null) {
+                return parseSequentially(fileContent); // grammar mismatch not confirmed by the scanner, let it report
+            }
+            includes.addAll(chunk.includes, sections.size(), chunk.offset);
+            sections.addAll(chunk.config.getSections());
+            derived.addAll(chunk.derived, chunk.offset);
+            errors.addAll(chunk.errors);
+        }
+        if (errors.isEmpty()) {
+            return new Fragment(new Config(sections), derived, includes, fileContent);
+        }
+        // references to included sections can't be evaluated here, their keys are left out of the partial config
+        final Config partial = derived.resolve(new Config(sections), fileContent, includes.isEmpty() ? errors : new ArrayList<>());
+        throw new ParsingException("Parsing encountered errors! " + errors.stream().map(SyntaxError::toString).collect(Collectors.joining(", ")), errors, partial);
+    }
+
+    /**
+     * Chunks start at section headers at the beginning of a line. Strings and comments can't span lines, so such a
+     * bracket is always a section start in a valid input. The first chunk contains at least the first section.
+     * @return start (inclusive) and end (exclusive) of every chunk
+     */
+    static List<int[]> split(final CharSequence input, final int chunkSize) {
+        final List<int[]> chunks = new ArrayList<>();
+        final int length = input.length();
+        int start = 0;
+        int from = ConfigurationScanner.skipSpacing(input, 0, length) + 1;
+        while (start < length) {
+            int end = Math.max(start + chunkSize, from);
+            while (end < length && (input.charAt(end) != '[' || input.charAt(end - 1) != '\n')) {
+                end++;
+            }
+            end = Math.min(end, length);
+            chunks.add(new int[]{start, end});
+            start = end;
+            from = start + 1;
+        }
+        return chunks;
+    }
+
+    private Chunk parseChunk(final CharSequence fileContent, final int start, final int end) {
+        if (engine == ParserEngine.SCANNER) {
+            final ConfigurationScanner scanner = new ConfigurationScanner(fileContent, start, end);
+            try {
+                return new Chunk(scanner.scanSections(), scanner.getDerivedValues(), scanner.getIncludes(), 0, Collections.emptyList());
+            } catch (ParsingException e) {
+                return scanRecovering(fileContent, start, end);
+            }
+        }
+        final ParsingResult<Object> result = withRule(rule -> new BasicParseRunner<Object>(rule)
+                .run(new CharSequenceInputBuffer(fileContent.subSequence(start, end))));
+        if (!result.matched || !(result.resultValue instanceof Config)) {
+            final Chunk recovered = scanRecovering(fileContent, start, end);
+            return recovered.errors.isEmpty() ? new Chunk(null, null, null, 0, null) : recovered;
+        }
+        return new Chunk((Config) result.resultValue, (DerivedValues) result.valueStack.peek(2), (IncludeDirectives) result.valueStack.peek(1),
+                start, Collections.emptyList());
+    }
+
+    /**
+     * Run the parse on an idle rule tree, or on a new one if there is none, and return the tree to the idle ones
+     */
+    private static <T> T withRule(final Function<Rule, T> parse) {
+        final Rule idle = IDLE_RULES.poll();
+        final Rule rule = idle != null ? idle : Parboiled.createParser(ConfigurationGrammar.class).Configuration();
+        try {
+            return parse.apply(rule);
+        } finally {
+            IDLE_RULES.offer(rule);
+        }
+    }
+
+    private static Chunk scanRecovering(final CharSequence fileContent, final int start, final int end) {
+        final ConfigurationScanner scanner = new ConfigurationScanner(fileContent, start, end);
+        final List<SyntaxError> errors = new ArrayList<>();
+        final Config partial = scanner.scanSectionsRecovering(errors);
+        return new Chunk(partial, scanner.getDerivedValues(), scanner.getIncludes(), 0, errors);
+    }
+
+    /**
+     * Diagnostic run of the grammar under Parboiled's profiler. The report holds invocation, match, mismatch and
+     * rematch counts and time of every rule. Always uses the grammar, regardless of the engine of this parser.
+     */
+    public ProfilingParseRunner.Report profile(final CharSequence fileContent) throws ParsingException {
+        final ProfilingParseRunner.Report report = withRule(rule -> {
+            final ProfilingParseRunner<Object> runner = new ProfilingParseRunner<>(rule);
+            return runner.run(new CharSequenceInputBuffer(fileContent)).matched ? runner.getReport() : null;
+        });
+        if (report == null) {
+            new ConfigurationScanner(fileContent).scanRecovering(); // profiling runner doesn't collect errors
+            throw new ParsingException("Input cannot be parsed!");
+        }
+        return report;
+    }
+
+    /**
+     * The basic runner doesn't track errors at all. On mismatch, errors are collected by the recovering scanner in one
+     * pass, instead of the reporting runner, which parses the input again for every error. Both accept the same language.
+     */
+    private Fragment parseWithGrammar(final CharSequence fileContent) throws ParsingException {
+        final ParsingResult<Object> result = withRule(rule -> new BasicParseRunner<Object>(rule).run(new CharSequenceInputBuffer(fileContent)));
+        if (!result.matched) {
+            new ConfigurationScanner(fileContent).scanRecovering();
+            return parseWithReporting(fileContent);
+        }
+        return toFragment(result, fileContent);
+    }
+
+    private Fragment parseWithReporting(final CharSequence fileContent) throws ParsingException {
+        final ParsingResult<Object> result = withRule(rule -> new ReportingParseRunner<Object>(rule).run(new CharSequenceInputBuffer(fileContent)));
 
         if (result.hasErrors()) {
             final String errors = result.parseErrors.stream().map(ErrorUtils::printParseError).collect(Collectors.joining(", "));
@@ -34,6 +301,13 @@ public class ConfigurationParser {
             throw new ParsingException("Input cannot be parsed!");
         }
 
+        return toFragment(result, fileContent);
+    }
+
+    /**
+     * Config is on the top of the stack, followed by the {@link IncludeDirectives} and the {@link DerivedValues}
+     */
+    private Fragment toFragment(final ParsingResult<Object> result, final CharSequence fileContent) throws ParsingException {
         if(result.resultValue == null) {
             throw new ParsingException("No value returned from parser!");
         }
@@ -41,7 +315,26 @@ public class ConfigurationParser {
         if(!(result.resultValue instanceof Config)) {
             throw new ParsingException("Returned value is not Config but " + result.getClass().getName());
         } else {
-            return (Config) result.resultValue;
+            return new Fragment((Config) result.resultValue, (DerivedValues) result.valueStack.peek(2), (IncludeDirectives) result.valueStack.peek(1), fileContent);
+        }
+    }
+
+    /**
+     * Unresolved result of one chunk, config is null if it has to be parsed once more as a part of the whole input
+     */
+    private static class Chunk {
+        private final Config config;
+        private final DerivedValues derived;
+        private final IncludeDirectives includes;
+        private final int offset; // of positions of derived values and includes
+        private final List<SyntaxError> errors;
+
+        private Chunk(final Config config, final DerivedValues derived, final IncludeDirectives includes, final int offset, final List<SyntaxError> errors) {
+            this.config = config;
+            this.derived = derived;
+            this.includes = includes;
+            this.offset = offset;
+            this.errors = errors;
         }
     }
 }
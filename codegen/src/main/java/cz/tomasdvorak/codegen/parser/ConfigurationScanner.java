@@ -0,0 +1,572 @@
+package cz.tomasdvorak.codegen.parser;
+
+import cz.tomasdvorak.codegen.dto.Config;
+import cz.tomasdvorak.codegen.dto.Section;
+import cz.tomasdvorak.codegen.expression.BinaryOperation;
+import cz.tomasdvorak.codegen.expression.Conditional;
+import cz.tomasdvorak.codegen.expression.Expression;
+import cz.tomasdvorak.codegen.expression.Reference;
+import cz.tomasdvorak.codegen.expression.UnaryOperation;
+import cz.tomasdvorak.codegen.parser.utils.ParsingException;
+import cz.tomasdvorak.codegen.parser.utils.SyntaxError;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Hand-written, character level counterpart of the {@link ConfigurationGrammar}. The input is read exactly once,
+ * from left to right. Every decision is made by looking at the current character only, so there is nothing to
+ * backtrack, except for a single lookahead over spacing after an operand of an expression. Accepts the same language as
+ * the grammar, including its corner cases (one digit before the decimal point of a double, comment lines have to be
+ * terminated by a line break, ...).
+ *
+ * The recovering mode ({@link #scanRecovering()}) doesn't stop on the first error. It records the error, skips the rest
+ * of the broken line and continues, so all errors of the file are collected in one pass.
+ *
+ * Not thread-safe, create a new instance for every input.
+ */
+class ConfigurationScanner {
+
+    private final CharSequence input;
+    private final int length;
+    private int pos;
+
+    private final DerivedValues derived = new DerivedValues();
+    private final IncludeDirectives includes = new IncludeDirectives();
+
+    /**
+     * Last computed position, errors are reported from left to right and line counting continues from here
+     */
+    private int cursorPos;
+    private int cursorLine = 1;
+    private int cursorColumn = 1;
+
+    ConfigurationScanner(final CharSequence input) {
+        this(input, 0, input.length());
+    }
+
+    /**
+     * Scanner of a part of the input, which has to start at the beginning of a line. Positions of errors and expressions
+     * are still relative to the start of the whole input.
+     */
+    ConfigurationScanner(final CharSequence input, final int start, final int end) {
+        this.input = input;
+        this.pos = start;
+        this.length = end;
+    }
+
+    Config scan() throws ParsingException {
+        return derived.resolve(scanSections(), input);
+    }
+
+    /**
+     * Scan the whole input, collecting all errors
+     * @throws ParsingException with all errors and the partial config, built of successfully parsed sections
+     */
+    Config scanRecovering() throws ParsingException {
+        final List<SyntaxError> errors = new ArrayList<>();
+        final Config sections = scanSectionsRecovering(errors);
+        // references to included sections can't be evaluated here, their keys are left out of the partial config
+        final Config config = derived.resolve(sections, input, includes.isEmpty() ? errors : new ArrayList<>());
+        if (errors.isEmpty()) {
+            return config;
+        }
+        throw new ParsingException("Parsing encountered errors! " + errors.stream().map(SyntaxError::toString).collect(Collectors.joining(", ")), errors, config);
+    }
+
+    /**
+     * Expressions of the scanned sections, unresolved until {@link #scan()} or {@link #scanRecovering()} is used
+     */
+    DerivedValues getDerivedValues() {
+        return derived;
+    }
+
+    /**
+     * Include directives of the scanned input, resolved by the {@link IncludeResolver}
+     */
+    IncludeDirectives getIncludes() {
+        return includes;
+    }
+
+    /**
+     * Like {@link #scan()}, but the derived values are left unresolved, see {@link #getDerivedValues()}, and includes
+     * are only recorded, see {@link #getIncludes()}
+     */
+    Config scanSections() throws ParsingException {
+        final List<Section> sections = new ArrayList<>();
+        spacing();
+        do {
+            if (isIncludeAhead()) {
+                include(sections);
+            } else {
+                sections.add(section());
+            }
+        } while (pos < length);
+        return new Config(sections);
+    }
+
+    /**
+     * Like {@link #scanRecovering()}, but the derived values are left unresolved and errors are added to the list
+     * @return the partial config, built of successfully parsed sections
+     */
+    Config scanSectionsRecovering(final List<SyntaxError> errors) {
+        final List<Section> sections = new ArrayList<>();
+        String name = null; // null if the header of the current section is broken
+        Section.Builder values = null; // null before the first section header
+
+        spacing();
+        if (pos >= length) {
+            errors.add(syntaxError("Expected section start '['"));
+        }
+        while (pos < length) {
+            final int start = pos;
+            try {
+                if (input.charAt(pos) == '[') {
+                    closeSection(name, values, sections, errors);
+                    name = null;
+                    values = new Section.Builder(null); // assignments of a broken section are checked, but dropped
+                    name = sectionHeader();
+                    values = new Section.Builder(name);
+                } else if (isIncludeAhead()) {
+                    closeSection(name, values, sections, errors);
+                    name = null;
+                    values = null; // assignments have to follow a section header again
+                    include(sections);
+                } else if (values == null) {
+                    throw error("Expected section start '['");
+                } else if (!isIdentifierStart(input.charAt(pos))) {
+                    if (name != null && values.size() == 0) {
+                        name = null; // reported here, not once more when closed
+                        throw error("Expected key");
+                    }
+                    throw error("Expected section start '['");
+                } else {
+                    assignment(values);
+                }
+            } catch (ParsingException e) {
+                addError(errors, e.getErrors().get(0));
+                resync(start);
+            }
+        }
+        closeSection(name, values, sections, errors);
+        return new Config(sections);
+    }
+
+    private void closeSection(final String name, final Section.Builder values, final List<Section> sections, final List<SyntaxError> errors) {
+        if (name == null) {
+            return;
+        }
+        if (values.size() == 0) {
+            addError(errors, syntaxError("Expected key"));
+        } else {
+            sections.add(derived.build(values));
+        }
+    }
+
+    private static void addError(final List<SyntaxError> errors, final SyntaxError error) {
+        final SyntaxError last = errors.isEmpty() ? null : errors.get(errors.size() - 1);
+        if (last == null || last.getLine() != error.getLine() || last.getColumn() != error.getColumn()) {
+            errors.add(error);
+        }
+    }
+
+    /**
+     * Continue after the line, where the broken statement started. If the error has been found on one of the following
+     * lines (a value missing at the end of a line), continue at the start of the line with the error.
+     */
+    private void resync(final int statementStart) {
+        int statementLineEnd = statementStart;
+        while (statementLineEnd < length && input.charAt(statementLineEnd) != '\n') {
+            statementLineEnd++;
+        }
+        int errorLineStart = Math.min(pos, length);
+        while (errorLineStart > 0 && input.charAt(errorLineStart - 1) != '\n') {
+            errorLineStart--;
+        }
+        pos = Math.max(Math.min(statementLineEnd + 1, length), errorLineStart);
+        spacing();
+    }
+
+    private Section section() throws ParsingException {
+        final String name = sectionHeader();
+
+        final Section.Builder values = new Section.Builder(name);
+        do {
+            assignment(values);
+        } while (pos < length && isIdentifierStart(input.charAt(pos)) && !isIncludeAhead());
+        return derived.build(values);
+    }
+
+    /**
+     * include keyword followed by a string, anything else starting with include is a key
+     */
+    private boolean isIncludeAhead() {
+        if (!lookingAt("include")) {
+            return false;
+        }
+        final int next = skipSpacing(input, pos + "include".length(), length);
+        return next < length && input.charAt(next) == '"';
+    }
+
+    private void include(final List<Section> sections) throws ParsingException {
+        final int start = pos;
+        pos = skipSpacing(input, pos + "include".length(), length);
+        final Object path = primary(); // string literal, see isIncludeAhead()
+        spacing();
+        includes.add((String) path, sections.size(), start);
+    }
+
+    private String sectionHeader() throws ParsingException {
+        expect('[', "section start '['");
+        spacing();
+        final String name = identifier("section name");
+        expect(']', "section end ']'");
+        spacing();
+        return name;
+    }
+
+    private void assignment(final Section.Builder values) throws ParsingException {
+        final String key = identifier("key");
+        expect('=', "'='");
+        spacing();
+        value(key, values);
+        spacing();
+    }
+
+    private String identifier(final String description) throws ParsingException {
+        if (pos >= length || !isIdentifierStart(input.charAt(pos))) {
+            throw error("Expected " + description);
+        }
+        final int start = pos;
+        while (pos < length && isIdentifierPart(input.charAt(pos))) {
+            pos++;
+        }
+        final String identifier = input.subSequence(start, pos).toString();
+        spacing();
+        return identifier;
+    }
+
+    /**
+     * Scan the value and add it to the section, a literal directly, an expression to the {@link DerivedValues}
+     */
+    private void value(final String key, final Section.Builder values) throws ParsingException {
+        final int start = pos;
+        final Object value = expression();
+        if (value instanceof Expression) {
+            derived.add(values, key, (Expression) value, start);
+        } else {
+            values.add(key, value);
+        }
+    }
+
+    /**
+     * @return boxed literal, or an {@link Expression} if the value contains any operator or reference
+     */
+    private Object expression() throws ParsingException {
+        final Object condition = or();
+        final int operand = pos;
+        spacing();
+        if (pos < length && input.charAt(pos) == '?') {
+            pos++;
+            spacing();
+            final Object whenTrue = expression();
+            spacing();
+            expect(':', "':'");
+            spacing();
+            return new Conditional(condition, whenTrue, expression());
+        }
+        pos = operand;
+        return condition;
+    }
+
+    private Object or() throws ParsingException {
+        Object left = and();
+        for (String operator = operator("||"); operator != null; operator = operator("||")) {
+            left = new BinaryOperation(operator, left, and());
+        }
+        return left;
+    }
+
+    private Object and() throws ParsingException {
+        Object left = comparison();
+        for (String operator = operator("&&"); operator != null; operator = operator("&&")) {
+            left = new BinaryOperation(operator, left, comparison());
+        }
+        return left;
+    }
+
+    private Object comparison() throws ParsingException {
+        final Object left = additive();
+        final String operator = operator("==", "!=", "<=", ">=", "<", ">");
+        return operator == null ? left : new BinaryOperation(operator, left, additive());
+    }
+
+    private Object additive() throws ParsingException {
+        Object left = multiplicative();
+        for (String operator = operator("+", "-"); operator != null; operator = operator("+", "-")) {
+            left = new BinaryOperation(operator, left, multiplicative());
+        }
+        return left;
+    }
+
+    private Object multiplicative() throws ParsingException {
+        Object left = unary();
+        for (String operator = operator("*", "/", "%"); operator != null; operator = operator("*", "/", "%")) {
+            left = new BinaryOperation(operator, left, unary());
+        }
+        return left;
+    }
+
+    /**
+     * Operator following the operand, with spacing around it
+     * @return the operator, or null if none of them follows (nothing is consumed then)
+     */
+    private String operator(final String... operators) {
+        final int operand = pos;
+        spacing();
+        for (String operator : operators) {
+            if (lookingAt(operator)) {
+                pos += operator.length();
+                spacing();
+                return operator;
+            }
+        }
+        pos = operand;
+        return null;
+    }
+
+    /**
+     * Negative double or integer is a literal, not a negation
+     */
+    private Object unary() throws ParsingException {
+        if (isDoubleAhead()) {
+            final int start = pos;
+            pos += input.charAt(pos) == '-' ? 3 : 2;
+            while (pos < length && isDigit(input.charAt(pos))) {
+                pos++;
+            }
+            return Double.parseDouble(input.subSequence(start, pos).toString());
+        }
+        final char c = pos < length ? input.charAt(pos) : 0;
+        if (c == '-' && pos + 1 < length && isDigit(input.charAt(pos + 1))) {
+            return integer();
+        }
+        if (c == '-' || c == '!') {
+            pos++;
+            spacing();
+            return new UnaryOperation(c, unary());
+        }
+        return primary();
+    }
+
+    private Object primary() throws ParsingException {
+        final char c = pos < length ? input.charAt(pos) : 0;
+        if (isDigit(c)) {
+            return integer();
+        }
+        if (lookingAtKeyword("true")) {
+            pos += 4;
+            return true;
+        }
+        if (lookingAtKeyword("false")) {
+            pos += 5;
+            return false;
+        }
+        if (c == '"') {
+            final int start = ++pos;
+            while (pos < length && !isOneOf(input.charAt(pos), "\r\n\"")) {
+                pos++;
+            }
+            final String value = input.subSequence(start, pos).toString();
+            expect('"', "closing '\"' of a string");
+            return value;
+        }
+        if (c == '(') {
+            pos++;
+            spacing();
+            final Object value = expression();
+            spacing();
+            expect(')', "')'");
+            return value;
+        }
+        if (c == '$') {
+            pos++;
+            spacing();
+            final String name = identifier("key");
+            if (pos < length && input.charAt(pos) == '.') {
+                pos++;
+                spacing();
+                return new Reference(name, identifier("key"));
+            }
+            return new Reference(null, name);
+        }
+        throw error("Expected value");
+    }
+
+    /**
+     * Integer literal with an optional minus and suffix, see {@link NumberLiteral}
+     */
+    private Object integer() throws ParsingException {
+        final int start = pos;
+        if (input.charAt(pos) == '-') {
+            pos++;
+        }
+        final boolean hex = lookingAt("0x") || lookingAt("0X");
+        if (hex && pos + 2 < length && isHexDigit(input.charAt(pos + 2))) {
+            pos += 2;
+            digits(true);
+            if (lookingAtKeyword("L")) {
+                pos++;
+            }
+        } else {
+            digits(false);
+            if (lookingAtKeyword("L")) {
+                pos++;
+            } else {
+                for (String unit : NumberLiteral.UNITS) {
+                    if (lookingAtKeyword(unit)) {
+                        pos += unit.length();
+                        break;
+                    }
+                }
+            }
+        }
+        final Object value = NumberLiteral.parse(input, start, pos);
+        if (value == null) {
+            pos = start;
+            throw error("Integer value out of range");
+        }
+        return value;
+    }
+
+    /**
+     * Digits separated by underscores, starting at a digit. Underscores not followed by a digit are not consumed.
+     */
+    private void digits(final boolean hex) {
+        pos++;
+        while (true) {
+            int next = pos;
+            while (next < length && input.charAt(next) == '_') {
+                next++;
+            }
+            if (next < length && (hex ? isHexDigit(input.charAt(next)) : isDigit(input.charAt(next)))) {
+                pos = next + 1;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * true or false, but not an identifier starting with it
+     */
+    private boolean lookingAtKeyword(final String keyword) {
+        return lookingAt(keyword) && !(pos + keyword.length() < length && isIdentifierPart(input.charAt(pos + keyword.length())));
+    }
+
+    /**
+     * Double is an optional minus, exactly one digit, decimal point and at least one digit.
+     */
+    private boolean isDoubleAhead() {
+        final int start = pos < length && input.charAt(pos) == '-' ? pos + 1 : pos;
+        return start + 2 < length
+                && isDigit(input.charAt(start))
+                && input.charAt(start + 1) == '.'
+                && isDigit(input.charAt(start + 2));
+    }
+
+    /**
+     * Skip whitespace and comments. A comment not terminated by a line break is not a comment and stays unconsumed.
+     */
+    private void spacing() {
+        pos = skipSpacing(input, pos, length);
+    }
+
+    /**
+     * @return position of the first character after whitespace and comments starting at the position
+     */
+    static int skipSpacing(final CharSequence input, int pos, final int length) {
+        while (pos < length) {
+            final char c = input.charAt(pos);
+            if (isOneOf(c, " \t\r\n\f")) {
+                pos++;
+            } else if (c == '#') {
+                int end = pos + 1;
+                while (end < length && !isOneOf(input.charAt(end), "\r\n")) {
+                    end++;
+                }
+                if (end == length) {
+                    return pos;
+                }
+                pos = end + 1;
+            } else {
+                return pos;
+            }
+        }
+        return pos;
+    }
+
+    private void expect(final char expected, final String description) throws ParsingException {
+        if (pos >= length || input.charAt(pos) != expected) {
+            throw error("Expected " + description);
+        }
+        pos++;
+    }
+
+    private boolean lookingAt(final String text) {
+        if (pos + text.length() > length) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (input.charAt(pos + i) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ParsingException error(final String message) {
+        final SyntaxError error = syntaxError(message);
+        return new ParsingException("Parsing encountered errors! " + error, Collections.singletonList(error), null);
+    }
+
+    private SyntaxError syntaxError(final String message) {
+        if (pos < cursorPos) {
+            cursorPos = 0;
+            cursorLine = 1;
+            cursorColumn = 1;
+        }
+        for (; cursorPos < pos; cursorPos++) {
+            if (input.charAt(cursorPos) == '\n') {
+                cursorLine++;
+                cursorColumn = 1;
+            } else {
+                cursorColumn++;
+            }
+        }
+        final String found = pos < input.length() ? "'" + input.charAt(pos) + "'" : "end of input";
+        return new SyntaxError(cursorLine, cursorColumn, message + ", found " + found);
+    }
+
+    private static boolean isIdentifierStart(final char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || c == '_';
+    }
+
+    private static boolean isIdentifierPart(final char c) {
+        return isIdentifierStart(c) || isDigit(c);
+    }
+
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isHexDigit(final char c) {
+        return isDigit(c) || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    private static boolean isOneOf(final char c, final String chars) {
+        return chars.indexOf(c) >= 0;
+    }
+}
@@ -0,0 +1,279 @@
+package cz.tomasdvorak.codegen.parser;
+
+import cz.tomasdvorak.codegen.dto.Config;
+import cz.tomasdvorak.codegen.dto.Section;
+import cz.tomasdvorak.codegen.dto.ValueType;
+import cz.tomasdvorak.codegen.expression.EvaluationException;
+import cz.tomasdvorak.codegen.expression.Expression;
+import cz.tomasdvorak.codegen.parser.utils.ParsingException;
+import cz.tomasdvorak.codegen.parser.utils.SyntaxError;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Values of one parse, which are expressions instead of literals. Both the grammar and the scanner add a placeholder
+ * to the section builder and register the expression here. Once the whole input is parsed, {@link #resolve} evaluates
+ * all expressions in dependency order and replaces placeholders by the results, so the config holds literals only.
+ *
+ * Not thread-safe, every parse has its own instance.
+ */
+class DerivedValues {
+
+    private static final Entry[] NO_ENTRIES = {};
+
+    private final Map<Section.Builder, List<Entry>> pending = new IdentityHashMap<>();
+    private final Map<Section, List<Entry>> entries = new IdentityHashMap<>();
+
+    /**
+     * Add the placeholder of the value to the builder
+     * @param start position of the expression in the input, for error reporting
+     */
+    void add(final Section.Builder builder, final String key, final Expression expression, final int start) {
+        pending.computeIfAbsent(builder, b -> new ArrayList<>()).add(new Entry(builder.size(), key, expression, start, null, null));
+        builder.add(key, (String) null);
+    }
+
+    /**
+     * Build the section, keeping its expressions
+     */
+    Section build(final Section.Builder builder) {
+        final Section section = builder.build();
+        final List<Entry> sectionEntries = pending.remove(builder);
+        if (sectionEntries != null) {
+            entries.put(section, sectionEntries);
+        }
+        return section;
+    }
+
+    boolean isEmpty() {
+        return entries.isEmpty() && pending.isEmpty();
+    }
+
+    /**
+     * Take over expressions of built sections of another parse, e.g. of one chunk of the input parsed separately
+     * @param offset added to positions of the expressions, if the other parse started inside the input
+     */
+    void addAll(final DerivedValues other, final int offset) {
+        other.entries.forEach((section, sectionEntries) -> entries.put(section, sectionEntries.stream()
+                .map(entry -> new Entry(entry.index, entry.key, entry.expression, entry.start + offset, entry.input, entry.file))
+                .collect(Collectors.toList())));
+    }
+
+    /**
+     * Take over expressions of an included file, errors of their evaluation are reported in that file
+     * @param input content of the included file
+     * @param file name of the included file in error messages
+     */
+    void addAll(final DerivedValues other, final CharSequence input, final String file) {
+        other.entries.forEach((section, sectionEntries) -> entries.put(section, sectionEntries.stream()
+                .map(entry -> new Entry(entry.index, entry.key, entry.expression, entry.start, input, file))
+                .collect(Collectors.toList())));
+    }
+
+    /**
+     * Expressions of the config, in which some sections have been replaced by their copies with overridden values.
+     * Expressions of overridden keys are dropped, placeholders of the others are expected at the same positions.
+     * @param copies original sections and their copies
+     */
+    DerivedValues overlay(final Map<Section, Section> copies) {
+        final DerivedValues result = new DerivedValues();
+        entries.forEach((section, sectionEntries) -> {
+            final Section copy = copies.get(section);
+            if (copy == null) {
+                result.entries.put(section, sectionEntries);
+                return;
+            }
+            final List<Entry> kept = sectionEntries.stream()
+                    .filter(entry -> copy.getType(entry.index) == ValueType.STRING && copy.getString(entry.index) == null)
+                    .collect(Collectors.toList());
+            if (!kept.isEmpty()) {
+                result.entries.put(copy, kept);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @throws ParsingException with all errors of the evaluation
+     */
+    Config resolve(final Config config, final CharSequence input) throws ParsingException {
+        final List<SyntaxError> errors = new ArrayList<>();
+        final Config resolved = resolve(config, input, errors);
+        if (!errors.isEmpty()) {
+            throw new ParsingException("Parsing encountered errors! " + errors.stream().map(SyntaxError::toString).collect(Collectors.joining(", ")), errors, resolved);
+        }
+        return resolved;
+    }
+
+    /**
+     * Evaluate all expressions, errors are added to the list
+     * @return config with evaluated values, values which couldn't be evaluated are left out
+     */
+    Config resolve(final Config config, final CharSequence input, final List<SyntaxError> errors) {
+        if (entries.isEmpty()) {
+            return config;
+        }
+        final Evaluation evaluation = new Evaluation(config);
+        for (Section section : config.getSections()) {
+            for (Entry entry : entries.getOrDefault(section, Collections.emptyList())) {
+                try {
+                    evaluation.evaluate(section, entry);
+                } catch (Failure e) {
+                    if (!e.reported) {
+                        e.reported = true;
+                        final Entry origin = e.origin;
+                        errors.add(position(origin.input == null ? input : origin.input, origin.file, origin.start, e.getMessage()));
+                    }
+                } catch (EvaluationException e) {
+                    throw new IllegalStateException(e); // always wrapped by the evaluation
+                }
+            }
+        }
+
+        final List<Section> sections = new ArrayList<>(config.getSections().size());
+        for (Section section : config.getSections()) {
+            if (!entries.containsKey(section)) {
+                sections.add(section);
+                continue;
+            }
+            final Entry[] byIndex = evaluation.byIndex(section);
+            final Section.Builder builder = new Section.Builder(section.getName(), section.size());
+            for (int i = 0; i < section.size(); i++) {
+                final Entry entry = byIndex[i];
+                if (entry == null) {
+                    builder.add(section.getKey(i), section.getValue(i));
+                } else if (evaluation.values.containsKey(entry)) {
+                    builder.add(section.getKey(i), evaluation.values.get(entry));
+                }
+            }
+            sections.add(builder.build());
+        }
+        return new Config(sections);
+    }
+
+    /**
+     * @param file included file of the input, null for the parsed config itself
+     */
+    static SyntaxError position(final CharSequence input, final String file, final int start, final String message) {
+        int line = 1;
+        int column = 1;
+        for (int i = 0; i < start; i++) {
+            if (input.charAt(i) == '\n') {
+                line++;
+                column = 1;
+            } else {
+                column++;
+            }
+        }
+        return new SyntaxError(file, line, column, message);
+    }
+
+    private class Evaluation {
+        private final Config config;
+        private final Map<Section, Entry[]> byIndex = new IdentityHashMap<>();
+        private final Map<Entry, Object> values = new HashMap<>();
+        private final Set<Entry> failed = new HashSet<>();
+        private final Set<Entry> inProgress = new LinkedHashSet<>();
+
+        private Evaluation(final Config config) {
+            this.config = config;
+        }
+
+        private Object evaluate(final Section section, final Entry entry) throws EvaluationException {
+            if (values.containsKey(entry)) {
+                return values.get(entry);
+            }
+            if (failed.contains(entry)) {
+                throw new Failure(entry, "Invalid value " + section.getName() + "." + entry.key, true);
+            }
+            if (!inProgress.add(entry)) {
+                final String cycle = inProgress.stream().map(e -> e.key).collect(Collectors.joining(" -> "));
+                throw new EvaluationException("Cyclic reference " + cycle + " -> " + entry.key);
+            }
+            try {
+                final Object value = entry.expression.evaluate((sectionName, key) -> get(sectionName == null ? section.getName() : sectionName, key));
+                if (value instanceof Double && !Double.isFinite((Double) value)) {
+                    throw new EvaluationException("Value of " + entry.expression + " is not a finite number");
+                }
+                values.put(entry, value);
+                return value;
+            } catch (Failure e) {
+                failed.add(entry);
+                throw e;
+            } catch (EvaluationException e) {
+                failed.add(entry);
+                throw new Failure(entry, e.getMessage(), false);
+            } finally {
+                inProgress.remove(entry);
+            }
+        }
+
+        private Object get(final String sectionName, final String key) throws EvaluationException {
+            final Section section = config.getSection(sectionName)
+                    .orElseThrow(() -> new EvaluationException("Unknown section " + sectionName));
+            final int index = section.indexOf(key);
+            if (index < 0) {
+                throw new EvaluationException("Unknown key " + sectionName + "." + key);
+            }
+            final Entry[] derived = byIndex(section);
+            return index < derived.length && derived[index] != null ? evaluate(section, derived[index]) : section.getValue(index);
+        }
+
+        /**
+         * Expressions of the section by positions of their keys, null at positions of literals
+         */
+        private Entry[] byIndex(final Section section) {
+            return byIndex.computeIfAbsent(section, s -> {
+                final List<Entry> sectionEntries = entries.get(s);
+                if (sectionEntries == null) {
+                    return NO_ENTRIES;
+                }
+                final Entry[] result = new Entry[s.size()];
+                sectionEntries.forEach(entry -> result[entry.index] = entry);
+                return result;
+            });
+        }
+    }
+
+    /**
+     * Error of one derived value, reported at the position of its expression. Values depending on it fail as well,
+     * but only the origin is reported.
+     */
+    private static class Failure extends EvaluationException {
+        private final Entry origin;
+        private boolean reported;
+
+        private Failure(final Entry origin, final String message, final boolean reported) {
+            super(message);
+            this.origin = origin;
+            this.reported = reported;
+        }
+    }
+
+    private static class Entry {
+        private final int index;
+        private final String key;
+        private final Expression expression;
+        private final int start;
+        private final CharSequence input; // null if the entry is a part of the resolved input
+        private final String file;
+
+        private Entry(final int index, final String key, final Expression expression, final int start, final CharSequence input, final String file) {
+            this.index = index;
+            this.key = key;
+            this.expression = expression;
+            this.start = start;
+            this.input = input;
+            this.file = file;
+        }
+    }
+}
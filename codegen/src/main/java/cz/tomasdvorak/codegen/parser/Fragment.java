@@ -0,0 +1,29 @@
+package cz.tomasdvorak.codegen.parser;
+
+import cz.tomasdvorak.codegen.dto.Config;
+
+/**
+ * Result of parsing one input, before its includes are resolved and its derived values are evaluated. Fragments of
+ * included files are shared by all configs including them, so they are never modified once parsed.
+ */
+class Fragment {
+
+    final Config sections;
+    final DerivedValues derived;
+    final IncludeDirectives includes;
+    final CharSequence input;
+
+    Fragment(final Config sections, final DerivedValues derived, final IncludeDirectives includes, final CharSequence input) {
+        this.sections = sections;
+        this.derived = derived;
+        this.includes = includes;
+        this.input = input;
+    }
+
+    /**
+     * Fragment of an already evaluated config, without any expressions and includes
+     */
+    static Fragment of(final Config config, final CharSequence input) {
+        return new Fragment(config, new DerivedValues(), new IncludeDirectives(), input);
+    }
+}
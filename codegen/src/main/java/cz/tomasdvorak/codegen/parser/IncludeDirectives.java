@@ -0,0 +1,55 @@
+package cz.tomasdvorak.codegen.parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Include directives of one parse, in the order of the input. Both the grammar and the scanner record every directive
+ * with the number of sections preceding it, the included sections are inserted there by the {@link IncludeResolver}.
+ *
+ * Not thread-safe, every parse has its own instance.
+ */
+class IncludeDirectives {
+
+    private final List<Directive> directives = new ArrayList<>();
+
+    /**
+     * @param sectionIndex number of sections of the input preceding the directive
+     * @param start position of the directive in the input, for error reporting
+     */
+    void add(final String path, final int sectionIndex, final int start) {
+        directives.add(new Directive(path, sectionIndex, start));
+    }
+
+    /**
+     * Take over directives of another parse, e.g. of one chunk of the input parsed separately
+     * @param sectionOffset number of sections preceding the other parse
+     * @param offset added to positions of the directives, if the other parse started inside the input
+     */
+    void addAll(final IncludeDirectives other, final int sectionOffset, final int offset) {
+        for (Directive directive : other.directives) {
+            add(directive.path, directive.sectionIndex + sectionOffset, directive.start + offset);
+        }
+    }
+
+    boolean isEmpty() {
+        return directives.isEmpty();
+    }
+
+    List<Directive> getDirectives() {
+        return Collections.unmodifiableList(directives);
+    }
+
+    static class Directive {
+        final String path;
+        final int sectionIndex;
+        final int start;
+
+        private Directive(final String path, final int sectionIndex, final int start) {
+            this.path = path;
+            this.sectionIndex = sectionIndex;
+            this.start = start;
+        }
+    }
+}
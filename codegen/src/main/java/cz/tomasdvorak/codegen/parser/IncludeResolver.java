@@ -0,0 +1,202 @@
+package cz.tomasdvorak.codegen.parser;
+
+import cz.tomasdvorak.codegen.dto.Config;
+import cz.tomasdvorak.codegen.dto.Section;
+import cz.tomasdvorak.codegen.parser.utils.ConfigInput;
+import cz.tomasdvorak.codegen.parser.utils.ParsingException;
+import cz.tomasdvorak.codegen.parser.utils.SyntaxError;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+
+/**
+ * Replaces include directives of parsed configs by sections of the included files. Paths are relative to the directory
+ * of the including file. A file included more than once, e.g. by two other included files, contributes its sections
+ * only at its first include, a file including itself, directly or through other files, is an error.
+ *
+ * Every included file is read and parsed only once and its fragment is shared by all configs of the parser including
+ * it, also by configs parsed concurrently. The memo is validated by size and modification time of the file, so a
+ * long-running parser (see {@link cz.tomasdvorak.codegen.watch.ConfigWatcher}) never uses an outdated fragment.
+ *
+ * Thread-safe, one instance is shared by all parses of one {@link ConfigurationParser}.
+ */
+class IncludeResolver {
+
+    private final ConfigurationParser parser;
+    private final ConcurrentMap<Path, Memo> fragments = new ConcurrentHashMap<>();
+
+    IncludeResolver(final ConfigurationParser parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * @param configFile file of the root fragment, null if the config hasn't been read from a file
+     * @param directory directory of the root fragment, relative includes are resolved against it
+     * @throws ParsingException with all errors of all included files and of the derived values
+     */
+    ConfigTemplate resolve(final Fragment root, final Path configFile, final Path directory, final Charset charset) throws ParsingException {
+        if (root.includes.isEmpty()) {
+            return new ConfigTemplate(root.sections, root.derived, root.input);
+        }
+        final Expansion expansion = new Expansion(charset);
+        if (configFile != null) {
+            try {
+                expansion.stack.put(configFile.toRealPath(), configFile.toString());
+            } catch (IOException e) {
+                // parsed already, but not accessible anymore, it can't be included then
+            }
+        }
+        expansion.expand(root, null, directory);
+
+        final Config config = new Config(expansion.sections);
+        if (expansion.errors.isEmpty()) {
+            return new ConfigTemplate(config, expansion.derived, root.input, expansion.files);
+        }
+        // sections of broken includes are missing, errors of references to them would be misleading
+        final Config partial = expansion.derived.resolve(config, root.input, new ArrayList<>());
+        throw new ParsingException("Parsing encountered errors! " + expansion.errors.stream().map(SyntaxError::toString).collect(Collectors.joining(", ")), expansion.errors, partial);
+    }
+
+    /**
+     * Fragment of the file, parsed by the current thread or taken from the memo
+     * @param file real path of the file
+     */
+    private Fragment fragment(final Path file, final Charset charset) throws IOException, ParsingException {
+        final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        final String stamp = attributes.size() + "|" + attributes.lastModifiedTime().toMillis() + "|" + charset.name();
+        while (true) {
+            final Memo memo = fragments.get(file);
+            if (memo != null && memo.stamp.equals(stamp)) {
+                return memo.get();
+            }
+            final Memo created = new Memo(stamp);
+            if (memo == null ? fragments.putIfAbsent(file, created) == null : fragments.replace(file, memo, created)) {
+                try {
+                    created.result.complete(parser.parseFragment(ConfigInput.read(file, charset)));
+                } catch (ParsingException e) {
+                    created.result.completeExceptionally(e);
+                } catch (IOException | RuntimeException e) {
+                    fragments.remove(file, created); // not memoized, next include tries again
+                    created.result.completeExceptionally(e);
+                }
+                return created.get();
+            }
+        }
+    }
+
+    /**
+     * Parsed fragment of one version of a file, or the failure of its parse
+     */
+    private static class Memo {
+        private final String stamp;
+        private final CompletableFuture<Fragment> result = new CompletableFuture<>();
+
+        private Memo(final String stamp) {
+            this.stamp = stamp;
+        }
+
+        private Fragment get() throws IOException, ParsingException {
+            try {
+                return result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the included file", e);
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof ParsingException) {
+                    throw (ParsingException) cause;
+                }
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw (RuntimeException) cause;
+            }
+        }
+    }
+
+    /**
+     * Expansion of one config. Sections and expressions of all fragments are collected in the order of the includes.
+     */
+    private class Expansion {
+        private final Charset charset;
+        private final List<Section> sections = new ArrayList<>();
+        private final DerivedValues derived = new DerivedValues();
+        private final List<SyntaxError> errors = new ArrayList<>();
+        private final List<Path> files = new ArrayList<>();
+        private final Set<Path> included = new HashSet<>();
+        private final Map<Path, String> stack = new LinkedHashMap<>(); // files being expanded and their names
+
+        private Expansion(final Charset charset) {
+            this.charset = charset;
+        }
+
+        /**
+         * @param name name of the fragment file in error messages, null for the root
+         */
+        private void expand(final Fragment fragment, final String name, final Path directory) {
+            if (name == null) {
+                derived.addAll(fragment.derived, 0);
+            } else {
+                derived.addAll(fragment.derived, fragment.input, name);
+            }
+            final List<Section> fragmentSections = fragment.sections.getSections();
+            int next = 0;
+            for (IncludeDirectives.Directive directive : fragment.includes.getDirectives()) {
+                sections.addAll(fragmentSections.subList(next, directive.sectionIndex));
+                next = directive.sectionIndex;
+                include(fragment, name, directory, directive);
+            }
+            sections.addAll(fragmentSections.subList(next, fragmentSections.size()));
+        }
+
+        private void include(final Fragment fragment, final String name, final Path directory, final IncludeDirectives.Directive directive) {
+            final Path path = directory.resolve(directive.path).normalize();
+            final Path file;
+            final Fragment included;
+            try {
+                file = path.toRealPath();
+                if (stack.containsKey(file)) {
+                    final List<String> cycle = new ArrayList<>(stack.values());
+                    cycle.add(path.toString());
+                    errors.add(DerivedValues.position(fragment.input, name, directive.start, "Cyclic include " + String.join(" -> ", cycle)));
+                    return;
+                }
+                if (!this.included.add(file)) {
+                    return; // sections already included
+                }
+                included = fragment(file, charset);
+            } catch (NoSuchFileException e) {
+                errors.add(DerivedValues.position(fragment.input, name, directive.start, "Included file " + path + " not found"));
+                return;
+            } catch (IOException e) {
+                errors.add(DerivedValues.position(fragment.input, name, directive.start, "Included file " + path + " can't be read: " + e));
+                return;
+            } catch (ParsingException e) {
+                if (e.getErrors().isEmpty()) {
+                    errors.add(DerivedValues.position(fragment.input, name, directive.start, "Included file " + path + " can't be parsed: " + e.getMessage()));
+                }
+                e.getErrors().forEach(error -> errors.add(new SyntaxError(path.toString(), error.getLine(), error.getColumn(), error.getMessage())));
+                return;
+            }
+            files.add(file);
+            stack.put(file, path.toString());
+            expand(included, path.toString(), path.getParent() == null ? directory : path.getParent());
+            stack.remove(file);
+        }
+    }
+}
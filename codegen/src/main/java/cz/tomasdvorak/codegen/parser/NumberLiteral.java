@@ -0,0 +1,94 @@
+package cz.tomasdvorak.codegen.parser;
+
+/**
+ * Value of an integer literal, matched by the {@link ConfigurationGrammar} or the {@link ConfigurationScanner}.
+ * A literal is an optional minus, decimal or hexadecimal (0x) digits, optionally separated by underscores, and an
+ * optional suffix:
+ * <ul>
+ *     <li>L - long value</li>
+ *     <li>KB, MB, GB - byte size, long value in bytes (binary units, 1KB = 1024)</li>
+ *     <li>ms, s, m, h - duration, long value in nanoseconds</li>
+ * </ul>
+ * Units can follow decimal digits only. A literal without a suffix is an int, if it fits, otherwise a long.
+ * Hexadecimal literals are values, not two's complement bit patterns like in Java: 0xFFFFFFFF is the long 4294967295,
+ * not the int -1.
+ *
+ * Values are converted once, when the config is parsed, so the generated constants are plain longs and nothing parses
+ * "512MB" at runtime.
+ */
+final class NumberLiteral {
+
+    /**
+     * Suffixes of units, ms is matched before m and s
+     */
+    static final String[] UNITS = {"KB", "MB", "GB", "ms", "s", "m", "h"};
+
+    private static final long[] MULTIPLIERS = {
+            1L << 10, 1L << 20, 1L << 30,
+            1_000_000L, 1_000_000_000L, 60_000_000_000L, 3_600_000_000_000L
+    };
+
+    private NumberLiteral() {
+    }
+
+    static Object parse(final CharSequence literal) {
+        return parse(literal, 0, literal.length());
+    }
+
+    /**
+     * @param start start of a literal already matched by the grammar or the scanner
+     * @param end end of the literal including its suffix
+     * @return Integer or Long value, null if the value is out of range of a long
+     */
+    static Object parse(final CharSequence input, final int start, final int end) {
+        int pos = start;
+        final boolean negative = input.charAt(pos) == '-';
+        if (negative) {
+            pos++;
+        }
+        int radix = 10;
+        if (pos + 1 < end && input.charAt(pos) == '0' && (input.charAt(pos + 1) == 'x' || input.charAt(pos + 1) == 'X')) {
+            radix = 16;
+            pos += 2;
+        }
+        long value = 0; // accumulated negative, Long.MIN_VALUE has no positive counterpart
+        for (; pos < end; pos++) {
+            final char c = input.charAt(pos);
+            if (c == '_') {
+                continue;
+            }
+            final int digit = Character.digit(c, radix);
+            if (digit < 0) {
+                break;
+            }
+            if (value < (Long.MIN_VALUE + digit) / radix) {
+                return null;
+            }
+            value = value * radix - digit;
+        }
+        if (!negative) {
+            if (value == Long.MIN_VALUE) {
+                return null;
+            }
+            value = -value;
+        }
+
+        if (pos == end) {
+            return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE ? (Object) (int) value : (Object) value;
+        }
+        final String suffix = input.subSequence(pos, end).toString();
+        if (suffix.equals("L")) {
+            return value;
+        }
+        for (int i = 0; i < UNITS.length; i++) {
+            if (UNITS[i].equals(suffix)) {
+                try {
+                    return Math.multiplyExact(value, MULTIPLIERS[i]);
+                } catch (ArithmeticException e) {
+                    return null;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Unknown suffix of " + input.subSequence(start, end));
+    }
+}
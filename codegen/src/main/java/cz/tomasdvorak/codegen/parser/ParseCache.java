@@ -0,0 +1,374 @@
+package cz.tomasdvorak.codegen.parser;
+
+import cz.tomasdvorak.codegen.dto.Config;
+import cz.tomasdvorak.codegen.dto.Section;
+import cz.tomasdvorak.codegen.dto.ValueType;
+import cz.tomasdvorak.codegen.parser.utils.ParsingException;
+import org.apache.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent cache of parsed configs in a local directory, shared by builds and processes. Entries are keyed by the
+ * hash of the config bytes, the charset and the {@link ConfigurationParser#LANGUAGE_VERSION}, a hit skips the parse
+ * completely. Only successfully parsed configs without includes are cached, templates of overlaid configs only if
+ * they have no derived values either.
+ *
+ * Every entry is one file of a compact binary format, checked by CRC32 when read, corrupted entries are deleted and
+ * parsed again. Entries are written to a temporary file and renamed, so a reader never sees a partial one. The last
+ * modification time of an entry is its last use, the least recently used entries are evicted once the cache grows
+ * over its size limit.
+ *
+ * The cache never fails the parse, its IO errors are only logged. Thread-safe, also across processes. Hits and misses
+ * of the instance are counted.
+ */
+public class ParseCache {
+
+    private static final Logger logger = Logger.getLogger(ParseCache.class);
+
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    static final String ENTRY_SUFFIX = ".cfgc";
+    private static final int MAGIC = 0x43464743; // CFGC
+    private static final int FORMAT_VERSION = 1;
+    private static final byte[] TEMPLATE_KEY = "template|".getBytes(StandardCharsets.UTF_8);
+
+    private final Path directory;
+    private final long maxBytes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ParseCache(final Path directory) {
+        this(directory, DEFAULT_MAX_BYTES);
+    }
+
+    public ParseCache(final Path directory, final long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Cached config of the file, or the config parsed by the parser, if not cached yet
+     */
+    public Config parse(final ConfigurationParser parser, final Path configFile, final Charset charset) throws IOException, ParsingException {
+        final Path entry = entry(digest(newDigest(charset), configFile));
+        final Config cached = read(entry);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        return parsed(entry, parser.parseTemplate(configFile, charset));
+    }
+
+    /**
+     * Cached template of the file, or the template parsed by the parser, if not cached yet. A template of a config
+     * with derived values keeps their expressions, which the cache doesn't store, only templates of plain configs
+     * (without derived values and includes) are cached. Their entries are kept apart from entries of
+     * {@link #parse(ConfigurationParser, Path, Charset)}, which may hold evaluated derived values of the same content.
+     */
+    public ConfigTemplate parseTemplate(final ConfigurationParser parser, final Path configFile, final Charset charset) throws IOException, ParsingException {
+        final MessageDigest digest = newDigest(charset);
+        digest.update(TEMPLATE_KEY);
+        final Path entry = entry(digest(digest, configFile));
+        final Config cached = read(entry);
+        if (cached != null) {
+            hits.increment();
+            return new ConfigTemplate(cached, new DerivedValues(), "");
+        }
+        misses.increment();
+        final ConfigTemplate template = parser.parseTemplate(configFile, charset);
+        if (template.isPlain()) {
+            write(entry, template.getConfig());
+        }
+        return template;
+    }
+
+    /**
+     * Cached config of the content, or the config parsed by the parser, if not cached yet
+     */
+    public Config parse(final ConfigurationParser parser, final byte[] content, final Charset charset) throws IOException, ParsingException {
+        final MessageDigest digest = newDigest(charset);
+        digest.update(content);
+        final Path entry = entry(digest);
+        final Config cached = read(entry);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        return parsed(entry, parser.parseTemplate(new ByteArrayInputStream(content), charset));
+    }
+
+    /**
+     * Parses served from the cache
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Parses not found in the cache, parsed by the parser
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Store the parsed config, unless it includes other files. The entry is keyed by the content of the config file
+     * only, so it would be used also after a change of an included file.
+     */
+    private Config parsed(final Path entry, final ConfigTemplate template) {
+        misses.increment();
+        if (template.getIncludedFiles().isEmpty()) {
+            write(entry, template.getConfig());
+        }
+        return template.getConfig();
+    }
+
+    private static MessageDigest digest(final MessageDigest digest, final Path configFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(configFile, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            for (long position = 0; position < size; position += Integer.MAX_VALUE) {
+                digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(Integer.MAX_VALUE, size - position)));
+            }
+        }
+        return digest;
+    }
+
+    private Path entry(final MessageDigest digest) {
+        final StringBuilder name = new StringBuilder();
+        for (byte b : digest.digest()) {
+            name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return directory.resolve(name.append(ENTRY_SUFFIX).toString());
+    }
+
+    /**
+     * @return the cached config, null if not cached or the entry can't be read
+     */
+    private Config read(final Path entry) {
+        final byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(entry);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            logger.warn("Failed to read parse cache entry " + entry + ": " + e);
+            return null;
+        }
+        final Config config = decode(bytes);
+        if (config == null) {
+            logger.warn("Corrupted parse cache entry " + entry + " deleted");
+            delete(entry);
+            return null;
+        }
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // evicted concurrently, the config is already read
+        }
+        return config;
+    }
+
+    private void write(final Path entry, final Config config) {
+        try {
+            Files.createDirectories(directory);
+            final Path temp = Files.createTempFile(directory, entry.getFileName().toString(), ".tmp");
+            try {
+                Files.write(temp, encode(config));
+                try {
+                    Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            evict();
+        } catch (IOException e) {
+            logger.warn("Failed to write parse cache entry " + entry + ": " + e);
+        }
+    }
+
+    /**
+     * Delete the least recently used entries, until the cache fits its size limit
+     */
+    private void evict() throws IOException {
+        final Map<Path, BasicFileAttributes> entries = new HashMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + ENTRY_SUFFIX)) {
+            for (Path entry : stream) {
+                try {
+                    entries.put(entry, Files.readAttributes(entry, BasicFileAttributes.class));
+                } catch (NoSuchFileException e) {
+                    // evicted concurrently
+                }
+            }
+        }
+        long total = entries.values().stream().mapToLong(BasicFileAttributes::size).sum();
+        if (total <= maxBytes) {
+            return;
+        }
+        final List<Path> byUsage = new ArrayList<>(entries.keySet());
+        byUsage.sort(Comparator.comparing(entry -> entries.get(entry).lastModifiedTime()));
+        for (Path entry : byUsage) {
+            if (total <= maxBytes) {
+                break;
+            }
+            delete(entry);
+            total -= entries.get(entry).size();
+        }
+    }
+
+    private static void delete(final Path entry) {
+        try {
+            Files.deleteIfExists(entry);
+        } catch (IOException e) {
+            logger.warn("Failed to delete parse cache entry " + entry + ": " + e);
+        }
+    }
+
+    static byte[] encode(final Config config) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(config.getSections().size());
+        for (Section section : config.getSections()) {
+            writeString(out, section.getName());
+            out.writeInt(section.size());
+            for (int i = 0; i < section.size(); i++) {
+                writeString(out, section.getKey(i));
+                final ValueType type = section.getType(i);
+                out.writeByte(type.ordinal());
+                switch (type) {
+                    case INT:
+                        out.writeInt(section.getInt(i));
+                        break;
+                    case LONG:
+                        out.writeLong(section.getLong(i));
+                        break;
+                    case DOUBLE:
+                        out.writeDouble(section.getDouble(i));
+                        break;
+                    case BOOLEAN:
+                        out.writeBoolean(section.getBoolean(i));
+                        break;
+                    default:
+                        writeString(out, section.getString(i));
+                }
+            }
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeLong(crc.getValue());
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return the decoded config, null if the bytes are not a valid entry
+     */
+    static Config decode(final byte[] bytes) {
+        if (bytes.length < 20) {
+            return null;
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 8);
+        if (crc.getValue() != ByteBuffer.wrap(bytes, bytes.length - 8, 8).getLong()) {
+            return null;
+        }
+        final ValueType[] types = ValueType.values();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 8))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            final int sectionCount = in.readInt();
+            final List<Section> sections = new ArrayList<>(Math.min(sectionCount, 1024));
+            for (int s = 0; s < sectionCount; s++) {
+                final String name = readString(in);
+                final int size = in.readInt();
+                final Section.Builder builder = new Section.Builder(name, Math.min(size, 1024));
+                for (int i = 0; i < size; i++) {
+                    final String key = readString(in);
+                    final int type = in.readUnsignedByte();
+                    if (type >= types.length) {
+                        return null;
+                    }
+                    switch (types[type]) {
+                        case INT:
+                            builder.add(key, in.readInt());
+                            break;
+                        case LONG:
+                            builder.add(key, in.readLong());
+                            break;
+                        case DOUBLE:
+                            builder.add(key, in.readDouble());
+                            break;
+                        case BOOLEAN:
+                            builder.add(key, in.readBoolean());
+                            break;
+                        default:
+                            builder.add(key, readString(in));
+                    }
+                }
+                sections.add(builder.build());
+            }
+            return in.available() == 0 ? new Config(sections) : null;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Length prefixed UTF-8, unlike {@link DataOutputStream#writeUTF(String)} not limited to 64K bytes
+     */
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Invalid string length " + length);
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static MessageDigest newDigest(final Charset charset) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((FORMAT_VERSION + "|" + ConfigurationParser.LANGUAGE_VERSION + "|" + charset.name() + "|").getBytes(StandardCharsets.UTF_8));
+            return digest;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package cz.tomasdvorak.codegen.parser;
+
+/**
+ * Implementation used by the {@link ConfigurationParser} to read the config. Both engines accept exactly the same
+ * language and produce the same {@link cz.tomasdvorak.codegen.dto.Config} tree.
+ */
+public enum ParserEngine {
+    /**
+     * Parboiled based {@link ConfigurationGrammar}. Readable reference implementation of the language.
+     */
+    PARBOILED,
+
+    /**
+     * Hand-written single pass {@link ConfigurationScanner}. No parser construction and no backtracking.
+     */
+    SCANNER
+}
@@ -0,0 +1,124 @@
+package cz.tomasdvorak.codegen.parser.utils;
+
+import org.parboiled.buffers.InputBuffer;
+import org.parboiled.errors.ParserRuntimeException;
+import org.parboiled.support.Chars;
+import org.parboiled.support.IndexRange;
+import org.parboiled.support.Position;
+
+import java.util.Arrays;
+
+/**
+ * Parboiled input buffer reading directly from any {@link CharSequence}. The default buffer requires a char array
+ * copy of the whole input, this one parses mapped or decoded input in place. Behaves exactly as the
+ * {@link org.parboiled.buffers.DefaultInputBuffer}.
+ */
+public class CharSequenceInputBuffer implements InputBuffer {
+
+    private final CharSequence input;
+    private final int length;
+
+    /**
+     * Positions of all line breaks, built lazily, only needed for error reporting
+     */
+    private int[] newlines;
+
+    public CharSequenceInputBuffer(final CharSequence input) {
+        this.input = input;
+        this.length = input.length();
+    }
+
+    @Override
+    public char charAt(final int index) {
+        if (0 <= index && index < length) {
+            return input.charAt(index);
+        }
+        if (index - length > 100000) {
+            throw new ParserRuntimeException("Parser read more than 100K chars beyond EOI, verify that your grammar does not consume EOI indefinitely!");
+        }
+        return Chars.EOI;
+    }
+
+    @Override
+    public boolean test(final int index, final char[] characters) {
+        if (index < 0 || index > length - characters.length) {
+            return false;
+        }
+        for (int i = 0; i < characters.length; i++) {
+            if (input.charAt(index + i) != characters[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String extract(int start, int end) {
+        if (start < 0) {
+            start = 0;
+        }
+        if (end >= length) {
+            end = length;
+        }
+        if (end <= start) {
+            return "";
+        }
+        return input.subSequence(start, end).toString();
+    }
+
+    @Override
+    public String extract(final IndexRange range) {
+        return extract(range.start, Math.min(range.end, length));
+    }
+
+    @Override
+    public Position getPosition(final int index) {
+        buildNewlines();
+        int line = Arrays.binarySearch(newlines, index);
+        line = line >= 0 ? line : -(line + 1);
+        final int column = index - (line > 0 ? newlines[line - 1] : -1);
+        return new Position(line + 1, column);
+    }
+
+    @Override
+    public int getOriginalIndex(final int index) {
+        return index;
+    }
+
+    @Override
+    public String extractLine(final int lineNumber) {
+        buildNewlines();
+        if (lineNumber <= 0 || lineNumber > newlines.length + 1) {
+            throw new IllegalArgumentException("Line " + lineNumber + " doesn't exist");
+        }
+        final int start = lineNumber > 1 ? newlines[lineNumber - 2] + 1 : 0;
+        int end = lineNumber <= newlines.length ? newlines[lineNumber - 1] : length;
+        if (charAt(end - 1) == '\r') {
+            end--;
+        }
+        return extract(start, end);
+    }
+
+    @Override
+    public int getLineCount() {
+        buildNewlines();
+        return newlines.length + 1;
+    }
+
+    private void buildNewlines() {
+        if (newlines != null) {
+            return;
+        }
+        int count = 0;
+        int[] positions = new int[16];
+        for (int i = 0; i < length; i++) {
+            if (input.charAt(i) == '\n') {
+                if (count == positions.length) {
+                    positions = Arrays.copyOf(positions, count * 2);
+                }
+                positions[count++] = i;
+            }
+        }
+        newlines = Arrays.copyOf(positions, count);
+    }
+}
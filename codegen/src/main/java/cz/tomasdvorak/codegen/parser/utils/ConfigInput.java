@@ -0,0 +1,166 @@
+package cz.tomasdvorak.codegen.parser.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads config sources to a {@link CharSequence} consumed by the parser, always with an explicit charset.
+ *
+ * Files are memory-mapped. ASCII-only content of a single byte compatible charset (the usual case of generated configs)
+ * is used in place, without copying it to the heap at all. Everything else is decoded chunk by chunk into a single
+ * char buffer.
+ */
+public final class ConfigInput {
+
+    /**
+     * Size of one mapped window, decoded at once
+     */
+    static final int DEFAULT_CHUNK_SIZE = 64 * 1024 * 1024;
+
+    private ConfigInput() {
+    }
+
+    public static CharSequence read(final Path path, final Charset charset) throws IOException {
+        return read(path, charset, DEFAULT_CHUNK_SIZE);
+    }
+
+    static CharSequence read(final Path path, final Charset charset, final int chunkSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Config file " + path + " is too large, " + size + " bytes");
+            }
+            if (size <= chunkSize && isAsciiCompatible(charset)) {
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                if (isAscii(buffer)) {
+                    return new AsciiCharSequence(buffer);
+                }
+            }
+            return decode(channel, size, newDecoder(charset), chunkSize);
+        } catch (CharacterCodingException e) {
+            throw new IOException("Config file " + path + " is not a valid " + charset.name() + " content", e);
+        }
+    }
+
+    public static CharSequence read(final InputStream inputStream, final Charset charset) throws IOException {
+        return read(new InputStreamReader(inputStream, newDecoder(charset)));
+    }
+
+    public static CharSequence read(final Reader reader) throws IOException {
+        final StringBuilder content = new StringBuilder();
+        final char[] buffer = new char[8192];
+        int read;
+        while ((read = reader.read(buffer)) >= 0) {
+            content.append(buffer, 0, read);
+        }
+        return content;
+    }
+
+    private static CharBuffer decode(final FileChannel channel, final long size, final CharsetDecoder decoder, final int chunkSize) throws IOException {
+        CharBuffer out = CharBuffer.allocate((int) Math.min(Integer.MAX_VALUE - 8, (long) Math.ceil(size * (double) decoder.averageCharsPerByte())));
+        long position = 0;
+        long windowSize = chunkSize;
+        while (true) {
+            final long window = Math.min(windowSize, size - position);
+            final boolean last = position + window == size;
+            final MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, position, window);
+            CoderResult result = decoder.decode(in, out, last);
+            while (result.isOverflow()) {
+                out = grow(out);
+                result = decoder.decode(in, out, last);
+            }
+            if (result.isError()) {
+                result.throwException();
+            }
+            // incomplete multi-byte sequence at the end of the window stays unconsumed, next window starts with it
+            position += in.position();
+            if (last) {
+                break;
+            }
+            // window smaller than one encoded char makes no progress, it's extended until the char fits
+            windowSize = in.position() == 0 ? windowSize * 2 : chunkSize;
+        }
+        while (decoder.flush(out).isOverflow()) {
+            out = grow(out);
+        }
+        out.flip();
+        return out;
+    }
+
+    private static CharBuffer grow(final CharBuffer buffer) {
+        final CharBuffer bigger = CharBuffer.allocate(Math.max(16, buffer.capacity() * 2));
+        buffer.flip();
+        bigger.put(buffer);
+        return bigger;
+    }
+
+    private static CharsetDecoder newDecoder(final Charset charset) {
+        return charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+    }
+
+    private static boolean isAsciiCompatible(final Charset charset) {
+        return charset.equals(StandardCharsets.UTF_8)
+                || charset.equals(StandardCharsets.US_ASCII)
+                || charset.equals(StandardCharsets.ISO_8859_1);
+    }
+
+    private static boolean isAscii(final ByteBuffer buffer) {
+        for (int i = 0; i < buffer.limit(); i++) {
+            if (buffer.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Char sequence view of ASCII bytes, every byte is one char
+     */
+    private static class AsciiCharSequence implements CharSequence {
+        private final ByteBuffer bytes;
+
+        AsciiCharSequence(final ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int length() {
+            return bytes.limit();
+        }
+
+        @Override
+        public char charAt(final int index) {
+            return (char) bytes.get(index);
+        }
+
+        @Override
+        public CharSequence subSequence(final int start, final int end) {
+            final ByteBuffer slice = bytes.duplicate();
+            slice.position(start).limit(end);
+            return new AsciiCharSequence(slice.slice());
+        }
+
+        @Override
+        public String toString() {
+            final byte[] content = new byte[bytes.limit()];
+            bytes.duplicate().get(content);
+            return new String(content, StandardCharsets.US_ASCII);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package cz.tomasdvorak.codegen.parser.utils;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Overlay doesn't fit its base config. Contains all violations, not only the first one.
+ */
+public class OverlayException extends Exception {
+
+    private final List<String> errors;
+
+    public OverlayException(final String message, final List<String> errors) {
+        super(message + " " + String.join(", ", errors));
+        this.errors = Collections.unmodifiableList(errors);
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+}
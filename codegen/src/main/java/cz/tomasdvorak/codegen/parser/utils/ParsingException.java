@@ -1,7 +1,37 @@
 package cz.tomasdvorak.codegen.parser.utils;
 
+import cz.tomasdvorak.codegen.dto.Config;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
 public class ParsingException extends Exception {
+
+    private final List<SyntaxError> errors;
+    private final Config partialConfig;
+
     public ParsingException(final String message) {
+        this(message, Collections.emptyList(), null);
+    }
+
+    public ParsingException(final String message, final List<SyntaxError> errors, final Config partialConfig) {
         super(message);
+        this.errors = Collections.unmodifiableList(errors);
+        this.partialConfig = partialConfig;
+    }
+
+    /**
+     * All syntax errors found in the config, empty if the failure isn't related to a position in the file
+     */
+    public List<SyntaxError> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Sections and assignments parsed successfully despite the errors, for tooling
+     */
+    public Optional<Config> getPartialConfig() {
+        return Optional.ofNullable(partialConfig);
     }
 }
@@ -0,0 +1,65 @@
+package cz.tomasdvorak.codegen.parser.utils;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * One syntax error of a config file, positions are 1-based
+ */
+public class SyntaxError {
+    private final String file;
+    private final int line;
+    private final int column;
+    private final String message;
+
+    public SyntaxError(final int line, final int column, final String message) {
+        this(null, line, column, message);
+    }
+
+    /**
+     * @param file included file with the error, null for the parsed config itself
+     */
+    public SyntaxError(final String file, final int line, final int column, final String message) {
+        this.file = file;
+        this.line = line;
+        this.column = column;
+        this.message = message;
+    }
+
+    /**
+     * Included file with the error, empty if the error is in the parsed config itself
+     */
+    public Optional<String> getFile() {
+        return Optional.ofNullable(file);
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final SyntaxError that = (SyntaxError) o;
+        return line == that.line && column == that.column && Objects.equals(file, that.file) && Objects.equals(message, that.message);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(file, line, column, message);
+    }
+
+    @Override
+    public String toString() {
+        return message + " (" + (file == null ? "" : file + ", ") + "line " + line + ", pos " + column + ")";
+    }
+}
@@ -0,0 +1,91 @@
+package cz.tomasdvorak.codegen.pipeline;
+
+import cz.tomasdvorak.codegen.dto.Section;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Generates and writes sections one by one on a bounded pool. At most {@code capacity} sections are queued or being
+ * processed at once, the caller blocks until a slot is free. Memory held by generated sources therefore depends on
+ * the number of sections in flight, not on the config size.
+ *
+ * The first failure, including errors like {@link OutOfMemoryError}, stops submitting of further sections and is
+ * rethrown to the caller, once all running tasks finish.
+ */
+public class SectionPipeline {
+
+    public interface SectionTask {
+        void process(Section section) throws IOException;
+    }
+
+    private final int threads;
+    private final int capacity;
+
+    public SectionPipeline(final int threads) {
+        this(threads, threads * 2);
+    }
+
+    /**
+     * @param capacity sections queued or processed at once, capacity smaller than threads limits the parallelism
+     */
+    public SectionPipeline(final int threads, final int capacity) {
+        if (threads < 1 || capacity < 1) {
+            throw new IllegalArgumentException("Pipeline needs at least one thread and capacity of at least one section");
+        }
+        this.threads = threads;
+        this.capacity = capacity;
+    }
+
+    public void run(final Iterable<Section> sections, final SectionTask task) throws IOException {
+        if (threads == 1) {
+            for (Section section : sections) {
+                task.process(section);
+            }
+            return;
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final Semaphore slots = new Semaphore(capacity);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        try {
+            for (Section section : sections) {
+                if (failure.get() != null) {
+                    break;
+                }
+                slots.acquire();
+                executor.execute(() -> {
+                    try {
+                        if (failure.get() == null) {
+                            task.process(section);
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        slots.release();
+                    }
+                });
+            }
+            // all slots free again, when every submitted section is done
+            slots.acquire(capacity);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Generation of classes interrupted");
+        } finally {
+            executor.shutdownNow();
+        }
+
+        final Throwable e = failure.get();
+        if (e instanceof IOException) {
+            throw (IOException) e;
+        } else if (e instanceof Error) {
+            throw (Error) e;
+        } else if (e != null) {
+            throw (RuntimeException) e;
+        }
+    }
+}
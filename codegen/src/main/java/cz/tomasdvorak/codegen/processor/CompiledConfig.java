@@ -0,0 +1,25 @@
+package cz.tomasdvorak.codegen.processor;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Compile the referenced config file into classes of the annotated package, see {@link CompiledConfigProcessor}.
+ * Place the annotation into package-info.java:
+ *
+ * <pre>
+ * &#64;CompiledConfig("settings.cfg")
+ * package cz.tomasdvorak.myapp.settings;
+ * </pre>
+ */
+@Target(ElementType.PACKAGE)
+@Retention(RetentionPolicy.SOURCE)
+public @interface CompiledConfig {
+
+    /**
+     * Path of the config file, relative to the root of resources (or sources)
+     */
+    String value();
+}
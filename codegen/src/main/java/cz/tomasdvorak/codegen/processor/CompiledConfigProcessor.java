@@ -0,0 +1,241 @@
+package cz.tomasdvorak.codegen.processor;
+
+import cz.tomasdvorak.codegen.dto.Config;
+import cz.tomasdvorak.codegen.dto.Section;
+import cz.tomasdvorak.codegen.generator.EmitterType;
+import cz.tomasdvorak.codegen.generator.SourceEmitter;
+import cz.tomasdvorak.codegen.parser.ConfigTemplate;
+import cz.tomasdvorak.codegen.parser.ConfigurationParser;
+import cz.tomasdvorak.codegen.parser.ParseCache;
+import cz.tomasdvorak.codegen.parser.ParserEngine;
+import cz.tomasdvorak.codegen.parser.utils.ParsingException;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileManager;
+import javax.tools.StandardLocation;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs the codegen inside javac. Config referenced by {@link CompiledConfig} is parsed and its classes are emitted
+ * through the {@link javax.annotation.processing.Filer}, so they are compiled in the same pass as the code using them.
+ *
+ * Config file is looked up in the class output (where maven copies resources before compilation) and then in the
+ * source path. Included files are relative to the config file, if it's a file of the local file system, otherwise
+ * to the working directory of the compiler. Parsed and generated sources are cached by the content hashes of the config
+ * and of all its included files, a compiler running in a long living JVM (IDE, build daemon) parses and generates
+ * again only when any of them changes.
+ *
+ * Supported options (-Akey=value): codegen.engine, codegen.emitter, codegen.encoding of config files and
+ * codegen.parseCache directory, keeping parsed configs across compiler runs, see {@link ParseCache}.
+ */
+@SupportedAnnotationTypes("cz.tomasdvorak.codegen.processor.CompiledConfig")
+@SupportedOptions({CompiledConfigProcessor.ENGINE_OPTION, CompiledConfigProcessor.EMITTER_OPTION, CompiledConfigProcessor.ENCODING_OPTION,
+        CompiledConfigProcessor.PARSE_CACHE_OPTION})
+public class CompiledConfigProcessor extends AbstractProcessor {
+
+    static final String ENGINE_OPTION = "codegen.engine";
+    static final String EMITTER_OPTION = "codegen.emitter";
+    static final String ENCODING_OPTION = "codegen.encoding";
+    static final String PARSE_CACHE_OPTION = "codegen.parseCache";
+
+    private static final JavaFileManager.Location[] CONFIG_LOCATIONS = {StandardLocation.CLASS_OUTPUT, StandardLocation.SOURCE_PATH};
+
+    /**
+     * Generated sources of already processed configs, shared by all compilations running in this JVM
+     */
+    private static final Map<String, GeneratedConfig> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * Packages generated in this compilation, the annotation may be reported in more rounds
+     */
+    private final Set<String> generatedPackages = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(CompiledConfig.class)) {
+            final PackageElement packageElement = (PackageElement) element;
+            final String targetPackage = packageElement.getQualifiedName().toString();
+            if (generatedPackages.add(targetPackage)) {
+                generate(packageElement, targetPackage, element.getAnnotation(CompiledConfig.class).value());
+            }
+        }
+        return true;
+    }
+
+    private void generate(final PackageElement packageElement, final String targetPackage, final String configFile) {
+        try {
+            final FileObject resource = findConfig(configFile);
+            if (resource == null) {
+                error("Config file " + configFile + " not found in class output nor source path", packageElement);
+                return;
+            }
+            final byte[] content = readAll(resource);
+            final String key = resource.toUri() + "|" + targetPackage + "|" + option(ENGINE_OPTION, "PARBOILED") + "|" + option(EMITTER_OPTION, "ROASTER");
+            GeneratedConfig generated = CACHE.get(key);
+            if (generated == null || !generated.isGeneratedFrom(content)) {
+                generated = generateSources(resource, content, targetPackage);
+                CACHE.put(key, generated);
+            } else {
+                note("Config " + configFile + " has not changed, using cached sources");
+            }
+            for (Map.Entry<String, String> source : generated.sources.entrySet()) {
+                try (Writer writer = processingEnv.getFiler().createSourceFile(targetPackage + "." + source.getKey(), packageElement).openWriter()) {
+                    writer.write(source.getValue());
+                }
+            }
+            note("Config " + configFile + " compiled into " + generated.sources.size() + " classes of package " + targetPackage);
+        } catch (ParsingException e) {
+            error("Failed to parse config " + configFile + ": " + e.getMessage(), packageElement);
+        } catch (IOException | RuntimeException e) {
+            error("Failed to generate classes of config " + configFile + ": " + e, packageElement);
+        }
+    }
+
+    private GeneratedConfig generateSources(final FileObject resource, final byte[] content, final String targetPackage) throws IOException, ParsingException {
+        final ParserEngine engine = ParserEngine.valueOf(option(ENGINE_OPTION, "PARBOILED").toUpperCase(Locale.ROOT));
+        final SourceEmitter emitter = EmitterType.valueOf(option(EMITTER_OPTION, "ROASTER").toUpperCase(Locale.ROOT)).create(targetPackage);
+        final Charset charset = Charset.forName(option(ENCODING_OPTION, ConfigurationParser.DEFAULT_CHARSET.name()));
+
+        final String parseCache = option(PARSE_CACHE_OPTION, null);
+        final ConfigurationParser parser = new ConfigurationParser(engine);
+        final Config config;
+        final List<Path> includedFiles;
+        if ("file".equals(resource.toUri().getScheme())) {
+            final Path configFile = Paths.get(resource.toUri());
+            final ConfigTemplate template = parseCache == null
+                    ? parser.parseTemplate(configFile, charset)
+                    : new ParseCache(Paths.get(parseCache)).parseTemplate(parser, configFile, charset);
+            config = template.getConfig();
+            includedFiles = template.getIncludedFiles();
+        } else {
+            config = parseCache == null
+                    ? parser.parse(new ByteArrayInputStream(content), charset)
+                    : new ParseCache(Paths.get(parseCache)).parse(parser, content, charset);
+            includedFiles = Collections.emptyList();
+        }
+        final Map<String, String> sources = new LinkedHashMap<>();
+        for (Section section : config.getSections()) {
+            final StringWriter writer = new StringWriter();
+            emitter.emit(section, writer);
+            sources.put(section.getName(), writer.toString());
+        }
+        return new GeneratedConfig(content, includedFiles, sources);
+    }
+
+    private FileObject findConfig(final String configFile) {
+        for (JavaFileManager.Location location : CONFIG_LOCATIONS) {
+            try {
+                final FileObject resource = processingEnv.getFiler().getResource(location, "", configFile);
+                try (InputStream ignored = resource.openInputStream()) {
+                    return resource;
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                // not available in this location, try the next one
+            }
+        }
+        return null;
+    }
+
+    private static byte[] readAll(final FileObject resource) throws IOException {
+        try (InputStream in = resource.openInputStream()) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private String option(final String name, final String defaultValue) {
+        final String value = processingEnv.getOptions().get(name);
+        return value == null ? defaultValue : value;
+    }
+
+    private void note(final String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, message);
+    }
+
+    private void error(final String message, final Element element) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    /**
+     * Sources generated from one version of a config file and of the files included by it
+     */
+    private static class GeneratedConfig {
+        private final byte[] hash;
+        private final Map<Path, byte[]> includedHashes = new LinkedHashMap<>();
+        private final Map<String, String> sources;
+
+        private GeneratedConfig(final byte[] content, final List<Path> includedFiles, final Map<String, String> sources) throws IOException {
+            this.hash = sha256(content);
+            for (Path file : includedFiles) {
+                includedHashes.put(file, sha256(Files.readAllBytes(file)));
+            }
+            this.sources = sources;
+        }
+
+        /**
+         * The config and all its included files have the same content, an included file which can't be read is a change
+         */
+        private boolean isGeneratedFrom(final byte[] content) {
+            if (!Arrays.equals(hash, sha256(content))) {
+                return false;
+            }
+            for (Map.Entry<Path, byte[]> included : includedHashes.entrySet()) {
+                try {
+                    if (!Arrays.equals(included.getValue(), sha256(Files.readAllBytes(included.getKey())))) {
+                        return false;
+                    }
+                } catch (IOException e) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static byte[] sha256(final byte[] content) {
+            try {
+                return MessageDigest.getInstance("SHA-256").digest(content);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+    }
+}
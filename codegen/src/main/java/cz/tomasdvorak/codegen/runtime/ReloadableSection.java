@@ -0,0 +1,194 @@
+package cz.tomasdvorak.codegen.runtime;
+
+import cz.tomasdvorak.codegen.dto.Config;
+import cz.tomasdvorak.codegen.dto.Section;
+import cz.tomasdvorak.codegen.dto.ValueType;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+import java.lang.invoke.SwitchPoint;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Values of one section of a class generated by the {@link cz.tomasdvorak.codegen.generator.EmitterType#RELOADABLE}
+ * emitter. Every key is read through its own call site, whose target returns a constant guarded by the switch point of
+ * the current value set. The JIT folds the constant into the compiled code like a static final field.
+ *
+ * Reload creates a new value set and invalidates the switch point of the previous one, which deoptimizes the dependent
+ * code once. The first read of every key afterwards relinks its call site to the new constant.
+ */
+public final class ReloadableSection {
+
+    private static final MethodHandle RELINK;
+
+    static {
+        try {
+            RELINK = MethodHandles.lookup().findVirtual(ReloadableSection.class, "relink", MethodType.methodType(Object.class, int.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private final String name;
+    private final String[] keys;
+    private final ValueType[] types;
+    private final MutableCallSite[] sites;
+
+    private volatile ValueSet current;
+
+    /**
+     * @param values initial values, boxed constants of the config
+     */
+    public ReloadableSection(final String name, final String[] keys, final Object[] values) {
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException("Section " + name + " has " + keys.length + " keys, but " + values.length + " values");
+        }
+        this.name = name;
+        this.keys = keys.clone();
+        this.types = new ValueType[keys.length];
+        for (int i = 0; i < values.length; i++) {
+            types[i] = typeOf(values[i]);
+        }
+        this.current = new ValueSet(values.clone());
+        this.sites = new MutableCallSite[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            sites[i] = new MutableCallSite(target(i, current));
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return handle without arguments, returning the current value of the key with given index
+     */
+    public MethodHandle getter(final int index) {
+        return sites[index].dynamicInvoker();
+    }
+
+    /**
+     * Replace all values by values of the same keys in given section
+     * @throws IllegalArgumentException if the section doesn't have exactly the same keys of the same types
+     */
+    public void reload(final Section section) {
+        SwitchPoint.invalidateAll(new SwitchPoint[]{apply(valuesOf(section))});
+    }
+
+    /**
+     * Reload all given sections from the config, for example parsed again by the
+     * {@link cz.tomasdvorak.codegen.parser.ConfigurationParser}. All sections are validated before any of them is
+     * changed, and the previous values of all of them are invalidated at once.
+     * @throws IllegalArgumentException if a section is missing in the config or differs in keys or types
+     */
+    public static void reload(final Config config, final ReloadableSection... sections) {
+        final List<Object[]> values = new ArrayList<>(sections.length);
+        for (ReloadableSection section : sections) {
+            values.add(section.valuesOf(config.getSection(section.name)
+                    .orElseThrow(() -> new IllegalArgumentException("Section " + section.name + " not found in the config"))));
+        }
+        final SwitchPoint[] previous = new SwitchPoint[sections.length];
+        for (int i = 0; i < sections.length; i++) {
+            previous[i] = sections[i].apply(values.get(i));
+        }
+        SwitchPoint.invalidateAll(previous);
+    }
+
+    /**
+     * Checked exceptions can't be thrown by the getter, anything else is rethrown as is
+     */
+    public static RuntimeException rethrow(final Throwable e) {
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        throw new IllegalStateException(e);
+    }
+
+    /**
+     * @return switch point of the replaced value set, to be invalidated
+     */
+    private synchronized SwitchPoint apply(final Object[] values) {
+        final ValueSet previous = current;
+        current = new ValueSet(values);
+        return previous.switchPoint;
+    }
+
+    private Object[] valuesOf(final Section section) {
+        if (section.size() != keys.length) {
+            throw new IllegalArgumentException("Section " + name + " has " + section.size() + " keys, " + keys.length + " expected");
+        }
+        final Object[] values = new Object[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            final int index = section.indexOf(keys[i]);
+            if (index < 0) {
+                throw new IllegalArgumentException("Key " + name + "." + keys[i] + " not found");
+            }
+            if (section.getType(index) != types[i]) {
+                throw new IllegalArgumentException("Key " + name + "." + keys[i] + " has type " + section.getType(index) + ", " + types[i] + " expected");
+            }
+            values[i] = section.getValue(index);
+        }
+        return values;
+    }
+
+    /**
+     * Called only by the call site of an invalidated value set
+     */
+    private Object relink(final int index) {
+        final ValueSet values = current;
+        sites[index].setTarget(target(index, values));
+        return values.values[index];
+    }
+
+    private MethodHandle target(final int index, final ValueSet values) {
+        final Class<?> type = javaType(types[index]);
+        final MethodHandle constant = MethodHandles.constant(type, values.values[index]);
+        final MethodHandle fallback = MethodHandles.insertArguments(RELINK, 0, this, index).asType(MethodType.methodType(type));
+        return values.switchPoint.guardWithTest(constant, fallback);
+    }
+
+    private static ValueType typeOf(final Object value) {
+        if (value instanceof Integer) {
+            return ValueType.INT;
+        } else if (value instanceof Long) {
+            return ValueType.LONG;
+        } else if (value instanceof Double) {
+            return ValueType.DOUBLE;
+        } else if (value instanceof Boolean) {
+            return ValueType.BOOLEAN;
+        } else if (value instanceof String) {
+            return ValueType.STRING;
+        }
+        throw new IllegalArgumentException("Unsupported value " + value);
+    }
+
+    private static Class<?> javaType(final ValueType type) {
+        switch (type) {
+            case INT:
+                return int.class;
+            case LONG:
+                return long.class;
+            case DOUBLE:
+                return double.class;
+            case BOOLEAN:
+                return boolean.class;
+            default:
+                return String.class;
+        }
+    }
+
+    private static final class ValueSet {
+        private final Object[] values;
+        private final SwitchPoint switchPoint = new SwitchPoint();
+
+        private ValueSet(final Object[] values) {
+            this.values = values;
+        }
+    }
+}
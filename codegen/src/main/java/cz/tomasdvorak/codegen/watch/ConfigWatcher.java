@@ -0,0 +1,170 @@
+package cz.tomasdvorak.codegen.watch;
+
+import cz.tomasdvorak.codegen.Codegen;
+import cz.tomasdvorak.codegen.dto.Config;
+import cz.tomasdvorak.codegen.dto.Section;
+import cz.tomasdvorak.codegen.parser.ConfigTemplate;
+import org.apache.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Daemon mode of the codegen. Watches the config file and all files included by it, and regenerates classes whenever
+ * any of them changes, reusing the same warmed-up {@link Codegen}. Included files are taken from the last successful
+ * parse, directories of newly included files are watched from then on, directories no longer needed are released.
+ * Only classes of changed sections are written, classes of removed sections are deleted, also of sections removed
+ * while the watcher wasn't running (see {@link Codegen#persistChanged}).
+ *
+ * Editors usually produce several events per save (truncate, write, rename), events arriving within the debounce
+ * interval trigger one regeneration only. Invalid config is reported and the watcher waits for the next change.
+ */
+public class ConfigWatcher implements Closeable {
+
+    private static final Logger logger = Logger.getLogger(ConfigWatcher.class);
+
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 100;
+
+    private final Codegen codegen;
+    private final Path configFile;
+    private final String targetPath;
+    private final String targetPackage;
+    private final long debounceMillis;
+    private final WatchService watchService;
+
+    /**
+     * Watched directories and their keys
+     */
+    private final Map<Path, WatchKey> directories = new HashMap<>();
+
+    /**
+     * The config file and real paths of all files included by it
+     */
+    private Set<Path> dependencies = Collections.emptySet();
+
+    /**
+     * Sections of the last successfully generated config, by name
+     */
+    private Map<String, Section> generated = Collections.emptyMap();
+
+    public ConfigWatcher(final Codegen codegen, final Path configFile, final String targetPath, final String targetPackage, final long debounceMillis) throws IOException {
+        this.codegen = codegen;
+        this.configFile = configFile.toAbsolutePath();
+        this.targetPath = targetPath;
+        this.targetPackage = targetPackage;
+        this.debounceMillis = debounceMillis;
+        this.watchService = this.configFile.getFileSystem().newWatchService();
+        watch(Collections.singleton(this.configFile));
+    }
+
+    /**
+     * Generate all classes and then regenerate on every change, until the watcher is closed or the thread interrupted.
+     */
+    public void run() throws InterruptedException {
+        logger.info("Watching " + configFile + " for changes");
+        regenerate();
+        try {
+            while (true) {
+                if (isConfigChanged(watchService.take())) {
+                    awaitQuietPeriod();
+                    regenerate();
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            logger.info("Watching " + configFile + " stopped");
+        }
+    }
+
+    /**
+     * Consume all events arriving within the debounce interval from the last one
+     */
+    private void awaitQuietPeriod() throws InterruptedException {
+        WatchKey key;
+        while ((key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+            isConfigChanged(key);
+        }
+    }
+
+    private boolean isConfigChanged(final WatchKey key) {
+        final Path directory = (Path) key.watchable();
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            changed |= event.kind() == StandardWatchEventKinds.OVERFLOW || dependencies.contains(directory.resolve((Path) event.context()));
+        }
+        key.reset();
+        return changed;
+    }
+
+    /**
+     * Watch directories of the files, single files can't be watched
+     */
+    private void watch(final Set<Path> files) throws IOException {
+        final Set<Path> needed = new HashSet<>();
+        for (Path file : files) {
+            needed.add(file.getParent());
+        }
+        for (Path directory : needed) {
+            if (!directories.containsKey(directory)) {
+                directories.put(directory, directory.register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.OVERFLOW));
+            }
+        }
+        directories.entrySet().removeIf(entry -> {
+            if (needed.contains(entry.getKey())) {
+                return false;
+            }
+            entry.getValue().cancel();
+            return true;
+        });
+        dependencies = files;
+    }
+
+    /**
+     * Parse the config and write classes of sections which differ from the last successful run
+     */
+    void regenerate() {
+        final long start = System.nanoTime();
+        try {
+            final ConfigTemplate template = codegen.parseTemplate(configFile.toString());
+            final Map<String, Section> sections = new LinkedHashMap<>();
+            template.getConfig().getSections().forEach(section -> sections.put(section.getName(), section));
+
+            final Set<String> changed = new HashSet<>();
+            for (Section section : sections.values()) {
+                if (!section.equals(generated.get(section.getName()))) {
+                    changed.add(section.getName());
+                }
+            }
+            // watched before the classes are written, a change made right after them is not missed
+            final Set<Path> files = new HashSet<>(template.getIncludedFiles());
+            files.add(configFile);
+            watch(files);
+
+            final int deleted = codegen.persistChanged(new Config(new ArrayList<>(sections.values())), changed, targetPath, targetPackage);
+            generated = sections;
+            logger.info(changed.size() + " classes regenerated, " + deleted + " deleted in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        } catch (Exception e) {
+            logger.error("Failed to regenerate classes of " + configFile + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
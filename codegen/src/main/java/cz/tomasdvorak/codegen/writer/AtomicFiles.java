@@ -0,0 +1,134 @@
+package cz.tomasdvorak.codegen.writer;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * File operations safe for concurrent builds writing the same output directories, e.g. modules of a parallel reactor
+ * build. Files are written to a temporary file next to the target and renamed, a reader (javac of another module) sees
+ * either the previous or the new content, never a partially written file.
+ */
+public final class AtomicFiles {
+
+    private AtomicFiles() {
+    }
+
+    /**
+     * Write the file atomically. If it already has the same content, e.g. written by a concurrent writer of the same
+     * output, it's left untouched, including its modification time.
+     * @return true if the file has been written, false if it already had the content
+     */
+    public static boolean write(final Path file, final SourceContent content) throws IOException {
+        final Path temp = createTempFile(file);
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                content.writeTo(out);
+            }
+            if (sameContent(temp, file)) {
+                return false;
+            }
+            copyPermissions(file, temp);
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * @see #write(Path, SourceContent)
+     */
+    public static boolean write(final Path file, final byte[] content) throws IOException {
+        return write(file, out -> out.write(content));
+    }
+
+    /**
+     * {@link Files#createDirectories}, tolerating the directory created by a concurrent build in the meantime
+     */
+    public static Path createDirectories(final Path directory) throws IOException {
+        try {
+            return Files.createDirectories(directory);
+        } catch (FileAlreadyExistsException e) {
+            if (Files.isDirectory(directory)) {
+                return directory;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Unlike {@link Files#createTempFile}, which restricts the file to its owner, the temporary file gets the same
+     * default permissions as any file created by the process, so does the renamed target
+     */
+    private static Path createTempFile(final Path file) throws IOException {
+        while (true) {
+            final Path temp = file.resolveSibling("." + file.getFileName() + "." + Long.toUnsignedString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+            try {
+                return Files.createFile(temp);
+            } catch (FileAlreadyExistsException e) {
+                // used by a concurrent writer, try another name
+            }
+        }
+    }
+
+    /**
+     * The rewritten file keeps permissions of the previous one, e.g. changed by the user
+     */
+    private static void copyPermissions(final Path file, final Path temp) throws IOException {
+        if (!Files.getFileStore(temp).supportsFileAttributeView(PosixFileAttributeView.class)) {
+            return;
+        }
+        try {
+            Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(file));
+        } catch (NoSuchFileException e) {
+            // new file, default permissions are kept
+        }
+    }
+
+    private static boolean sameContent(final Path written, final Path file) throws IOException {
+        try {
+            if (Files.size(written) != Files.size(file)) {
+                return false;
+            }
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        try (InputStream expected = Files.newInputStream(written); InputStream actual = Files.newInputStream(file)) {
+            final byte[] expectedBuffer = new byte[8192];
+            final byte[] actualBuffer = new byte[8192];
+            int read;
+            while ((read = expected.read(expectedBuffer)) > 0) {
+                int offset = 0;
+                while (offset < read) {
+                    final int actualRead = actual.read(actualBuffer, offset, read - offset);
+                    if (actualRead < 0) {
+                        return false;
+                    }
+                    offset += actualRead;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (expectedBuffer[i] != actualBuffer[i]) {
+                        return false;
+                    }
+                }
+            }
+            return actual.read() < 0;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package cz.tomasdvorak.codegen.writer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Exclusive lock of an output directory, held while generated files of the directory are written, pruned and their
+ * manifest saved. Threads of one JVM are serialized by an in-memory lock, processes by a {@link FileLock} of the lock
+ * file, in the directory by default. Reentrant, the thread holding the lock can acquire it again.
+ */
+public final class DirectoryLock implements Closeable {
+
+    static final String LOCK_FILE = ".codegen.lock";
+
+    /**
+     * In-memory locks by the real path of the lock file. An entry is removed when the last thread using it releases
+     * it, so a long running JVM (daemon, Maven with many projects) doesn't keep locks of all directories ever written.
+     */
+    static final Map<Path, Entry> LOCKS = new ConcurrentHashMap<>();
+
+    private final Path key;
+    private final Entry entry;
+    private final FileChannel channel; // null if the lock has been reentered
+    private final FileLock fileLock;
+
+    private DirectoryLock(final Path key, final Entry entry, final FileChannel channel, final FileLock fileLock) {
+        this.key = key;
+        this.entry = entry;
+        this.channel = channel;
+        this.fileLock = fileLock;
+    }
+
+    /**
+     * Create the directory if needed and wait for its lock
+     */
+    public static DirectoryLock acquire(final Path directory) throws IOException {
+        return acquire(directory, directory.resolve(LOCK_FILE));
+    }
+
+    /**
+     * Create the directory if needed and wait for its lock, held on the given lock file. A lock file outside the
+     * directory keeps the directory free of anything but the generated files, e.g. the classes directory which is
+     * packaged as it is.
+     */
+    public static DirectoryLock acquire(final Path directory, final Path lockFile) throws IOException {
+        AtomicFiles.createDirectories(directory);
+        final Path key = AtomicFiles.createDirectories(lockFile.toAbsolutePath().getParent()).toRealPath().resolve(lockFile.getFileName());
+        final Entry entry = LOCKS.compute(key, (path, existing) -> {
+            final Entry used = existing == null ? new Entry() : existing;
+            used.users++;
+            return used;
+        });
+        entry.lock.lock();
+        if (entry.lock.getHoldCount() > 1) {
+            return new DirectoryLock(key, entry, null, null);
+        }
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(key, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            return new DirectoryLock(key, entry, channel, lockFile(channel, directory));
+        } catch (IOException | RuntimeException e) {
+            if (channel != null) {
+                channel.close();
+            }
+            release(key, entry);
+            throw e;
+        }
+    }
+
+    private static FileLock lockFile(final FileChannel channel, final Path dir) throws IOException {
+        while (true) {
+            try {
+                return channel.lock();
+            } catch (OverlappingFileLockException e) {
+                // held by a copy of this class in another class loader, e.g. the annotation processor next to the plugin
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the lock of directory " + dir);
+                }
+            }
+        }
+    }
+
+    private static void release(final Path key, final Entry entry) {
+        entry.lock.unlock();
+        LOCKS.computeIfPresent(key, (path, existing) -> --existing.users == 0 ? null : existing);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (channel != null) {
+                try {
+                    fileLock.release();
+                } finally {
+                    channel.close();
+                }
+            }
+        } finally {
+            release(key, entry);
+        }
+    }
+
+    /**
+     * Lock with the number of threads holding or waiting for it, changed only inside of {@link Map#compute}
+     */
+    static final class Entry {
+        private final ReentrantLock lock = new ReentrantLock();
+        private int users;
+    }
+}
@@ -0,0 +1,237 @@
+package cz.tomasdvorak.codegen.writer;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes generated sources into one directory, touching only files whose content really changed. Hashes and
+ * modification times of all generated files are kept in a manifest file, inside the directory by default. A file modified since
+ * the previous run, e.g. edited by hand, is hashed again and restored if its content differs. Files listed in the
+ * previous manifest, but not generated anymore (section removed from the config), are deleted by {@link #prune()}.
+ *
+ * A build without any config change therefore doesn't modify a single file and the compiler can skip recompilation.
+ */
+public class IncrementalWriter {
+
+    private static final Logger logger = Logger.getLogger(IncrementalWriter.class);
+
+    static final String MANIFEST_FILE = ".codegen-manifest";
+
+    private final Path directory;
+    private final Path manifest;
+    private final Map<String, Entry> previous;
+    private final Map<String, Entry> current = new ConcurrentHashMap<>();
+
+    public IncrementalWriter(final Path directory) throws IOException {
+        this(directory, directory.resolve(MANIFEST_FILE));
+    }
+
+    /**
+     * @param manifest manifest file outside of the directory, e.g. of an output directory packaged as it is
+     */
+    public IncrementalWriter(final Path directory, final Path manifest) throws IOException {
+        this.directory = directory;
+        this.manifest = manifest;
+        this.previous = readManifest(manifest);
+    }
+
+    /**
+     * Write the file atomically, if its content differs from the previous run or the file doesn't exist anymore.
+     * @return true if the file has been written, false if it was up to date
+     */
+    public boolean write(final String fileName, final byte[] content) throws IOException {
+        return write(fileName, out -> out.write(content));
+    }
+
+    /**
+     * Streaming variant of {@link #write(String, byte[])}, the content is never held in memory. It's produced once to
+     * compute the hash and once more only if the file has to be written.
+     * @return true if the file has been written, false if it was up to date
+     */
+    public boolean write(final String fileName, final SourceContent content) throws IOException {
+        final MessageDigest digest = newDigest();
+        final CountingOutputStream counter = new CountingOutputStream();
+        try (OutputStream out = new DigestOutputStream(counter, digest)) {
+            content.writeTo(out);
+        }
+        final String hash = toHex(digest.digest());
+        final Path file = directory.resolve(fileName);
+        if (isUpToDate(file, hash, counter.count, previous.get(fileName))) {
+            current.put(fileName, new Entry(hash, Files.getLastModifiedTime(file).toMillis()));
+            return false;
+        }
+        final boolean written = AtomicFiles.write(file, content);
+        current.put(fileName, new Entry(hash, Files.getLastModifiedTime(file).toMillis()));
+        return written;
+    }
+
+    /**
+     * File is up to date if it has the hash of the previous run and hasn't been modified since, or if its content still
+     * has the hash
+     */
+    private static boolean isUpToDate(final Path file, final String hash, final long size, final Entry previous) throws IOException {
+        if (previous == null || !hash.equals(previous.hash) || !Files.exists(file) || Files.size(file) != size) {
+            return false;
+        }
+        if (Files.getLastModifiedTime(file).toMillis() == previous.modified) {
+            return true;
+        }
+        final MessageDigest digest = newDigest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            final byte[] buffer = new byte[8192];
+            while (in.read(buffer) >= 0) {
+                // only digested
+            }
+        }
+        return hash.equals(toHex(digest.digest()));
+    }
+
+    /**
+     * Keep the file generated by the previous run without generating its content again, it's not pruned then
+     * @return false if the file hasn't been generated by the previous run or doesn't exist anymore, it has to be
+     *         written then
+     */
+    public boolean keep(final String fileName) {
+        final Entry entry = previous.get(fileName);
+        if (entry == null || !Files.exists(directory.resolve(fileName))) {
+            return false;
+        }
+        current.put(fileName, entry);
+        return true;
+    }
+
+    /**
+     * Delete all files generated by the previous run, which haven't been generated by this one.
+     * @return names of deleted files
+     */
+    public List<String> prune() throws IOException {
+        final List<String> deleted = new ArrayList<>();
+        for (String fileName : previous.keySet()) {
+            if (!current.containsKey(fileName)) {
+                Files.deleteIfExists(directory.resolve(fileName));
+                logger.info("Stale file " + directory.resolve(fileName) + " deleted");
+                deleted.add(fileName);
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Persist hashes of this run. The manifest itself is written only if it changed.
+     */
+    public void saveManifest() throws IOException {
+        if (current.equals(previous)) {
+            return;
+        }
+        final StringBuilder builder = new StringBuilder();
+        new TreeMap<>(current).forEach((fileName, entry) -> builder.append(entry.hash).append(' ').append(entry.modified).append("  ").append(fileName).append('\n'));
+        AtomicFiles.write(manifest, builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Lines of the manifest are "hash modified  fileName", the modification time is missing in manifests of older
+     * versions and the files are hashed then
+     */
+    private static Map<String, Entry> readManifest(final Path manifest) throws IOException {
+        if (!Files.exists(manifest)) {
+            return Collections.emptyMap();
+        }
+        final Map<String, Entry> result = new HashMap<>();
+        for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+            final int separator = line.indexOf("  ");
+            if (separator > 0) {
+                final String[] fields = line.substring(0, separator).split(" ");
+                long modified = -1;
+                if (fields.length > 1) {
+                    try {
+                        modified = Long.parseLong(fields[1]);
+                    } catch (NumberFormatException e) {
+                        // hashed then
+                    }
+                }
+                result.put(line.substring(separator + 2), new Entry(fields[0], modified));
+            }
+        }
+        return result;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String toHex(final byte[] digest) {
+        final StringBuilder hex = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Hash of a generated file and its modification time after it has been written or verified
+     */
+    private static class Entry {
+        private final String hash;
+        private final long modified;
+
+        private Entry(final String hash, final long modified) {
+            this.hash = hash;
+            this.modified = modified;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final Entry entry = (Entry) o;
+            return modified == entry.modified && hash.equals(entry.hash);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * hash.hashCode() + Long.hashCode(modified);
+        }
+    }
+
+    /**
+     * Discards all the data, only counts written bytes
+     */
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(final int b) {
+            count++;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            count += len;
+        }
+    }
+}
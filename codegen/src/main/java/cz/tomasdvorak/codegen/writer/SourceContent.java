@@ -0,0 +1,13 @@
+package cz.tomasdvorak.codegen.writer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Content of a generated file, produced on demand. May be requested more than once, every call has to write
+ * the same bytes.
+ */
+@FunctionalInterface
+public interface SourceContent {
+    void writeTo(OutputStream out) throws IOException;
+}
@@ -0,0 +1,36 @@
+package cz.tomasdvorak.codegen;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class CodegenOptionsTest {
+
+    @Test
+    public void flagsAndValues() {
+        final CodegenOptions options = CodegenOptions.parse(new String[]{"settings.cfg", "--incremental", "--watch=FALSE",
+                "--profile-grammar=true", "--profile-grammar-report=profile.txt", "target"});
+        Assert.assertEquals(Arrays.asList("settings.cfg", "target"), options.getPositional());
+        Assert.assertTrue(options.isSet("incremental"));
+        Assert.assertFalse(options.isSet("watch"));
+        Assert.assertFalse(options.isSet("batch"));
+        Assert.assertTrue(options.isSet("profile-grammar"));
+        Assert.assertEquals("profile.txt", options.get("profile-grammar-report").orElse(null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidFlagValue() {
+        CodegenOptions.parse(new String[]{"--profile-grammar=ture"}).isSet("profile-grammar");
+    }
+
+    @Test
+    public void unknownOption() {
+        try {
+            CodegenOptions.parse(new String[]{"settings.cfg", "--incremntal"});
+            Assert.fail("Typo in the option name should be rejected");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Unknown option --incremntal, known options are --base-package, --batch"));
+        }
+    }
+}
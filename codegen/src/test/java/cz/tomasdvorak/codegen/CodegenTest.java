@@ -0,0 +1,144 @@
+package cz.tomasdvorak.codegen;
+
+import cz.tomasdvorak.codegen.generator.EmitterType;
+import cz.tomasdvorak.codegen.parser.ParserEngine;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class CodegenTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void bytecodeModeWritesOnlyClassesToOutput() throws Exception {
+        final Path config = folder.getRoot().toPath().resolve("settings.cfg");
+        final Path state = folder.newFolder("state").toPath();
+        final Path classes = folder.newFolder("classes").toPath();
+        Files.write(config, "[A]\nX = 1\n[B]\nY = 2\n".getBytes(StandardCharsets.UTF_8));
+
+        final Codegen codegen = new Codegen.Builder(ParserEngine.SCANNER)
+                .incremental(true)
+                .emitter(EmitterType.STREAMING)
+                .threads(1)
+                .bytecode(classes)
+                .stubs(false)
+                .build();
+        codegen.execute(config.toString(), state.toString(), "cz.app");
+        Assert.assertEquals(list("A.class", "B.class"), list(classes.resolve("cz/app")));
+        Assert.assertEquals(list(".codegen-classes-manifest", ".codegen.lock"), list(state.resolve("cz/app")));
+
+        Files.write(config, "[A]\nX = 1\n".getBytes(StandardCharsets.UTF_8));
+        codegen.execute(config.toString(), state.toString(), "cz.app");
+        Assert.assertEquals(list("A.class"), list(classes.resolve("cz/app")));
+    }
+
+    @Test
+    public void registryRejectedInBytecodeMode() throws Exception {
+        try {
+            new Codegen.Builder(ParserEngine.SCANNER).bytecode(folder.newFolder("classes").toPath()).registry("Settings").build();
+            Assert.fail("Registry can't be generated in the bytecode mode");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("Registry class has to be compiled by javac, it can't be generated in the bytecode mode", e.getMessage());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidRegistryClassNameRejected() {
+        new Codegen.Builder(ParserEngine.SCANNER).registry("cz.app.Settings").build();
+    }
+
+    @Test
+    public void overlaysGeneratedToSubpackages() throws Exception {
+        final Path config = folder.getRoot().toPath().resolve("settings.cfg");
+        final Path prod = folder.getRoot().toPath().resolve("prod.cfg");
+        final Path target = folder.newFolder("generated").toPath();
+        Files.write(config, "[A]\nX = 1\nY = \"dev\"\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(prod, "[A]\nY = \"prod\"\n".getBytes(StandardCharsets.UTF_8));
+
+        final Codegen codegen = new Codegen.Builder(ParserEngine.SCANNER)
+                .emitter(EmitterType.STREAMING)
+                .threads(1)
+                .parseCache(folder.newFolder("cache").toPath())
+                .build();
+        codegen.execute(config.toString(), Collections.singletonList(prod.toString()), target.toString(), "cz.app");
+        Assert.assertTrue(read(target.resolve("cz/app/A.java")).contains("\"dev\""));
+        Assert.assertTrue(read(target.resolve("cz/app/prod/A.java")).contains("package cz.app.prod;"));
+        Assert.assertTrue(read(target.resolve("cz/app/prod/A.java")).contains("\"prod\""));
+
+        // base config and overlay served from the parse cache
+        codegen.execute(config.toString(), Collections.singletonList(prod.toString()), target.toString(), "cz.app");
+        Assert.assertEquals(2, codegen.getMetrics().getParseCacheHits());
+        Assert.assertEquals(2, codegen.getMetrics().getParseCacheMisses());
+    }
+
+    @Test
+    public void overlaysFromCommandLine() throws Exception {
+        final Path config = folder.getRoot().toPath().resolve("settings.cfg");
+        final Path dev = folder.getRoot().toPath().resolve("dev.cfg");
+        final Path prod = folder.getRoot().toPath().resolve("prod.cfg");
+        final Path target = folder.newFolder("generated").toPath();
+        Files.write(config, "[A]\nX = 1\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(dev, "[A]\nX = 2\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(prod, "[A]\nX = 3\n".getBytes(StandardCharsets.UTF_8));
+
+        Codegen.main(new String[]{config.toString(), target.toString(), "cz.app", "--engine=scanner", "--emitter=streaming",
+                "--overlays=" + dev + "," + prod});
+        Assert.assertEquals(list(".codegen.lock", "A.java", "dev", "prod"), list(target.resolve("cz/app")));
+        Assert.assertTrue(read(target.resolve("cz/app/dev/A.java")).contains("X = 2"));
+        Assert.assertTrue(read(target.resolve("cz/app/prod/A.java")).contains("X = 3"));
+    }
+
+    @Test
+    public void persistChangedCountsDeletedFiles() throws Exception {
+        final Path config = folder.getRoot().toPath().resolve("settings.cfg");
+        final Path target = folder.newFolder("generated").toPath();
+        Files.write(config, "[A]\nX = 1\n[B]\nY = 2\n".getBytes(StandardCharsets.UTF_8));
+        final Codegen codegen = new Codegen.Builder(ParserEngine.SCANNER).incremental(true).emitter(EmitterType.STREAMING).build();
+        codegen.execute(config.toString(), target.toString(), "cz.app");
+
+        // B is deleted by the writer, it only knows the previously generated files
+        Files.write(config, "[A]\nX = 1\n".getBytes(StandardCharsets.UTF_8));
+        final int deleted = codegen.persistChanged(codegen.parseTemplate(config.toString()).getConfig(), Collections.emptySet(),
+                target.toString(), "cz.app");
+        Assert.assertEquals(1, deleted);
+        Assert.assertEquals(list(".codegen-manifest", ".codegen.lock", "A.java"), list(target.resolve("cz/app")));
+    }
+
+    @Test
+    public void overlaysRejectedInWatchMode() throws Exception {
+        final Path config = folder.getRoot().toPath().resolve("settings.cfg");
+        Files.write(config, "[A]\nX = 1\n".getBytes(StandardCharsets.UTF_8));
+        try {
+            Codegen.main(new String[]{config.toString(), folder.newFolder("generated").toString(), "cz.app", "--engine=scanner",
+                    "--watch", "--overlays=prod.cfg"});
+            Assert.fail("Overlays can't be watched");
+        } catch (RuntimeException e) {
+            Assert.assertEquals("Overlays can't be used with --watch, only the config itself is watched and regenerated", e.getMessage());
+        }
+    }
+
+    private static String read(final Path file) throws Exception {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    private static List<String> list(final String... names) {
+        return Stream.of(names).collect(Collectors.toList());
+    }
+
+    private static List<String> list(final Path dir) throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package cz.tomasdvorak.codegen.batch;
+
+import cz.tomasdvorak.codegen.Codegen;
+import cz.tomasdvorak.codegen.parser.ParserEngine;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.lang.model.SourceVersion;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+public class BatchCodegenTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void packagesByConvention() throws Exception {
+        final Path base = folder.getRoot().toPath();
+        write(base.resolve("services/billing/settings.cfg"), "[Billing]\nLIMIT = 10\n");
+        write(base.resolve("services/user-db/settings.cfg"), "[Users]\nLIMIT = 10\n");
+        write(base.resolve("services/readme.txt"), "not a config");
+
+        final List<BatchEntry> entries = BatchEntries.fromPatterns(Collections.singletonList("services/**.cfg"), base, "cz.app");
+        Assert.assertEquals(Arrays.asList("cz.app.services.billing.settings", "cz.app.services.user_db.settings"),
+                entries.stream().map(BatchEntry::getTargetPackage).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void keywordsInPathsSuffixed() {
+        final String targetPackage = BatchEntries.packageOf(Paths.get("class", "int", "new.cfg"), "cz.app");
+        Assert.assertEquals("cz.app.class_.int_.new_", targetPackage);
+        Assert.assertTrue(SourceVersion.isName(targetPackage));
+        Assert.assertEquals("true_.null_.classes", BatchEntries.packageOf(Paths.get("true", "null", "classes.cfg"), ""));
+    }
+
+    @Test
+    public void mappingFile() throws Exception {
+        final Path base = folder.getRoot().toPath();
+        write(base.resolve("configs/a.cfg"), "[A]\nX = 1\n");
+        write(base.resolve("mapping.properties"), "configs/a.cfg = cz.app.first\n");
+
+        final List<BatchEntry> entries = BatchEntries.fromMappingFile(base.resolve("mapping.properties"));
+        Assert.assertEquals(1, entries.size());
+        Assert.assertEquals(base.resolve("configs/a.cfg"), entries.get(0).getConfigFile());
+        Assert.assertEquals("cz.app.first", entries.get(0).getTargetPackage());
+    }
+
+    @Test
+    public void allFailuresReported() throws Exception {
+        final Path base = folder.getRoot().toPath();
+        write(base.resolve("configs/valid.cfg"), "[Valid]\nX = 1\n");
+        write(base.resolve("configs/broken1.cfg"), "[Broken]\nX = \n");
+        write(base.resolve("configs/broken2.cfg"), "no section at all\n");
+        write(base.resolve("configs/other.cfg"), "[Other]\nY = \"y\"\n");
+        final Path target = base.resolve("generated");
+
+        final List<BatchEntry> entries = BatchEntries.fromPatterns(Collections.singletonList("configs/*.cfg"), base, "cz.app");
+        try {
+            new BatchCodegen(new Codegen.Builder(ParserEngine.PARBOILED).build(), 2).execute(entries, target.toString());
+            Assert.fail("Batch should fail");
+        } catch (BatchException e) {
+            Assert.assertEquals(Arrays.asList("broken1.cfg", "broken2.cfg"), e.getFailures().keySet().stream()
+                    .map(entry -> entry.getConfigFile().getFileName().toString())
+                    .collect(Collectors.toList()));
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("2 of 4 config files failed"));
+        }
+
+        Assert.assertTrue(Files.exists(target.resolve(Paths.get("cz", "app", "configs", "valid", "Valid.java"))));
+        Assert.assertTrue(Files.exists(target.resolve(Paths.get("cz", "app", "configs", "other", "Other.java"))));
+    }
+
+    @Test
+    public void overlayPackageCollisionRejected() throws Exception {
+        final Path base = folder.getRoot().toPath();
+        final List<BatchEntry> entries = Arrays.asList(
+                new BatchEntry(base.resolve("a.cfg"), "cz.app", Collections.singletonList(base.resolve("prod.cfg"))),
+                new BatchEntry(base.resolve("b.cfg"), "cz.app.prod"));
+        try {
+            new BatchCodegen(new Codegen.Builder(ParserEngine.PARBOILED).build(), 2).execute(entries, base.resolve("generated").toString());
+            Assert.fail("Overlay of a.cfg and b.cfg are generated to the same package");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().endsWith("b.cfg -> cz.app.prod]"));
+        }
+    }
+
+    @Test
+    public void packagesIndependentOfDefaultLocale() {
+        final Locale locale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            Assert.assertEquals("cz.app.configs.item", BatchEntries.packageOf(Paths.get("CONFIGS", "ITEM.cfg"), "cz.app"));
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    private void write(final Path file, final String content) throws Exception {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes());
+    }
+}
@@ -0,0 +1,69 @@
+package cz.tomasdvorak.codegen.dto;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class SectionTest {
+
+    @Test
+    public void typedValues() {
+        final Section section = new Section.Builder("Values", 2)
+                .add("INT", 42)
+                .add("LONG", 5_000_000_000L)
+                .add("DOUBLE", -0.25)
+                .add("BOOLEAN", true)
+                .add("STRING", "text")
+                .build();
+
+        Assert.assertEquals(5, section.size());
+        Assert.assertEquals(ValueType.INT, section.getType(0));
+        Assert.assertEquals(42, section.getInt(0));
+        Assert.assertEquals(5_000_000_000L, section.getLong(1));
+        Assert.assertEquals(-0.25, section.getDouble(2), 0);
+        Assert.assertTrue(section.getBoolean(3));
+        Assert.assertEquals("text", section.getString(4));
+        Assert.assertEquals(Arrays.asList(new Pair("INT", 42), new Pair("LONG", 5_000_000_000L), new Pair("DOUBLE", -0.25),
+                new Pair("BOOLEAN", true), new Pair("STRING", "text")), section.getValues());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void wrongType() {
+        new Section.Builder("Values").add("INT", 42).build().getString(0);
+    }
+
+    @Test
+    public void keyIndex() {
+        final Section.Builder builder = new Section.Builder("Many");
+        for (int i = 0; i < 1000; i++) {
+            builder.add("KEY_" + i, i);
+        }
+        final Section section = builder.build();
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals(i, section.indexOf("KEY_" + i));
+        }
+        Assert.assertEquals(-1, section.indexOf("MISSING"));
+        Assert.assertEquals(-1, new Section("Empty", Collections.emptyList()).indexOf("MISSING"));
+    }
+
+    @Test
+    public void pairsAndBuilderEqual() {
+        final Section fromPairs = new Section("S", Arrays.asList(new Pair("A", 1), new Pair("B", "b"), new Pair("C", 1.5)));
+        final Section built = new Section.Builder("S").add("A", 1).add("B", "b").add("C", 1.5).build();
+        Assert.assertEquals(fromPairs, built);
+        Assert.assertEquals(fromPairs.hashCode(), built.hashCode());
+        Assert.assertNotEquals(built, new Section.Builder("S").add("A", 1).add("B", "b").add("C", 2.5).build());
+        Assert.assertNotEquals(new Section.Builder("S").add("A", 1).build(), new Section.Builder("S").add("A", 1L).build());
+    }
+
+    @Test
+    public void sectionLookup() {
+        final Section a = new Section.Builder("A").add("X", 1).build();
+        final Section b = new Section.Builder("B").add("Y", 2).build();
+        final Config config = new Config(Arrays.asList(a, b));
+        Assert.assertSame(b, config.getSection("B").orElseThrow(AssertionError::new));
+        Assert.assertFalse(config.getSection("C").isPresent());
+    }
+}
@@ -0,0 +1,128 @@
+package cz.tomasdvorak.codegen.generator;
+
+import cz.tomasdvorak.codegen.dto.Section;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.StringWriter;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Class files of the bytecode emitter have to match what javac compiles from the generated source.
+ */
+public class BytecodeEmitterTest {
+
+    private static final String PACKAGE = "cz.app.settings";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final BytecodeEmitter emitter = new BytecodeEmitter(PACKAGE);
+
+    @Test
+    public void sameClassAsCompiledSource() throws Exception {
+        final Section section = new Section.Builder("SystemConfig")
+                .add("MAX_DISK_SPACE", 1024)
+                .add("NEGATIVE", -7)
+                .add("FILE_SIZE", 5_000_000_000L)
+                .add("RATIO", 3.5)
+                .add("ENABLED", true)
+                .add("DISABLED", false)
+                .add("PATH", "/tmp \"quoted\" unié")
+                .add("EMPTY", "")
+                .build();
+
+        final StringWriter source = new StringWriter();
+        new StreamingSourceEmitter(PACKAGE).emit(section, source);
+        final Path sources = folder.newFolder("src").toPath();
+        Files.write(Files.createDirectories(sources.resolve("cz/app/settings")).resolve("SystemConfig.java"), source.toString().getBytes("UTF-8"));
+        final Path compiled = folder.newFolder("compiled").toPath();
+        Assert.assertEquals(Collections.emptyList(), compile(sources, compiled));
+
+        final Path emitted = writeClass(section);
+
+        try (URLClassLoader compiledLoader = new URLClassLoader(new URL[]{compiled.toUri().toURL()}, null);
+             URLClassLoader emittedLoader = new URLClassLoader(new URL[]{emitted.toUri().toURL()}, null)) {
+            final Class<?> expected = compiledLoader.loadClass(PACKAGE + ".SystemConfig");
+            final Class<?> actual = emittedLoader.loadClass(PACKAGE + ".SystemConfig");
+            Assert.assertEquals(expected.getModifiers(), actual.getModifiers());
+            Assert.assertEquals(describe(expected), describe(actual));
+            Assert.assertNotNull(actual.newInstance());
+        }
+    }
+
+    @Test
+    public void constantsAreInlined() throws Exception {
+        final Path classes = writeClass(new Section.Builder("Limits")
+                .add("MAX_USERS", 12)
+                .add("HOME_ROOT", "/home")
+                .build());
+        final Path sources = folder.newFolder("src").toPath();
+        Files.write(Files.createDirectories(sources.resolve("cz/app")).resolve("App.java"), ("package cz.app;\n" +
+                "import cz.app.settings.Limits;\n" +
+                "public class App {\n" +
+                "    public static String describe(int users) {\n" +
+                "        switch (users) {\n" +
+                "            case Limits.MAX_USERS: return Limits.HOME_ROOT + \":full\";\n" +
+                "            default: return Limits.HOME_ROOT + \":free\";\n" +
+                "        }\n" +
+                "    }\n" +
+                "}\n").getBytes());
+        Assert.assertEquals(Collections.emptyList(), compile(sources, classes));
+
+        // constants are copied into the App class, the generated class isn't needed at runtime
+        Files.delete(classes.resolve("cz/app/settings/Limits.class"));
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{classes.toUri().toURL()}, null)) {
+            final Class<?> app = loader.loadClass("cz.app.App");
+            Assert.assertEquals("/home:full", app.getMethod("describe", int.class).invoke(null, 12));
+            Assert.assertEquals("/home:free", app.getMethod("describe", int.class).invoke(null, 1));
+        }
+    }
+
+    private Path writeClass(final Section section) throws Exception {
+        final Path classes = folder.newFolder().toPath();
+        Files.write(Files.createDirectories(classes.resolve("cz/app/settings")).resolve(section.getName() + ".class"), emitter.emit(section));
+        return classes;
+    }
+
+    private static List<String> describe(final Class<?> type) throws Exception {
+        final List<String> fields = new ArrayList<>();
+        for (Field field : type.getDeclaredFields()) {
+            fields.add(Modifier.toString(field.getModifiers()) + " " + field.getType().getName() + " " + field.getName() + " = " + field.get(null));
+        }
+        return fields;
+    }
+
+    private List<String> compile(final Path sources, final Path classes) throws Exception {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null)) {
+            final List<File> files = Files.walk(sources).filter(p -> p.toString().endsWith(".java")).map(Path::toFile).collect(Collectors.toList());
+            final List<String> options = Arrays.asList("-classpath", classes.toString(), "-d", classes.toString(), "-encoding", "UTF-8", "-proc:none");
+            compiler.getTask(null, fileManager, diagnostics, options, null, fileManager.getJavaFileObjectsFromFiles(files)).call();
+        }
+        return diagnostics.getDiagnostics().stream()
+                .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+                .map(d -> d.getMessage(null))
+                .collect(Collectors.toList());
+    }
+}
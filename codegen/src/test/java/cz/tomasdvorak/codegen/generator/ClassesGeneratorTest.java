@@ -3,6 +3,8 @@ package cz.tomasdvorak.codegen.generator;
 import cz.tomasdvorak.codegen.dto.Pair;
 import cz.tomasdvorak.codegen.dto.Config;
 import cz.tomasdvorak.codegen.dto.Section;
+import cz.tomasdvorak.codegen.parser.ConfigurationParser;
+import cz.tomasdvorak.codegen.parser.ParserEngine;
 import org.jboss.forge.roaster.model.source.JavaClassSource;
 import org.junit.Assert;
 import org.junit.Before;
@@ -46,5 +48,15 @@ public class ClassesGeneratorTest {
                 "}", classes.get(1).toString());
     }
 
-
+    @Test
+    public void unitsAsLongConstants() throws Exception {
+        final Config config = new ConfigurationParser(ParserEngine.SCANNER).parseContent("[Limits]\nHEAP = 512MB\nTIMEOUT = 30s\nMIN = -9223372036854775808\n");
+        Assert.assertEquals("package cz.tomasdvorak.codegen;\n" +
+                "public final class Limits {\n" +
+                "\n" +
+                "\tpublic static final long HEAP = 536870912L;\n" +
+                "\tpublic static final long TIMEOUT = 30000000000L;\n" +
+                "\tpublic static final long MIN = -9223372036854775808L;\n" +
+                "}", converter.convert(config).get(0).toString());
+    }
 }
\ No newline at end of file
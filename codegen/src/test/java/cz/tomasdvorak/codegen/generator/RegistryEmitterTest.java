@@ -0,0 +1,217 @@
+package cz.tomasdvorak.codegen.generator;
+
+import cz.tomasdvorak.codegen.dto.Config;
+import cz.tomasdvorak.codegen.dto.Section;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Compiles the registry together with constants classes and looks up the constants through it.
+ */
+public class RegistryEmitterTest {
+
+    private static final String PACKAGE = "cz.app.settings";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Config config = new Config(Arrays.asList(
+            new Section.Builder("SystemConstants")
+                    .add("MAX_MEMORY", 120)
+                    .add("FILE_SIZE", 5_000_000_000L)
+                    .add("RATIO", 0.75)
+                    .add("ENABLED", true)
+                    .add("HOME_ROOT", "/home")
+                    .build(),
+            new Section.Builder("UserConstants")
+                    .add("MAX_USERS", 3)
+                    .build(),
+            new Section.Builder("Empty").build()));
+
+    private URLClassLoader loader;
+    private Class<?> registry;
+
+    @Before
+    public void setUp() throws Exception {
+        registry = compileRegistry(config, "Settings");
+    }
+
+    private Class<?> compileRegistry(final Config config, final String className) throws Exception {
+        final Path sources = folder.newFolder().toPath();
+        final Path pkg = Files.createDirectories(sources.resolve("cz/app/settings"));
+        final StreamingSourceEmitter emitter = new StreamingSourceEmitter(PACKAGE);
+        for (Section section : config.getSections()) {
+            final StringWriter source = new StringWriter();
+            emitter.emit(section, source);
+            Files.write(pkg.resolve(section.getName() + ".java"), source.toString().getBytes("UTF-8"));
+        }
+        final StringWriter source = new StringWriter();
+        new RegistryEmitter(PACKAGE, className).emit(config, source);
+        Files.write(pkg.resolve(className + ".java"), source.toString().getBytes("UTF-8"));
+
+        final Path classes = folder.newFolder().toPath();
+        Assert.assertEquals(Collections.emptyList(), compile(sources, classes));
+        if (loader != null) {
+            loader.close();
+        }
+        loader = new URLClassLoader(new URL[]{classes.toUri().toURL()}, null);
+        return loader.loadClass(PACKAGE + "." + className);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        loader.close();
+    }
+
+    @Test
+    public void typedLookup() throws Exception {
+        Assert.assertEquals(120, lookup("getInt", "SystemConstants", "MAX_MEMORY"));
+        Assert.assertEquals(3, lookup("getInt", "UserConstants", "MAX_USERS"));
+        Assert.assertEquals(5_000_000_000L, lookup("getLong", "SystemConstants", "FILE_SIZE"));
+        Assert.assertEquals(0.75, lookup("getDouble", "SystemConstants", "RATIO"));
+        Assert.assertEquals(true, lookup("getBoolean", "SystemConstants", "ENABLED"));
+        Assert.assertEquals("/home", lookup("getString", "SystemConstants", "HOME_ROOT"));
+
+        // widening conversions
+        Assert.assertEquals(120L, lookup("getLong", "SystemConstants", "MAX_MEMORY"));
+        Assert.assertEquals(120.0, lookup("getDouble", "SystemConstants", "MAX_MEMORY"));
+        Assert.assertEquals(5.0E9, lookup("getDouble", "SystemConstants", "FILE_SIZE"));
+    }
+
+    @Test
+    public void contains() throws Exception {
+        Assert.assertEquals(true, lookup("contains", "SystemConstants", "HOME_ROOT"));
+        Assert.assertEquals(false, lookup("contains", "SystemConstants", "MAX_USERS"));
+        Assert.assertEquals(false, lookup("contains", "Empty", "MAX_USERS"));
+        Assert.assertEquals(false, lookup("contains", "Unknown", "MAX_USERS"));
+    }
+
+    @Test
+    public void missingConstant() throws Exception {
+        assertMissing("No int constant SystemConstants.HOME_ROOT", "getInt", "SystemConstants", "HOME_ROOT");
+        assertMissing("No int constant SystemConstants.FILE_SIZE", "getInt", "SystemConstants", "FILE_SIZE");
+        assertMissing("No String constant Empty.HOME_ROOT", "getString", "Empty", "HOME_ROOT");
+        assertMissing("No boolean constant Unknown.ENABLED", "getBoolean", "Unknown", "ENABLED");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void snapshot() throws Exception {
+        final Map<String, Map<String, Object>> snapshot = (Map<String, Map<String, Object>>) registry.getMethod("snapshot").invoke(null);
+        Assert.assertEquals(Arrays.asList("SystemConstants", "UserConstants", "Empty"), Arrays.asList(snapshot.keySet().toArray()));
+        Assert.assertEquals(Arrays.asList(120, 5_000_000_000L, 0.75, true, "/home"), Arrays.asList(snapshot.get("SystemConstants").values().toArray()));
+        Assert.assertEquals(Collections.singletonMap("MAX_USERS", 3), snapshot.get("UserConstants"));
+        Assert.assertTrue(snapshot.get("Empty").isEmpty());
+        Assert.assertSame(snapshot, registry.getMethod("snapshot").invoke(null));
+        try {
+            snapshot.get("UserConstants").put("MAX_USERS", 4);
+            Assert.fail("Snapshot has to be immutable");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void conflictingSectionName() throws Exception {
+        new RegistryEmitter(PACKAGE, "Settings").emit(new Config(Collections.singletonList(new Section.Builder("Settings").build())), new StringWriter());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void largeSectionSplitToChunks() throws Exception {
+        final int size = RegistryEmitter.CHUNK_SIZE * 2 + 500;
+        final Section.Builder builder = new Section.Builder("Large");
+        for (int i = 0; i < size; i++) {
+            builder.add("KEY_" + i, "value " + i);
+        }
+        registry = compileRegistry(new Config(Collections.singletonList(builder.build())), "LargeSettings");
+
+        Assert.assertEquals("value 0", lookup("getString", "Large", "KEY_0"));
+        Assert.assertEquals("value " + (size - 1), lookup("getString", "Large", "KEY_" + (size - 1)));
+        Assert.assertEquals(true, lookup("contains", "Large", "KEY_" + RegistryEmitter.CHUNK_SIZE));
+        Assert.assertEquals(false, lookup("contains", "Large", "KEY_" + size));
+        assertMissing("No String constant Large.KEY_" + size, "getString", "Large", "KEY_" + size);
+        final Map<String, Map<String, Object>> snapshot = (Map<String, Map<String, Object>>) registry.getMethod("snapshot").invoke(null);
+        Assert.assertEquals(size, snapshot.get("Large").size());
+        Assert.assertEquals("KEY_" + (size - 1), snapshot.get("Large").keySet().stream().reduce((first, second) -> second).get());
+    }
+
+    @Test
+    public void configExceedingConstantPoolRejected() throws Exception {
+        final Section.Builder builder = new Section.Builder("Huge");
+        for (int i = 0; i < 20_000; i++) {
+            builder.add("KEY_" + i, "value " + i);
+        }
+        try {
+            new RegistryEmitter(PACKAGE, "Settings").emit(new Config(Collections.singletonList(builder.build())), new StringWriter());
+            Assert.fail("Config exceeding the constant pool has to be rejected");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Config is too large for the registry Settings"));
+        }
+    }
+
+    @Test
+    public void invalidClassNameRejected() {
+        for (String name : Arrays.asList("cz.app.Settings", "1Settings", "class", "My-Settings", "")) {
+            try {
+                new RegistryEmitter(PACKAGE, name);
+                Assert.fail("Class name " + name + " has to be rejected");
+            } catch (IllegalArgumentException e) {
+                Assert.assertEquals("Registry class name " + name + " is not a valid Java identifier", e.getMessage());
+            }
+        }
+    }
+
+    private Object lookup(final String method, final String section, final String key) throws Exception {
+        final Method lookup = registry.getMethod(method, String.class, String.class);
+        return lookup.invoke(null, section, key);
+    }
+
+    private void assertMissing(final String message, final String method, final String section, final String key) throws Exception {
+        try {
+            lookup(method, section, key);
+            Assert.fail("Expected missing constant " + section + "." + key);
+        } catch (InvocationTargetException e) {
+            Assert.assertEquals(IllegalArgumentException.class, e.getCause().getClass());
+            Assert.assertEquals(message, e.getCause().getMessage());
+        }
+    }
+
+    private List<String> compile(final Path sources, final Path classes) throws Exception {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null)) {
+            final List<File> files = Files.walk(sources).filter(p -> p.toString().endsWith(".java")).map(Path::toFile).collect(Collectors.toList());
+            final List<String> options = Arrays.asList("-d", classes.toString(), "-encoding", "UTF-8", "-proc:none");
+            compiler.getTask(null, fileManager, diagnostics, options, null, fileManager.getJavaFileObjectsFromFiles(files)).call();
+        }
+        return diagnostics.getDiagnostics().stream()
+                .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+                .map(d -> d.getMessage(null))
+                .collect(Collectors.toList());
+    }
+}
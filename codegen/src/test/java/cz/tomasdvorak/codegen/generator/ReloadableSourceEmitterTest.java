@@ -0,0 +1,99 @@
+package cz.tomasdvorak.codegen.generator;
+
+import cz.tomasdvorak.codegen.dto.Section;
+import cz.tomasdvorak.codegen.runtime.ReloadableSection;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.StringWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Compiles the reloadable class and replaces its values at runtime.
+ */
+public class ReloadableSourceEmitterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void reloadGeneratedClass() throws Exception {
+        final Section section = new Section.Builder("SystemConfig")
+                .add("MAX_USERS", 12)
+                .add("FILE_SIZE", 5_000_000_000L)
+                .add("RATIO", 3.5)
+                .add("ENABLED", true)
+                .add("PATH", "/tmp \"quoted\"")
+                .build();
+        final Path classes = compile(section);
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{classes.toUri().toURL()}, getClass().getClassLoader())) {
+            final Class<?> generated = loader.loadClass("cz.app.settings.SystemConfig");
+            Assert.assertEquals(Arrays.asList(12, 5_000_000_000L, 3.5, true, "/tmp \"quoted\""), values(generated));
+
+            final ReloadableSection reloadable = (ReloadableSection) generated.getField(ReloadableSourceEmitter.SECTION_FIELD).get(null);
+            reloadable.reload(new Section.Builder("SystemConfig")
+                    .add("MAX_USERS", 24)
+                    .add("FILE_SIZE", 1L)
+                    .add("RATIO", 0.5)
+                    .add("ENABLED", false)
+                    .add("PATH", "/var")
+                    .build());
+            Assert.assertEquals(Arrays.asList(24, 1L, 0.5, false, "/var"), values(generated));
+        }
+    }
+
+    @Test
+    public void emptySection() throws Exception {
+        compile(new Section.Builder("Empty").build());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void conflictingKey() throws Exception {
+        new ReloadableSourceEmitter("cz.app.settings").emit(new Section.Builder("Conflict").add(ReloadableSourceEmitter.SECTION_FIELD, 1).build(), new StringWriter());
+    }
+
+    private static List<Object> values(final Class<?> generated) throws Exception {
+        return Arrays.asList(
+                generated.getMethod("MAX_USERS").invoke(null),
+                generated.getMethod("FILE_SIZE").invoke(null),
+                generated.getMethod("RATIO").invoke(null),
+                generated.getMethod("ENABLED").invoke(null),
+                generated.getMethod("PATH").invoke(null));
+    }
+
+    private Path compile(final Section section) throws Exception {
+        final StringWriter source = new StringWriter();
+        new ReloadableSourceEmitter("cz.app.settings").emit(section, source);
+        final Path file = Files.createDirectories(folder.getRoot().toPath().resolve("src/cz/app/settings")).resolve(section.getName() + ".java");
+        Files.write(file, source.toString().getBytes("UTF-8"));
+        final Path classes = folder.newFolder("classes").toPath();
+
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null)) {
+            final List<String> options = Arrays.asList("-classpath", System.getProperty("java.class.path"), "-d", classes.toString(), "-encoding", "UTF-8", "-proc:none");
+            compiler.getTask(null, fileManager, diagnostics, options, null, fileManager.getJavaFileObjects(file.toFile())).call();
+        }
+        Assert.assertEquals(Collections.emptyList(), diagnostics.getDiagnostics().stream()
+                .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+                .map(d -> d.getMessage(null))
+                .collect(Collectors.toList()));
+        return classes;
+    }
+}
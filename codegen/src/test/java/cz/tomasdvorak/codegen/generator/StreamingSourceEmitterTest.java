@@ -0,0 +1,57 @@
+package cz.tomasdvorak.codegen.generator;
+
+import cz.tomasdvorak.codegen.dto.Pair;
+import cz.tomasdvorak.codegen.dto.Section;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Golden output test, the streaming emitter has to produce exactly the same source as the Roaster reference.
+ */
+public class StreamingSourceEmitterTest {
+
+    private final ClassesGenerator reference = new ClassesGenerator("cz.tomasdvorak.codegen");
+    private final StreamingSourceEmitter emitter = new StreamingSourceEmitter("cz.tomasdvorak.codegen");
+
+    @Test
+    public void allValueTypes() throws Exception {
+        assertSameSource(new Section("SystemConfig", Arrays.asList(
+                new Pair("MAX_DISK_SPACE", 1024),
+                new Pair("RATIO", 3.5),
+                new Pair("NEGATIVE", -0.25),
+                new Pair("ENABLED", true),
+                new Pair("DISABLED", false),
+                new Pair("PATH", "/tmp"),
+                new Pair("EMPTY", "")
+        )));
+    }
+
+    @Test
+    public void emptySection() throws Exception {
+        assertSameSource(new Section("Empty", Collections.emptyList()));
+    }
+
+    @Test
+    public void stringEscaping() throws Exception {
+        final List<Pair> values = new ArrayList<>();
+        values.add(new Pair("SPECIAL", "tab\t \"quoted\" back\\slash new\nline \r \b \f \u0000 \u007f unié  "));
+        for (char c = 0; c < 0x300; c++) {
+            values.add(new Pair("CHAR_" + (int) c, "<" + c + ">"));
+        }
+        assertSameSource(new Section("Strings", values));
+    }
+
+    private void assertSameSource(final Section section) throws Exception {
+        final StringWriter expected = new StringWriter();
+        reference.emit(section, expected);
+        final StringWriter actual = new StringWriter();
+        emitter.emit(section, actual);
+        Assert.assertEquals(expected.toString(), actual.toString());
+    }
+}
@@ -0,0 +1,94 @@
+package cz.tomasdvorak.codegen.metrics;
+
+import cz.tomasdvorak.codegen.Codegen;
+import cz.tomasdvorak.codegen.parser.ParserEngine;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class MetricsReportTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void countersOfIncrementalRuns() throws Exception {
+        final Path config = folder.getRoot().toPath().resolve("settings.cfg");
+        final Path target = folder.newFolder("generated").toPath();
+        Files.write(config, "[A]\nX = 1\n[B]\nY = 2\n".getBytes());
+
+        final Codegen codegen = new Codegen.Builder(ParserEngine.PARBOILED).incremental(true).build();
+        codegen.execute(config.toString(), target.toString(), "cz.app");
+        Files.write(config, "[A]\nX = 10\n".getBytes());
+        codegen.execute(config.toString(), target.toString(), "cz.app");
+
+        final CodegenMetrics metrics = codegen.getMetrics();
+        Assert.assertEquals(2, metrics.getConfigs());
+        Assert.assertEquals(3, metrics.getSections().size());
+        Assert.assertEquals(3, metrics.getFilesWritten());
+        Assert.assertEquals(0, metrics.getFilesUpToDate());
+        Assert.assertEquals(1, metrics.getFilesDeleted());
+        Assert.assertEquals(Files.size(target.resolve("cz/app/A.java")), metrics.getSections().get(2).getBytes());
+        Assert.assertTrue(metrics.getParserConstructionNanos() > 0);
+        Assert.assertTrue(metrics.getPeakHeapBytes() > 0);
+
+        codegen.execute(config.toString(), target.toString(), "cz.app");
+        Assert.assertEquals(1, metrics.getFilesUpToDate());
+    }
+
+    @Test
+    public void parseCacheCounters() throws Exception {
+        final Path config = folder.getRoot().toPath().resolve("settings.cfg");
+        final Path target = folder.newFolder("generated").toPath();
+        Files.write(config, "[A]\nX = 1\n".getBytes());
+
+        final Codegen codegen = new Codegen.Builder(ParserEngine.SCANNER)
+                .incremental(true)
+                .threads(1)
+                .parseCache(folder.newFolder("cache").toPath())
+                .build();
+        codegen.execute(config.toString(), target.toString(), "cz.app");
+        codegen.execute(config.toString(), target.toString(), "cz.app");
+        Files.write(config, "[A]\nX = 2\n".getBytes());
+        codegen.execute(config.toString(), target.toString(), "cz.app");
+
+        Assert.assertEquals(1, codegen.getMetrics().getParseCacheHits());
+        Assert.assertEquals(2, codegen.getMetrics().getParseCacheMisses());
+        Assert.assertTrue(MetricsReport.toJson(codegen.getMetrics()).contains("\"parseCacheHits\": 1,\n  \"parseCacheMisses\": 2,"));
+        Assert.assertTrue(codegen.getMetrics().summary().contains("3 configs (1 parse cache hits, 2 misses)"));
+    }
+
+    @Test
+    public void jsonReport() throws Exception {
+        final CodegenMetrics metrics = new CodegenMetrics();
+        metrics.recordParse(1000);
+        metrics.recordSection(new SectionMetrics("cz.app.A", 200, 120, true));
+        metrics.recordSection(new SectionMetrics("cz.app.B", 300, 0, false));
+
+        final Path report = folder.getRoot().toPath().resolve("reports/metrics.json");
+        MetricsReport.write(metrics, report);
+        final String json = new String(Files.readAllBytes(report), StandardCharsets.UTF_8);
+        Assert.assertTrue(json.contains("\"parseNanos\": 1000,"));
+        Assert.assertTrue(json.contains("\"generateNanos\": 500,"));
+        Assert.assertTrue(json.contains("\"bytesWritten\": 120,"));
+        Assert.assertTrue(json.contains("{\"class\": \"cz.app.B\", \"nanos\": 300, \"bytes\": 0, \"written\": false}\n  ]\n}"));
+    }
+
+    @Test
+    public void csvAppendsRuns() throws Exception {
+        final Path report = folder.getRoot().toPath().resolve("metrics.csv");
+        MetricsReport.write(new CodegenMetrics(), report);
+        MetricsReport.write(new CodegenMetrics(), report);
+
+        final List<String> lines = Files.readAllLines(report, StandardCharsets.UTF_8);
+        Assert.assertEquals(3, lines.size());
+        Assert.assertTrue(lines.get(0).startsWith("timestamp,totalNanos,parserConstructionNanos,parseNanos,"));
+        Assert.assertEquals(lines.get(0).split(",").length, lines.get(2).split(",").length);
+    }
+}
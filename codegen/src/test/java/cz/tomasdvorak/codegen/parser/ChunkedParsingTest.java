@@ -0,0 +1,111 @@
+package cz.tomasdvorak.codegen.parser;
+
+import cz.tomasdvorak.codegen.dto.Config;
+import cz.tomasdvorak.codegen.parser.utils.ParsingException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Differential test, parsing of the input split to chunks has to produce the same config, or the same errors and
+ * partial config, as parsing of the whole input at once.
+ */
+public class ChunkedParsingTest {
+
+    private static final String[] FRAGMENTS = {
+            "\n[S]\n", "\n[T]\n", "\n[\n", "\n[]\n", "\n", "\r\n", " ", "# comment\n", "# [X]\n", "\"[\"", "\"a\n[",
+            "KEY = 1\n", "KEY=\"v\"\n", "A=true\n", "B = $A\n", "C = $T.KEY * 2\n", "D = $S.C + 1\n", "E = $X.KEY\n",
+            "F = 1 +\n", "G = (1\n", "H = 1 / 0\n", "=", "x", "1", "]"
+    };
+
+    private final ConfigurationParser grammar = new ConfigurationParser(ParserEngine.PARBOILED);
+    private final ConfigurationParser scanner = new ConfigurationParser(ParserEngine.SCANNER);
+
+    @Test
+    public void split() {
+        Assert.assertEquals("[0, 15]", bounds("[A]\nx=1\n[B]\ny=2", 100));
+        Assert.assertEquals("[0, 8], [8, 15]", bounds("[A]\nx=1\n[B]\ny=2", 1));
+        Assert.assertEquals("[0, 8], [8, 15]", bounds("[A]\nx=1\n[B]\ny=2", 8));
+        Assert.assertEquals("[0, 15]", bounds("[A]\nx=1\n[B]\ny=2", 9));
+        Assert.assertEquals("[0, 18], [18, 23]", bounds("# [C]\n[A]\nx=1 [B]\n[C]\ny", 1));
+        Assert.assertEquals("[0, 5]", bounds(" \n# x", 1));
+    }
+
+    @Test
+    public void testConfig() throws Exception {
+        final String content = new String(Files.readAllBytes(Paths.get(getClass().getResource("/test-config.cfg").toURI())));
+        Assert.assertEquals(grammar.parseContent(content), resolve(grammar.parseInChunks(content, 1)));
+        Assert.assertEquals(scanner.parseContent(content), resolve(scanner.parseInChunks(content, 1)));
+    }
+
+    @Test
+    public void referencesAcrossChunks() throws Exception {
+        final String content = "[A]\nx = $C.z + 1\n[B]\ny = $A.x * 2\n[C]\nz = 20\n";
+        final Config expected = grammar.parseContent(content);
+        Assert.assertEquals(42, expected.getSections().get(1).getValue(0));
+        Assert.assertEquals(expected, resolve(grammar.parseInChunks(content, 1)));
+        Assert.assertEquals(expected, resolve(scanner.parseInChunks(content, 1)));
+    }
+
+    @Test
+    public void errorPositions() {
+        final String content = "[A]\nx = 1\n[B]\ny = \n[C]\nz = $A.q\n[D]\n";
+        final ParsingException expected = (ParsingException) parse(scanner, content, 0);
+        Assert.assertEquals(
+                "[Expected value, found '[' (line 5, pos 1), Expected key, found end of input (line 8, pos 1), Unknown key A.q (line 6, pos 5)]",
+                expected.getErrors().toString());
+        assertSameResult(content, 1);
+    }
+
+    @Test
+    public void randomInputs() {
+        final Random random = new Random(42);
+        for (int i = 0; i < 3000; i++) {
+            final StringBuilder input = new StringBuilder("[S]\n");
+            final int fragments = random.nextInt(30);
+            for (int j = 0; j < fragments; j++) {
+                input.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+            assertSameResult(input.toString(), 1 + random.nextInt(20));
+        }
+    }
+
+    private void assertSameResult(final String input, final int chunkSize) {
+        for (ConfigurationParser parser : new ConfigurationParser[]{grammar, scanner}) {
+            final Object expected = parse(parser, input, 0);
+            final Object actual = parse(parser, input, chunkSize);
+            if (expected instanceof Config) {
+                Assert.assertEquals("Input: " + input, expected, actual);
+            } else {
+                Assert.assertTrue("Input should be rejected: " + input + ", got " + actual, actual instanceof ParsingException);
+                Assert.assertEquals("Input: " + input, ((ParsingException) expected).getErrors(), ((ParsingException) actual).getErrors());
+                Assert.assertEquals("Input: " + input, ((ParsingException) expected).getPartialConfig(), ((ParsingException) actual).getPartialConfig());
+            }
+        }
+    }
+
+    /**
+     * @param chunkSize zero to parse the whole input at once
+     */
+    private static Object parse(final ConfigurationParser parser, final String input, final int chunkSize) {
+        try {
+            return chunkSize == 0 ? parser.parseContent(input) : resolve(parser.parseInChunks(input, chunkSize));
+        } catch (ParsingException e) {
+            return e;
+        }
+    }
+
+    private static String bounds(final String input, final int chunkSize) {
+        final List<int[]> chunks = ConfigurationParser.split(input, chunkSize);
+        return chunks.stream().map(chunk -> "[" + chunk[0] + ", " + chunk[1] + "]").collect(Collectors.joining(", "));
+    }
+
+    private static Config resolve(final Fragment fragment) throws ParsingException {
+        return fragment.derived.resolve(fragment.sections, fragment.input);
+    }
+}
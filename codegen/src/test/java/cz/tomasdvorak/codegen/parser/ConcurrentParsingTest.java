@@ -0,0 +1,83 @@
+package cz.tomasdvorak.codegen.parser;
+
+import cz.tomasdvorak.codegen.dto.Config;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Stress test, one shared parser instance used by many threads has to produce the same results as sequential parsing.
+ */
+public class ConcurrentParsingTest {
+
+    private static final int FILES = 200;
+    private static final int THREADS = 16;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void grammar() throws Exception {
+        assertConcurrentParsing(new ConfigurationParser(ParserEngine.PARBOILED));
+    }
+
+    @Test
+    public void scanner() throws Exception {
+        assertConcurrentParsing(new ConfigurationParser(ParserEngine.SCANNER));
+    }
+
+    private void assertConcurrentParsing(final ConfigurationParser parser) throws Exception {
+        final List<String> files = new ArrayList<>();
+        for (int i = 0; i < FILES; i++) {
+            files.add(writeConfig(i).toString());
+        }
+
+        final List<Config> expected = new ArrayList<>();
+        for (String file : files) {
+            expected.add(parser.parse(file));
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Callable<Config>> tasks = new ArrayList<>();
+            for (int round = 0; round < 5; round++) {
+                for (String file : files) {
+                    tasks.add(() -> parser.parse(file));
+                }
+            }
+            final List<Future<Config>> results = executor.invokeAll(tasks);
+            for (int i = 0; i < results.size(); i++) {
+                Assert.assertEquals(expected.get(i % FILES), results.get(i).get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Path writeConfig(final int index) throws Exception {
+        final StringBuilder content = new StringBuilder();
+        for (int section = 0; section <= index % 7; section++) {
+            content.append("# section ").append(section).append('\n');
+            content.append("[Section").append(index).append('_').append(section).append("]\n");
+            for (int key = 0; key <= (index + section) % 11; key++) {
+                content.append("INT_").append(key).append(" = ").append(index * key).append('\n');
+                content.append("DOUBLE_").append(key).append(" = ").append(key % 10).append('.').append(index).append('\n');
+                content.append("BOOLEAN_").append(key).append(" = ").append(key % 2 == 0).append('\n');
+                content.append("STRING_").append(key).append(" = \"value ").append(index).append('/').append(key).append("\"\n");
+            }
+        }
+        final Path file = folder.getRoot().toPath().resolve("config" + index + ".cfg");
+        Files.write(file, content.toString().getBytes());
+        return file;
+    }
+}
@@ -1,11 +1,16 @@
 package cz.tomasdvorak.codegen.parser;
 
-import cz.tomasdvorak.codegen.dto.Pair;
 import cz.tomasdvorak.codegen.dto.Config;
 import cz.tomasdvorak.codegen.dto.Section;
+import cz.tomasdvorak.codegen.parser.utils.ParsingException;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.parboiled.parserunners.ProfilingParseRunner;
+
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 
 public class ConfParserTest {
 
@@ -30,17 +35,89 @@ public class ConfParserTest {
         Assert.assertEquals(true, readValue(config, "UserConstants", "ENABLED")); // boolean
     }
 
-    private <T> T readValue(Config config, String sectionName, String keyName) {
-        final Section section = config.getSections().stream()
-                .filter(s -> s.getName().equals(sectionName))
+    @Test
+    public void parseStream() throws Exception {
+        try (InputStream stream = getClass().getResourceAsStream("/test-config.cfg")) {
+            final Config config = confParser.parse(stream, StandardCharsets.UTF_8);
+            Assert.assertEquals(confParser.parse(getClass().getResource("/test-config.cfg").getFile()), config);
+        }
+    }
+
+    @Test
+    public void parseReader() throws Exception {
+        final Config config = confParser.parse(new StringReader("[Section]\nNAME = \"Tomáš Dvořák\"\n"));
+        Assert.assertEquals("Tomáš Dvořák", readValue(config, "Section", "NAME"));
+    }
+
+    @Test
+    public void profile() throws Exception {
+        final ProfilingParseRunner.Report report = confParser.profile("[Section]\nA = 1\nB = 2.5\n");
+        Assert.assertEquals(1, report.totalRuns);
+        final ProfilingParseRunner.RuleReport assignment = report.ruleReports.stream()
+                .filter(rule -> rule.getMatcher().getLabel().equals("Assignment"))
                 .findFirst()
+                .orElseThrow(() -> new AssertionError("Assignment rule not profiled"));
+        Assert.assertEquals(2, assignment.getMatches());
+        Assert.assertTrue(report.print().contains("Assignment: Sequence"));
+    }
+
+    @Test(expected = ParsingException.class)
+    public void profileInvalid() throws Exception {
+        confParser.profile("[Section]\nA = \n");
+    }
+
+    @Test
+    public void numberLiterals() throws Exception {
+        final String content = "[Numbers]\nNEGATIVE = -42\nMIN_INT = -2147483648\nBIG = 3_000_000_000\nLONG = 7L\n"
+                + "HEX = 0xFF_FF\nHEX_LONG = 0x7fffffffffffffff\nHEX_ALL_BITS = 0xFFFFFFFF\nMIN_LONG = -9223372036854775808\n"
+                + "HEAP = 512MB\nPAGE = 4KB\nDISK = 2GB\nTIMEOUT = 30s\nDELAY = 250ms\nTTL = 15m\nRETENTION = 24h\n"
+                + "TOTAL = $HEAP * 2 + 1KB\nCOUNT = 1_000 - -1\n";
+        for (ConfigurationParser parser : new ConfigurationParser[]{confParser, new ConfigurationParser(ParserEngine.SCANNER)}) {
+            final Config config = parser.parseContent(content);
+            Assert.assertEquals(-42, (int) readValue(config, "Numbers", "NEGATIVE"));
+            Assert.assertEquals(Integer.MIN_VALUE, (int) readValue(config, "Numbers", "MIN_INT"));
+            Assert.assertEquals(3_000_000_000L, (long) readValue(config, "Numbers", "BIG"));
+            Assert.assertEquals(7L, (long) readValue(config, "Numbers", "LONG"));
+            Assert.assertEquals(0xFFFF, (int) readValue(config, "Numbers", "HEX"));
+            Assert.assertEquals(Long.MAX_VALUE, (long) readValue(config, "Numbers", "HEX_LONG"));
+            // value of the digits, not the int -1 of Java
+            Assert.assertEquals(4294967295L, (long) readValue(config, "Numbers", "HEX_ALL_BITS"));
+            Assert.assertEquals(Long.MIN_VALUE, (long) readValue(config, "Numbers", "MIN_LONG"));
+            Assert.assertEquals(512L * 1024 * 1024, (long) readValue(config, "Numbers", "HEAP"));
+            Assert.assertEquals(4096L, (long) readValue(config, "Numbers", "PAGE"));
+            Assert.assertEquals(2L << 30, (long) readValue(config, "Numbers", "DISK"));
+            Assert.assertEquals(30_000_000_000L, (long) readValue(config, "Numbers", "TIMEOUT"));
+            Assert.assertEquals(250_000_000L, (long) readValue(config, "Numbers", "DELAY"));
+            Assert.assertEquals(900_000_000_000L, (long) readValue(config, "Numbers", "TTL"));
+            Assert.assertEquals(86_400_000_000_000L, (long) readValue(config, "Numbers", "RETENTION"));
+            Assert.assertEquals(1024L * 1024 * 1024 + 1024, (long) readValue(config, "Numbers", "TOTAL"));
+            Assert.assertEquals(1001, (int) readValue(config, "Numbers", "COUNT"));
+        }
+    }
+
+    @Test
+    public void numberLiteralsOutOfRange() throws Exception {
+        final String[] inputs = {"9223372036854775808", "-9223372036854775809", "0x8000000000000000", "9_000_000_000GB", "3000000h"};
+        for (ConfigurationParser parser : new ConfigurationParser[]{confParser, new ConfigurationParser(ParserEngine.SCANNER)}) {
+            for (String input : inputs) {
+                try {
+                    parser.parseContent("[Numbers]\nX = " + input + "\n");
+                    Assert.fail("Value should be out of range: " + input);
+                } catch (ParsingException e) {
+                    Assert.assertEquals("Integer value out of range, found '" + input.charAt(0) + "' (line 2, pos 5)", e.getErrors().get(0).toString());
+                }
+            }
+        }
+    }
+
+    private <T> T readValue(Config config, String sectionName, String keyName) {
+        final Section section = config.getSection(sectionName)
                 .orElseThrow(() -> new AssertionError("Section " + sectionName + " cannot be found"));
 
-        return section.getValues().stream()
-                .filter(a -> a.getKey().equals(keyName))
-                .map(Pair::getValue)
-                .map(obj -> (T)obj)
-                .findFirst()
-                .orElseThrow(() -> new AssertionError("Section " + sectionName + " does not contain a key " + keyName));
+        final int index = section.indexOf(keyName);
+        if (index < 0) {
+            throw new AssertionError("Section " + sectionName + " does not contain a key " + keyName);
+        }
+        return (T) section.getValue(index);
     }
 }
\ No newline at end of file
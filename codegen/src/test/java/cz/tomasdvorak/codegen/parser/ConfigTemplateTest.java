@@ -0,0 +1,87 @@
+package cz.tomasdvorak.codegen.parser;
+
+import cz.tomasdvorak.codegen.dto.Config;
+import cz.tomasdvorak.codegen.dto.Section;
+import cz.tomasdvorak.codegen.parser.utils.OverlayException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class ConfigTemplateTest {
+
+    private static final String BASE = "[System]\nMEMORY = 1024\nRATIO = 1.5\nHOST = \"localhost\"\nDEBUG = true\n"
+            + "[User]\nMEMORY = $System.MEMORY * 2\nQUOTA = $MEMORY * $System.RATIO\nURL = \"http://\" + $System.HOST\n"
+            + "[Static]\nNAME = \"app\"\n";
+
+    private final ConfigurationParser grammar = new ConfigurationParser(ParserEngine.PARBOILED);
+    private final ConfigurationParser scanner = new ConfigurationParser(ParserEngine.SCANNER);
+
+    @Test
+    public void derivedValuesEvaluatedWithOverrides() throws Exception {
+        for (ConfigurationParser parser : Arrays.asList(grammar, scanner)) {
+            final ConfigTemplate template = parser.parseTemplate(BASE);
+            final Config base = template.getConfig();
+            final Config prod = template.overlay(parser.parseContent("[System]\nMEMORY = 4096\nRATIO = 2\nHOST = \"prod\"\n"));
+
+            Assert.assertEquals(parser.parseContent(BASE.replace("1024", "4096").replace("1.5", "2.0").replace("localhost", "prod")), prod);
+            Assert.assertEquals(8192, section(prod, "User").getValue(0));
+            Assert.assertEquals(16384.0, section(prod, "User").getValue(1));
+            Assert.assertEquals("http://prod", section(prod, "User").getValue(2));
+            Assert.assertSame(section(base, "Static"), section(prod, "Static"));
+            Assert.assertEquals(parser.parseContent(BASE), template.getConfig()); // base is not modified
+        }
+    }
+
+    @Test
+    public void derivedKeyOverriddenByLiteral() throws Exception {
+        final ConfigTemplate template = scanner.parseTemplate(BASE);
+        final Config overlaid = template.overlay(scanner.parseContent("[User]\nMEMORY = 100\n[User]\nURL = \"http://other\"\n"));
+        Assert.assertEquals(100, section(overlaid, "User").getValue(0));
+        Assert.assertEquals(150.0, section(overlaid, "User").getValue(1));
+        Assert.assertEquals("http://other", section(overlaid, "User").getValue(2));
+        Assert.assertSame(section(template.getConfig(), "System"), section(overlaid, "System"));
+    }
+
+    @Test
+    public void emptyOverlay() throws Exception {
+        final ConfigTemplate template = grammar.parseTemplate(BASE);
+        Assert.assertEquals(template.getConfig(), template.overlay(new Config(java.util.Collections.emptyList())));
+    }
+
+    @Test
+    public void invalidOverlay() throws Exception {
+        final ConfigTemplate template = scanner.parseTemplate(BASE);
+        assertErrors(template, "[Missing]\nX = 1\n[System]\nMEMORY = \"big\"\nSWAP = 1\nRATIO = 2\nDEBUG = 1\n",
+                "Unknown section Missing",
+                "Type of System.MEMORY is int, can't be overridden by String value",
+                "Type of System.DEBUG is boolean, can't be overridden by int value",
+                "Unknown key System.SWAP");
+    }
+
+    @Test
+    public void conditionReevaluated() throws Exception {
+        final ConfigTemplate template = scanner.parseTemplate("[A]\nBOOST = true\nMEMORY = $BOOST ? 2048 : 1024\n");
+        Assert.assertEquals(2048, section(template.getConfig(), "A").getValue(1));
+        Assert.assertEquals(1024, section(template.overlay(scanner.parseContent("[A]\nBOOST = false\n")), "A").getValue(1));
+    }
+
+    @Test
+    public void evaluationError() throws Exception {
+        final ConfigTemplate template = scanner.parseTemplate("[A]\nDIVISOR = 2\nVALUE = 10 / $DIVISOR\n");
+        assertErrors(template, "[A]\nDIVISOR = 0\n", "Invalid (10 / DIVISOR): / by zero (line 3, pos 9)");
+    }
+
+    private void assertErrors(final ConfigTemplate template, final String overlay, final String... errors) throws Exception {
+        try {
+            template.overlay(scanner.parseContent(overlay));
+            Assert.fail("Overlay should be rejected: " + overlay);
+        } catch (OverlayException e) {
+            Assert.assertEquals(Arrays.asList(errors), e.getErrors());
+        }
+    }
+
+    private static Section section(final Config config, final String name) {
+        return config.getSection(name).orElseThrow(IllegalStateException::new);
+    }
+}
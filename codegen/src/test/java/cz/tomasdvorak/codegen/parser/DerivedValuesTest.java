@@ -0,0 +1,116 @@
+package cz.tomasdvorak.codegen.parser;
+
+import cz.tomasdvorak.codegen.dto.Config;
+import cz.tomasdvorak.codegen.dto.Section;
+import cz.tomasdvorak.codegen.parser.utils.ParsingException;
+import cz.tomasdvorak.codegen.parser.utils.SyntaxError;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Expressions are evaluated to literals by both engines.
+ */
+public class DerivedValuesTest {
+
+    @Test
+    public void evaluate() throws Exception {
+        final String input = "[SystemConstants]\n" +
+                "MAX_MEMORY = 120\n" +
+                "DISK_QUOTA = 50\n" +
+                "BOOSTED_MEMORY = $UserConstants.BOOST_ENABLED ? $MAX_MEMORY * $UserConstants.BOOST : $MAX_MEMORY\n" +
+                "HOME = $ROOT + \"/\" + $UserConstants.NAME\n" +
+                "ROOT = \"/home\"\n" +
+                "[UserConstants]\n" +
+                "BOOST = 3.5\n" +
+                "BOOST_ENABLED = true\n" +
+                "NAME = \"user\" + (1 + 2 * 3) + -1.5 + !true\n" +
+                "SMALL = $SystemConstants.DISK_QUOTA < 100 && $BOOST != 0\n" +
+                "HALF = $SystemConstants.DISK_QUOTA / 2 % 7 - -1\n";
+        final Config expected = new Config(Arrays.asList(
+                new Section.Builder("SystemConstants")
+                        .add("MAX_MEMORY", 120)
+                        .add("DISK_QUOTA", 50)
+                        .add("BOOSTED_MEMORY", 420.0)
+                        .add("HOME", "/home/user7-1.5false")
+                        .add("ROOT", "/home")
+                        .build(),
+                new Section.Builder("UserConstants")
+                        .add("BOOST", 3.5)
+                        .add("BOOST_ENABLED", true)
+                        .add("NAME", "user7-1.5false")
+                        .add("SMALL", true)
+                        .add("HALF", 5)
+                        .build()));
+        for (ParserEngine engine : ParserEngine.values()) {
+            Assert.assertEquals(engine.name(), expected, new ConfigurationParser(engine).parseContent(input));
+        }
+    }
+
+    @Test
+    public void negativeLiteralsStayLiterals() throws Exception {
+        for (ParserEngine engine : ParserEngine.values()) {
+            final Section section = new ConfigurationParser(engine).parseContent("[A]\nX = -1\nY = -0.5\n").getSections().get(0);
+            Assert.assertEquals(-1, section.getInt(0));
+            Assert.assertEquals(-0.5, section.getDouble(1), 0);
+        }
+    }
+
+    @Test
+    public void cycle() throws Exception {
+        assertErrors("[A]\nX = $Y + 1\nY = $B.Z\n[B]\nZ = $A.X\n",
+                new SyntaxError(5, 5, "Cyclic reference X -> Y -> Z -> X"));
+        assertErrors("[A]\nX = $X\n", new SyntaxError(2, 5, "Cyclic reference X -> X"));
+    }
+
+    @Test
+    public void typeErrors() throws Exception {
+        assertErrors("[A]\nX = 1 + true\nY = !1\nZ = 1 ? 2 : 3\nW = true ? 1 : \"a\"\nV = \"a\" < \"b\"\n",
+                new SyntaxError(2, 5, "Operator + can't be applied to int and boolean"),
+                new SyntaxError(3, 5, "Operator ! can't be applied to int"),
+                new SyntaxError(4, 5, "Condition 1 has to be boolean, found int"),
+                new SyntaxError(5, 5, "Branches of (true ? 1 : \"a\") have different types int and String"),
+                new SyntaxError(6, 5, "Operator < can't be applied to String and String"));
+    }
+
+    @Test
+    public void arithmeticErrors() throws Exception {
+        assertErrors("[A]\nX = 2147483647 + 1\nY = 1 / 0\nZ = 1.0 / 0\n",
+                new SyntaxError(2, 5, "Invalid (2147483647 + 1): integer overflow"),
+                new SyntaxError(3, 5, "Invalid (1 / 0): / by zero"),
+                new SyntaxError(4, 5, "Value of (1.0 / 0) is not a finite number"));
+    }
+
+    @Test
+    public void onlyOriginReported() throws Exception {
+        final ParsingException e = assertErrors("[A]\nX = 1\nY = $Z * 2\nZ = $B.MISSING\nW = $X + 1\n",
+                new SyntaxError(4, 5, "Unknown section B"));
+        Assert.assertEquals(new Config(Collections.singletonList(new Section.Builder("A").add("X", 1).add("W", 2).build())),
+                e.getPartialConfig().orElseThrow(AssertionError::new));
+    }
+
+    @Test
+    public void syntaxAndEvaluationErrors() throws Exception {
+        assertErrors("[A]\nX = $MISSING\nY = \n",
+                new SyntaxError(4, 1, "Expected value, found end of input"),
+                new SyntaxError(2, 5, "Unknown key A.MISSING"));
+    }
+
+    private static ParsingException assertErrors(final String input, final SyntaxError... errors) {
+        final List<SyntaxError> expected = Arrays.asList(errors);
+        ParsingException last = null;
+        for (ParserEngine engine : ParserEngine.values()) {
+            try {
+                new ConfigurationParser(engine).parseContent(input);
+                Assert.fail("Config should be rejected: " + input);
+            } catch (ParsingException e) {
+                Assert.assertEquals(engine.name(), expected, e.getErrors());
+                last = e;
+            }
+        }
+        return last;
+    }
+}
@@ -0,0 +1,93 @@
+package cz.tomasdvorak.codegen.parser;
+
+import cz.tomasdvorak.codegen.dto.Config;
+import cz.tomasdvorak.codegen.dto.Pair;
+import cz.tomasdvorak.codegen.dto.Section;
+import cz.tomasdvorak.codegen.parser.utils.ParsingException;
+import cz.tomasdvorak.codegen.parser.utils.SyntaxError;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+public class ErrorRecoveryTest {
+
+    private static final String BROKEN =
+            "[SystemConstants]\n" +
+            "MAX_MEMORY = 120\n" +
+            "DISK_QUOTA = \n" +
+            "HOME_ROOT = \"/home\"\n" +
+            "1WRONG = 1\n" +
+            "[Broken\n" +
+            "IGNORED = 1\n" +
+            "[UserConstants]\n" +
+            "BOOST = 3.5\n" +
+            "BOOST_ENABLED = yes\n";
+
+    @Test
+    public void allErrorsInOnePass() throws Exception {
+        for (ParserEngine engine : ParserEngine.values()) {
+            try {
+                new ConfigurationParser(engine).parseContent(BROKEN);
+                Assert.fail("Config should be rejected");
+            } catch (ParsingException e) {
+                Assert.assertEquals(Arrays.asList(
+                        new SyntaxError(4, 1, "Expected value, found 'H'"),
+                        new SyntaxError(5, 1, "Expected section start '[', found '1'"),
+                        new SyntaxError(7, 1, "Expected section end ']', found 'I'"),
+                        new SyntaxError(10, 17, "Expected value, found 'y'")
+                ), e.getErrors());
+                Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Parsing encountered errors! Expected value, found 'H' (line 4, pos 1), "));
+
+                Assert.assertEquals(new Config(Arrays.asList(
+                        new Section("SystemConstants", Arrays.asList(new Pair("MAX_MEMORY", 120), new Pair("HOME_ROOT", "/home"))),
+                        new Section("UserConstants", Collections.singletonList(new Pair("BOOST", 3.5)))
+                )), e.getPartialConfig().orElseThrow(AssertionError::new));
+            }
+        }
+    }
+
+    @Test
+    public void emptySection() throws Exception {
+        try {
+            new ConfigurationParser(ParserEngine.SCANNER).parseContent("[A]\n[B]\nX = 1\n[C]\n");
+            Assert.fail("Config should be rejected");
+        } catch (ParsingException e) {
+            Assert.assertEquals(Arrays.asList(
+                    new SyntaxError(2, 1, "Expected key, found '['"),
+                    new SyntaxError(5, 1, "Expected key, found end of input")
+            ), e.getErrors());
+            Assert.assertEquals(1, e.getPartialConfig().orElseThrow(AssertionError::new).getSections().size());
+        }
+    }
+
+    /**
+     * Recovering mode has to accept the same inputs and report the same first error as the fail-fast scanner
+     */
+    @Test
+    public void firstErrorSameAsFailFast() throws Exception {
+        final String[] fragments = {"[", "]", "=", " ", "\n", "# c\n", "#", "\"", "\"t\"", "S", "KEY", "1", "-", "3.5", "1.", "true", "[S]", "K = 1"};
+        final Random random = new Random(7);
+        for (int i = 0; i < 5000; i++) {
+            final StringBuilder input = new StringBuilder(random.nextBoolean() ? "[S]\n" : "");
+            for (int j = random.nextInt(12); j > 0; j--) {
+                input.append(fragments[random.nextInt(fragments.length)]);
+            }
+            Object failFast;
+            Object recovering;
+            try {
+                failFast = new ConfigurationScanner(input).scan();
+            } catch (ParsingException e) {
+                failFast = e.getErrors().get(0);
+            }
+            try {
+                recovering = new ConfigurationScanner(input).scanRecovering();
+            } catch (ParsingException e) {
+                recovering = e.getErrors().get(0);
+            }
+            Assert.assertEquals("Input: " + input, failFast, recovering);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package cz.tomasdvorak.codegen.parser;
+
+import cz.tomasdvorak.codegen.dto.Config;
+import cz.tomasdvorak.codegen.dto.Section;
+import cz.tomasdvorak.codegen.parser.utils.ParsingException;
+import cz.tomasdvorak.codegen.parser.utils.SyntaxError;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class IncludeTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ConfigurationParser grammar = new ConfigurationParser(ParserEngine.PARBOILED);
+    private final ConfigurationParser scanner = new ConfigurationParser(ParserEngine.SCANNER);
+
+    @Test
+    public void sectionsInsertedAtIncludes() throws Exception {
+        write("common/system.cfg", "[System]\nMEMORY = 1024\nLIMIT = $User.QUOTA + 1\n");
+        write("common/static.cfg", "include \"system.cfg\" # relative to the including file\n[Static]\nNAME = \"app\"\n");
+        final Path config = write("settings.cfg", "include \"common/static.cfg\"\n[User]\nQUOTA = $System.MEMORY * 2\n"
+                + "include = 5\n\ninclude\"other.cfg\"\n");
+        write("other.cfg", "[Other]\nX = true\n");
+
+        for (ConfigurationParser parser : Arrays.asList(grammar, scanner)) {
+            final Config parsed = parser.parse(config, StandardCharsets.UTF_8);
+            Assert.assertEquals(Arrays.asList("System", "Static", "User", "Other"), names(parsed));
+            Assert.assertEquals(2049, section(parsed, "System").getValue(1));
+            Assert.assertEquals(2048, section(parsed, "User").getValue(0));
+            Assert.assertEquals(5, section(parsed, "User").getValue(1));
+            Assert.assertEquals(Arrays.asList(real("common/static.cfg"), real("common/system.cfg"), real("other.cfg")),
+                    parser.parseTemplate(config, StandardCharsets.UTF_8).getIncludedFiles());
+        }
+    }
+
+    @Test
+    public void fragmentParsedOnce() throws Exception {
+        write("common.cfg", "[System]\nMEMORY = 1024\nDOUBLE = $MEMORY * 2\n");
+        final List<Path> configs = IntStream.range(0, 50)
+                .mapToObj(i -> write("config" + i + ".cfg", "[Config" + i + "]\nX = " + i + "\ninclude \"common.cfg\"\n"))
+                .collect(Collectors.toList());
+
+        final AtomicInteger parses = new AtomicInteger();
+        final ConfigurationParser counting = new ConfigurationParser(ParserEngine.SCANNER) {
+            @Override
+            Fragment parseFragment(final CharSequence fileContent) throws ParsingException {
+                parses.incrementAndGet();
+                return super.parseFragment(fileContent);
+            }
+        };
+        final List<Section> included = configs.parallelStream()
+                .map(config -> section(parse(counting, config), "System"))
+                .collect(Collectors.toList());
+        Assert.assertEquals(51, parses.get()); // every config and the included file once
+        included.forEach(section -> Assert.assertEquals(2048, section.getValue(1)));
+        // placeholders of the fragment are replaced in every config, sections without expressions are shared
+        write("plain.cfg", "[Plain]\nX = 1\n");
+        final Section first = section(parse(scanner, write("a.cfg", "include \"plain.cfg\"\n")), "Plain");
+        Assert.assertSame(first, section(parse(scanner, write("b.cfg", "include \"plain.cfg\"\n")), "Plain"));
+    }
+
+    @Test
+    public void changedFragmentParsedAgain() throws Exception {
+        final Path common = write("common.cfg", "[System]\nMEMORY = 1024\n");
+        final Path config = write("settings.cfg", "include \"common.cfg\"\n");
+        Assert.assertEquals(1024, section(parse(grammar, config), "System").getValue(0));
+
+        write("common.cfg", "[System]\nMEMORY = 2048\n");
+        Files.setLastModifiedTime(common, FileTime.fromMillis(Files.getLastModifiedTime(common).toMillis() + 2000));
+        Assert.assertEquals(2048, section(parse(grammar, config), "System").getValue(0));
+    }
+
+    @Test
+    public void fileIncludedOnce() throws Exception {
+        write("common.cfg", "[System]\nMEMORY = 1024\n");
+        write("a.cfg", "include \"common.cfg\"\n[A]\nX = 1\n");
+        write("b.cfg", "include \"common.cfg\"\n[B]\nX = 1\n");
+        final Path config = write("settings.cfg", "include \"a.cfg\"\ninclude \"b.cfg\"\ninclude \"./common.cfg\"\n");
+        Assert.assertEquals(Arrays.asList("System", "A", "B"), names(parse(scanner, config)));
+    }
+
+    @Test
+    public void errorsInIncludedFiles() throws Exception {
+        write("a.cfg", "[A]\nX = 1\ninclude \"b.cfg\"\n");
+        write("b.cfg", "# cycle\n  include \"a.cfg\"\n");
+        write("broken.cfg", "[Broken]\nX = \n[Fine]\nY = 1\nZ = $Y / 0\n");
+        final Path config = write("settings.cfg", "[Settings]\nX = 1\ninclude \"a.cfg\"\n include \"missing.cfg\"\ninclude \"broken.cfg\"\n");
+
+        for (ConfigurationParser parser : Arrays.asList(grammar, scanner)) {
+            try {
+                parser.parse(config, StandardCharsets.UTF_8);
+                Assert.fail("Parsing should fail");
+            } catch (ParsingException e) {
+                Assert.assertEquals(Arrays.asList(
+                        new SyntaxError(name("b.cfg"), 2, 3, "Cyclic include " + config + " -> " + name("a.cfg") + " -> " + name("b.cfg") + " -> " + name("a.cfg")),
+                        new SyntaxError(4, 2, "Included file " + name("missing.cfg") + " not found"),
+                        new SyntaxError(name("broken.cfg"), 3, 1, "Expected value, found '['"),
+                        new SyntaxError(name("broken.cfg"), 5, 5, "Invalid (Y / 0): / by zero")
+                ), e.getErrors());
+                Assert.assertEquals(Arrays.asList("Settings", "A"), names(e.getPartialConfig().orElseThrow(IllegalStateException::new)));
+            }
+        }
+
+        write("broken.cfg", "[Fine]\nY = 1\nZ = $Y / 0\n");
+        try {
+            scanner.parse(write("derived.cfg", "[Settings]\nX = $Fine.Y\ninclude \"broken.cfg\"\n"), StandardCharsets.UTF_8);
+            Assert.fail("Parsing should fail");
+        } catch (ParsingException e) {
+            Assert.assertEquals(Collections.singletonList(new SyntaxError(name("broken.cfg"), 3, 5, "Invalid (Y / 0): / by zero")), e.getErrors());
+        }
+    }
+
+    @Test
+    public void chunksKeepIncludePositions() throws Exception {
+        final String content = "include \"a.cfg\"\n[A]\nX = 1\ninclude \"b.cfg\"\n[B]\nY = 1\n[C]\nZ = 1\ninclude \"c.cfg\"\n";
+        for (ConfigurationParser parser : Arrays.asList(grammar, scanner)) {
+            Assert.assertEquals(directives(parser.parseFragment(content)), directives(parser.parseInChunks(content, 1)));
+        }
+        Assert.assertEquals(Arrays.asList("a.cfg@0:0", "b.cfg@1:26", "c.cfg@3:62"), directives(scanner.parseFragment(content)));
+    }
+
+    private Path write(final String name, final String content) {
+        try {
+            final Path file = folder.getRoot().toPath().resolve(name);
+            Files.createDirectories(file.getParent());
+            return Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String name(final String name) {
+        return folder.getRoot().toPath().resolve(name).toString();
+    }
+
+    private Path real(final String name) throws IOException {
+        return folder.getRoot().toPath().resolve(name).toRealPath();
+    }
+
+    private static Config parse(final ConfigurationParser parser, final Path config) {
+        try {
+            return parser.parse(config, StandardCharsets.UTF_8);
+        } catch (IOException | ParsingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<String> directives(final Fragment fragment) {
+        return fragment.includes.getDirectives().stream()
+                .map(directive -> directive.path + "@" + directive.sectionIndex + ":" + directive.start)
+                .collect(Collectors.toList());
+    }
+
+    private static List<String> names(final Config config) {
+        return config.getSections().stream().map(Section::getName).collect(Collectors.toList());
+    }
+
+    private static Section section(final Config config, final String name) {
+        return config.getSection(name).orElseThrow(IllegalStateException::new);
+    }
+}
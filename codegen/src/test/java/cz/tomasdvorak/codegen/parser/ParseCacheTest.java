@@ -0,0 +1,211 @@
+package cz.tomasdvorak.codegen.parser;
+
+import cz.tomasdvorak.codegen.dto.Config;
+import cz.tomasdvorak.codegen.dto.Section;
+import cz.tomasdvorak.codegen.parser.utils.ParsingException;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class ParseCacheTest {
+
+    private static final String CONFIG = "[Section]\nINT = 42\nNEGATIVE = -7\nDOUBLE = 3.5\nBOOLEAN = true\n"
+            + "STRING = \"unié, $x\"\nDERIVED = $INT * 2\n[Empty]\nX = \"\"\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final CountingParser parser = new CountingParser();
+    private Path cacheDir;
+    private Path configFile;
+
+    @Before
+    public void setUp() throws Exception {
+        cacheDir = folder.getRoot().toPath().resolve("cache");
+        configFile = folder.getRoot().toPath().resolve("settings.cfg");
+        Files.write(configFile, CONFIG.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void hitSkipsParsing() throws Exception {
+        final ParseCache cache = new ParseCache(cacheDir);
+        final Config expected = new ConfigurationParser().parse(configFile, StandardCharsets.UTF_8);
+
+        Assert.assertEquals(expected, cache.parse(parser, configFile, StandardCharsets.UTF_8));
+        Assert.assertEquals(expected, cache.parse(parser, configFile, StandardCharsets.UTF_8));
+        Assert.assertEquals(expected, new ParseCache(cacheDir).parse(parser, CONFIG.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8));
+        Assert.assertEquals(1, parser.parses);
+        Assert.assertEquals(1, entries().size());
+    }
+
+    @Test
+    public void changedContentOrCharsetIsParsed() throws Exception {
+        final ParseCache cache = new ParseCache(cacheDir);
+        cache.parse(parser, configFile, StandardCharsets.UTF_8);
+        cache.parse(parser, configFile, StandardCharsets.ISO_8859_1);
+        Files.write(configFile, CONFIG.replace("42", "43").getBytes(StandardCharsets.UTF_8));
+        Assert.assertEquals(43, cache.parse(parser, configFile, StandardCharsets.UTF_8).getSections().get(0).getInt(0));
+        Assert.assertEquals(3, parser.parses);
+        Assert.assertEquals(3, entries().size());
+    }
+
+    @Test
+    public void corruptedEntryIsParsedAgain() throws Exception {
+        final ParseCache cache = new ParseCache(cacheDir);
+        final Config expected = cache.parse(parser, configFile, StandardCharsets.UTF_8);
+        final Path entry = entries().get(0);
+        final byte[] bytes = Files.readAllBytes(entry);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(entry, bytes);
+
+        Assert.assertEquals(expected, cache.parse(parser, configFile, StandardCharsets.UTF_8));
+        Assert.assertEquals(2, parser.parses);
+        Files.write(entry, new byte[]{1, 2, 3});
+        Assert.assertEquals(expected, cache.parse(parser, configFile, StandardCharsets.UTF_8));
+        Assert.assertEquals(3, parser.parses);
+        Assert.assertEquals(expected, cache.parse(parser, configFile, StandardCharsets.UTF_8));
+        Assert.assertEquals(3, parser.parses);
+    }
+
+    @Test
+    public void invalidConfigIsNotCached() throws Exception {
+        Files.write(configFile, "[Section]\nX = \n".getBytes(StandardCharsets.UTF_8));
+        try {
+            new ParseCache(cacheDir).parse(parser, configFile, StandardCharsets.UTF_8);
+            Assert.fail("Invalid config should be rejected");
+        } catch (ParsingException e) {
+            Assert.assertTrue(entries().isEmpty());
+        }
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesEvicted() throws Exception {
+        final long entrySize = ParseCache.encode(new ConfigurationParser().parse(configFile, StandardCharsets.UTF_8)).length;
+        final ParseCache cache = new ParseCache(cacheDir, 2 * entrySize);
+        final List<Path> configs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            final Path config = folder.getRoot().toPath().resolve("config" + i + ".cfg");
+            Files.write(config, CONFIG.replace("42", "4" + i).getBytes(StandardCharsets.UTF_8));
+            configs.add(config);
+        }
+        cache.parse(parser, configs.get(0), StandardCharsets.UTF_8);
+        cache.parse(parser, configs.get(1), StandardCharsets.UTF_8);
+        for (Path entry : entries()) {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+        }
+        cache.parse(parser, configs.get(0), StandardCharsets.UTF_8); // used again, config1 is the least recently used
+        cache.parse(parser, configs.get(2), StandardCharsets.UTF_8);
+        Assert.assertEquals(2, entries().size());
+        Assert.assertEquals(3, parser.parses);
+
+        cache.parse(parser, configs.get(0), StandardCharsets.UTF_8);
+        cache.parse(parser, configs.get(2), StandardCharsets.UTF_8);
+        Assert.assertEquals(3, parser.parses);
+        cache.parse(parser, configs.get(1), StandardCharsets.UTF_8);
+        Assert.assertEquals(4, parser.parses);
+    }
+
+    @Test
+    public void encodingRoundTrip() throws Exception {
+        final StringBuilder longString = new StringBuilder();
+        for (int i = 0; i < 70_000; i++) {
+            longString.append((char) ('a' + i % 26));
+        }
+        final Config config = new Config(Collections.singletonList(new Section.Builder("All")
+                .add("INT", Integer.MIN_VALUE)
+                .add("LONG", Long.MAX_VALUE)
+                .add("DOUBLE", Double.NaN)
+                .add("BOOLEAN", false)
+                .add("LONG_STRING", longString.toString())
+                .build()));
+        Assert.assertEquals(config, ParseCache.decode(ParseCache.encode(config)));
+        Assert.assertNull(ParseCache.decode(new byte[0]));
+    }
+
+    @Test
+    public void configWithIncludesNotCached() throws Exception {
+        final Path common = folder.getRoot().toPath().resolve("common.cfg");
+        Files.write(common, "[Common]\nX = 1\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(configFile, (CONFIG + "include \"common.cfg\"\n").getBytes(StandardCharsets.UTF_8));
+        final ParseCache cache = new ParseCache(cacheDir);
+        cache.parse(parser, configFile, StandardCharsets.UTF_8);
+
+        Files.write(common, "[Common]\nX = 2\n".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(common, FileTime.fromMillis(Files.getLastModifiedTime(common).toMillis() + 2000));
+        Assert.assertEquals(2, cache.parse(parser, configFile, StandardCharsets.UTF_8).getSection("Common").get().getValue(0));
+        Assert.assertEquals(2, parser.parses);
+        Assert.assertEquals(0, entries().size());
+    }
+
+    @Test
+    public void plainTemplateCached() throws Exception {
+        Files.write(configFile, "[Section]\nINT = 42\nSTRING = \"a\"\n".getBytes(StandardCharsets.UTF_8));
+        final ParseCache cache = new ParseCache(cacheDir);
+        final ConfigTemplate parsed = cache.parseTemplate(parser, configFile, StandardCharsets.UTF_8);
+        final ConfigTemplate cached = cache.parseTemplate(parser, configFile, StandardCharsets.UTF_8);
+        Assert.assertEquals(1, parser.parses);
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(parsed.getConfig(), cached.getConfig());
+
+        final Config overlay = new Config(Collections.singletonList(new Section.Builder("Section").add("INT", 7).build()));
+        Assert.assertEquals(parsed.overlay(overlay), cached.overlay(overlay));
+    }
+
+    @Test
+    public void templateWithDerivedValuesNotCached() throws Exception {
+        final ParseCache cache = new ParseCache(cacheDir);
+        cache.parseTemplate(parser, configFile, StandardCharsets.UTF_8);
+        final ConfigTemplate template = cache.parseTemplate(parser, configFile, StandardCharsets.UTF_8);
+        Assert.assertEquals(2, parser.parses);
+        Assert.assertEquals(0, entries().size());
+
+        // derived value evaluated again with the overridden key
+        final Config overlay = new Config(Collections.singletonList(new Section.Builder("Section").add("INT", 7).build()));
+        final Section section = template.overlay(overlay).getSection("Section").get();
+        Assert.assertEquals(14, section.getValue(section.indexOf("DERIVED")));
+    }
+
+    private List<Path> entries() throws IOException {
+        final List<Path> entries = new ArrayList<>();
+        if (Files.isDirectory(cacheDir)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(cacheDir)) {
+                stream.forEach(entries::add);
+            }
+        }
+        return entries;
+    }
+
+    private static class CountingParser extends ConfigurationParser {
+        private int parses;
+
+        CountingParser() {
+            super(ParserEngine.SCANNER);
+        }
+
+        @Override
+        public ConfigTemplate parseTemplate(final Path configFile, final Charset charset) throws IOException, ParsingException {
+            parses++;
+            return super.parseTemplate(configFile, charset);
+        }
+
+        @Override
+        ConfigTemplate parseTemplate(final InputStream inputStream, final Charset charset) throws IOException, ParsingException {
+            parses++;
+            return super.parseTemplate(inputStream, charset);
+        }
+    }
+}
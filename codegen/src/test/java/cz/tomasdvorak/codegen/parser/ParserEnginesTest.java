@@ -0,0 +1,143 @@
+package cz.tomasdvorak.codegen.parser;
+
+import cz.tomasdvorak.codegen.dto.Config;
+import cz.tomasdvorak.codegen.parser.utils.ParsingException;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Differential test, both parser engines have to accept and reject the same inputs and produce the same trees.
+ */
+public class ParserEnginesTest {
+
+    private static final String[] FRAGMENTS = {
+            "[", "]", "=", " ", "  ", "\t", "\n", "\r\n", "\r", "\f", "# comment\n", "#", "\"", "\"text\"", "\"a b\"",
+            "Section", "KEY", "key_2", "_", "__x", "1", "42", "007", "-", ".", "3.5", "-1.25", "12.5", "1.", "true",
+            "false", "truex", "x", "[Section]", "KEY = 1", "KEY=\"v\"", "A=true", "B=-0.5",
+            "$", "$KEY", "$A", "$Section.KEY", "+", "*", "/", "%", "(", ")", "?", ":", "!", "&&", "||", "==", "!=", "<", ">=",
+            "C=$A", "D = $KEY * 2", "E=(1 + 2) * 3", "F = $A ? 1 : 2",
+            "0x1F", "0x", "1_000", "1_", "L", "5L", "KB", "512MB", "30s", "250ms", "m", "h", "3000000000", "-2147483648"
+    };
+
+    private static ConfigurationParser grammar;
+    private static ConfigurationParser scanner;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        grammar = new ConfigurationParser(ParserEngine.PARBOILED);
+        scanner = new ConfigurationParser(ParserEngine.SCANNER);
+    }
+
+    @Test
+    public void testConfig() throws Exception {
+        final String content = new String(Files.readAllBytes(Paths.get(getClass().getResource("/test-config.cfg").toURI())));
+        final Config expected = grammar.parseContent(content);
+        Assert.assertEquals(expected, scanner.parseContent(content));
+    }
+
+    @Test
+    public void cornerCases() throws Exception {
+        final String[] inputs = {
+                "",
+                "   \n",
+                "[A]",
+                "[A]\nx=1",
+                "[A]\nx=1\n",
+                "[ A ]\n x = 1 ",
+                "[\nA\n]\nx\n=\n1",
+                "[A]x=1y=2",
+                "[A]x=1 [B] y = \"s\"",
+                "[A]\nx=1\n# trailing comment",
+                "[A]\nx=1\n# trailing comment\n",
+                "# leading\n[A]\nx=1",
+                "[A]\nx=12.5",
+                "[A]\nx=1.",
+                "[A]\nx=-1",
+                "[A]\nx=-1.5",
+                "[A]\nx=1.5.5",
+                "[A]\nx=truex",
+                "[A]\nx=truex=false",
+                "[A]\nx=\"unterminated",
+                "[A]\nx=\"multi\nline\"",
+                "[A]\nx=\"\"",
+                "[A]\n1x=1",
+                "[1A]\nx=1",
+                "[A1]\nx_1=1",
+                "[A]\nx=1\n[B]",
+                "[A]\nx=1\ny",
+                "[A]\nx=1\ny=",
+                "[A]#c\nx=1#c\n",
+                "[A]\nx=1\r\ny=2\r\n",
+                "[A]\nx=007",
+                "[A]\nx=1 + 2 * 3\ny=(1 + 2) * 3\nz=-$x - -1.5",
+                "[A]\nx=$B.y * 2\n[B]\ny=\"s\" + 1 + true",
+                "[A]\nx=1 < 2 && !false || 1 == 1.0 ? \"a\" : \"b\"",
+                "[A]\nx=1 ?\n2 : 3",
+                "[A]\nx=$ y\ny=$ A . x",
+                "[A]\nx=$truex\ntruex=1",
+                "[A]\nx=1 + \ny=2",
+                "[A]\nx=(1\ny=2",
+                "[A]\nx=1 < 2 < 3",
+                "[A]\nx=$x",
+                "[A]\nx=$y\ny=$x",
+                "[A]\nx=1 + true",
+                "[A]\nx=2147483647 + 1",
+                "[A]\nx=1 / 0",
+                "[A]\nx=1.0 / 0",
+                "[A]\nx=$B.y",
+                "[A]\nx=-2147483648\ny=2147483648\nz=-9223372036854775808\nw=9223372036854775808",
+                "[A]\nx=0x7F\ny=0XffL\nz=0x\nw=0x1G",
+                "[A]\nx=1__000\ny=1_\nz=1_000L",
+                "[A]\nx=512MB\ny=512 MB\nz=30sec\nw=5Lx=1",
+                "[A]\nx=1ms\ny=1s\nz=1m\nw=1h\nv=1mss",
+                "[A]\nx=-5 - -3\ny=- 5\nz=--5\nw=1-2",
+                "[A]\nx=9_000_000_000GB",
+                "[A]\nx=0x10MB",
+                "[A]\n99999999999999999999x = 1",
+                "[99999999999999999999A]\nx=1",
+                "[A]\nx=$99999999999999999999y",
+        };
+        for (String input : inputs) {
+            assertSameResult(input);
+        }
+    }
+
+    @Test
+    public void randomInputs() throws Exception {
+        final Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            final StringBuilder input = new StringBuilder();
+            if (random.nextBoolean()) {
+                input.append("[S]\n");
+            }
+            final int fragments = random.nextInt(12);
+            for (int j = 0; j < fragments; j++) {
+                input.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+            assertSameResult(input.toString());
+        }
+    }
+
+    private void assertSameResult(final String input) {
+        final Object expected = parse(grammar, input);
+        final Object actual = parse(scanner, input);
+        if (expected instanceof Config) {
+            Assert.assertEquals("Input: " + input, expected, actual);
+        } else {
+            Assert.assertTrue("Input should be rejected: " + input + ", got " + actual, actual instanceof ParsingException);
+        }
+    }
+
+    private Object parse(final ConfigurationParser parser, final String input) {
+        try {
+            return parser.parseContent(input);
+        } catch (ParsingException e) {
+            return e;
+        }
+    }
+}
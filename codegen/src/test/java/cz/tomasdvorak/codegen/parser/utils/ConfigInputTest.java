@@ -0,0 +1,85 @@
+package cz.tomasdvorak.codegen.parser.utils;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class ConfigInputTest {
+
+    private static final String ASCII = "[Section]\nKEY = \"value\"\n";
+    private static final String UNICODE = "[Sekce]\nKLÍČ = \"žluťoučký kůň 日本\"\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void asciiFile() throws Exception {
+        final CharSequence content = ConfigInput.read(write(ASCII, StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+        Assert.assertEquals(ASCII, content.toString());
+        Assert.assertEquals("Section", content.subSequence(1, 8).toString());
+        Assert.assertEquals('K', content.charAt(10));
+    }
+
+    @Test
+    public void unicodeFile() throws Exception {
+        final Path file = write(UNICODE, StandardCharsets.UTF_8);
+        Assert.assertEquals(UNICODE, ConfigInput.read(file, StandardCharsets.UTF_8).toString());
+    }
+
+    @Test
+    public void multiByteCharactersSplitBetweenChunks() throws Exception {
+        final Path file = write(UNICODE, StandardCharsets.UTF_8);
+        for (int chunkSize = 4; chunkSize < 20; chunkSize++) {
+            Assert.assertEquals(UNICODE, ConfigInput.read(file, StandardCharsets.UTF_8, chunkSize).toString());
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void chunksSmallerThanOneCharacter() throws Exception {
+        final Path file = write(UNICODE, StandardCharsets.UTF_8);
+        for (int chunkSize = 1; chunkSize <= 3; chunkSize++) {
+            Assert.assertEquals(UNICODE, ConfigInput.read(file, StandardCharsets.UTF_8, chunkSize).toString());
+        }
+        final Path utf16 = write(UNICODE, StandardCharsets.UTF_16);
+        Assert.assertEquals(UNICODE, ConfigInput.read(utf16, StandardCharsets.UTF_16, 1).toString());
+    }
+
+    @Test
+    public void explicitCharset() throws Exception {
+        final Charset charset = Charset.forName("windows-1250");
+        final String content = "[Sekce]\nKEY = \"žluťoučký kůň\"\n";
+        Assert.assertEquals(content, ConfigInput.read(write(content, charset), charset).toString());
+        Assert.assertEquals(content, ConfigInput.read(write(content, StandardCharsets.UTF_16), StandardCharsets.UTF_16).toString());
+    }
+
+    @Test(expected = IOException.class)
+    public void invalidContent() throws Exception {
+        ConfigInput.read(write(UNICODE, Charset.forName("windows-1250")), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void emptyFile() throws Exception {
+        Assert.assertEquals("", ConfigInput.read(write("", StandardCharsets.UTF_8), StandardCharsets.UTF_8).toString());
+    }
+
+    @Test
+    public void streamAndReader() throws Exception {
+        Assert.assertEquals(UNICODE, ConfigInput.read(new ByteArrayInputStream(UNICODE.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8).toString());
+        Assert.assertEquals(UNICODE, ConfigInput.read(new StringReader(UNICODE)).toString());
+    }
+
+    private Path write(final String content, final Charset charset) throws IOException {
+        final Path file = folder.newFile().toPath();
+        Files.write(file, content.getBytes(charset));
+        return file;
+    }
+}
@@ -0,0 +1,101 @@
+package cz.tomasdvorak.codegen.pipeline;
+
+import cz.tomasdvorak.codegen.dto.Section;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SectionPipelineTest {
+
+    @Test
+    public void allSectionsProcessedWithBoundedInFlight() throws Exception {
+        final List<Section> sections = sections(500);
+        final Set<String> processed = ConcurrentHashMap.newKeySet();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+
+        // more threads than slots, only the slots bound the sections in flight
+        new SectionPipeline(8, 3).run(sections, section -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            processed.add(section.getName());
+            sleep();
+            inFlight.decrementAndGet();
+        });
+
+        Assert.assertEquals(500, processed.size());
+        Assert.assertTrue("in flight " + maxInFlight.get(), maxInFlight.get() <= 3);
+    }
+
+    @Test
+    public void submittingBlocksOnFullPipeline() throws Exception {
+        final AtomicInteger submitted = new AtomicInteger();
+        final AtomicInteger maxAhead = new AtomicInteger();
+        final AtomicInteger done = new AtomicInteger();
+        final Iterable<Section> sections = () -> sections(200).stream().peek(section ->
+                maxAhead.accumulateAndGet(submitted.incrementAndGet() - done.get(), Math::max)).iterator();
+
+        new SectionPipeline(2, 5).run(sections, section -> {
+            sleep();
+            done.incrementAndGet();
+        });
+
+        Assert.assertEquals(200, done.get());
+        // one more section is taken from the source, before the producer blocks on a free slot
+        Assert.assertTrue("ahead " + maxAhead.get(), maxAhead.get() <= 6);
+    }
+
+    @Test
+    public void firstFailureRethrown() {
+        final AtomicInteger processed = new AtomicInteger();
+        try {
+            new SectionPipeline(3).run(sections(1000), section -> {
+                if (section.getName().equals("S10")) {
+                    throw new IOException("Disk full");
+                }
+                processed.incrementAndGet();
+                sleep();
+            });
+            Assert.fail("Failure expected");
+        } catch (IOException e) {
+            Assert.assertEquals("Disk full", e.getMessage());
+        }
+        Assert.assertTrue(processed.get() < 999);
+    }
+
+    @Test
+    public void errorRethrown() throws Exception {
+        try {
+            new SectionPipeline(3).run(sections(100), section -> {
+                if (section.getName().equals("S10")) {
+                    throw new StackOverflowError("Too deep");
+                }
+            });
+            Assert.fail("Error expected");
+        } catch (StackOverflowError e) {
+            Assert.assertEquals("Too deep", e.getMessage());
+        }
+    }
+
+    private static List<Section> sections(final int count) {
+        final List<Section> sections = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            sections.add(new Section("S" + i, Collections.emptyList()));
+        }
+        return sections;
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
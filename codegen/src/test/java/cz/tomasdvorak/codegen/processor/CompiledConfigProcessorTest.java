@@ -0,0 +1,121 @@
+package cz.tomasdvorak.codegen.processor;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Compiles a small project with the processor, generated constants have to be usable in the same compilation.
+ */
+public class CompiledConfigProcessorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path sources;
+    private Path classes;
+
+    @Before
+    public void setUp() throws Exception {
+        sources = folder.newFolder("src").toPath();
+        classes = folder.newFolder("classes").toPath();
+        final Path pkg = Files.createDirectories(sources.resolve("cz/app/settings"));
+        Files.write(pkg.resolve("package-info.java"), "@cz.tomasdvorak.codegen.processor.CompiledConfig(\"settings.cfg\")\npackage cz.app.settings;\n".getBytes());
+        final Path app = Files.createDirectories(sources.resolve("cz/app"));
+        Files.write(app.resolve("App.java"), ("package cz.app;\n" +
+                "public class App {\n" +
+                "    public static String describe() {\n" +
+                "        return cz.app.settings.SystemConstants.HOME_ROOT + \":\" + cz.app.settings.SystemConstants.MAX_MEMORY;\n" +
+                "    }\n" +
+                "}\n").getBytes());
+    }
+
+    @Test
+    public void generatesInSameCompilation() throws Exception {
+        writeConfig("[SystemConstants]\nMAX_MEMORY = 120\nHOME_ROOT = \"/home\"\n");
+        Assert.assertEquals(Collections.emptyList(), compile());
+        Assert.assertEquals("/home:120", describe());
+
+        // unchanged config, served from the cache
+        Assert.assertEquals(Collections.emptyList(), compile());
+        Assert.assertEquals("/home:120", describe());
+
+        writeConfig("[SystemConstants]\nMAX_MEMORY = 240\nHOME_ROOT = \"/users\"\n");
+        Assert.assertEquals(Collections.emptyList(), compile());
+        Assert.assertEquals("/users:240", describe());
+    }
+
+    @Test
+    public void includesRelativeToConfig() throws Exception {
+        final Path common = Files.createDirectories(classes.resolve("common")).resolve("system.cfg");
+        Files.write(common, "[SystemConstants]\nMAX_MEMORY = 120\nHOME_ROOT = \"/home\"\n".getBytes());
+        writeConfig("include \"common/system.cfg\"\n");
+        Assert.assertEquals(Collections.emptyList(), compile());
+        Assert.assertEquals("/home:120", describe());
+
+        // unchanged config with a changed included file, not served from the cache
+        Files.write(common, "[SystemConstants]\nMAX_MEMORY = 240\nHOME_ROOT = \"/users\"\n".getBytes());
+        Assert.assertEquals(Collections.emptyList(), compile());
+        Assert.assertEquals("/users:240", describe());
+    }
+
+    @Test
+    public void reportsInvalidConfig() throws Exception {
+        writeConfig("[SystemConstants]\nMAX_MEMORY = \n");
+        final List<String> errors = compile();
+        Assert.assertTrue(errors.toString(), errors.stream().anyMatch(error -> error.startsWith("Failed to parse config settings.cfg")));
+    }
+
+    @Test
+    public void reportsMissingConfig() throws Exception {
+        final List<String> errors = compile();
+        Assert.assertTrue(errors.toString(), errors.contains("Config file settings.cfg not found in class output nor source path"));
+    }
+
+    private void writeConfig(final String content) throws Exception {
+        Files.write(classes.resolve("settings.cfg"), content.getBytes());
+    }
+
+    private List<String> compile() throws Exception {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null)) {
+            final List<File> files = Files.walk(sources).filter(p -> p.toString().endsWith(".java")).map(Path::toFile).collect(Collectors.toList());
+            final List<String> options = Arrays.asList(
+                    "-classpath", System.getProperty("java.class.path"),
+                    "-d", classes.toString(),
+                    "-s", folder.newFolder().toString());
+            final JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null, fileManager.getJavaFileObjectsFromFiles(files));
+            task.setProcessors(Collections.singletonList(new CompiledConfigProcessor()));
+            task.call();
+        }
+        return diagnostics.getDiagnostics().stream()
+                .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+                .map(d -> d.getMessage(null))
+                .collect(Collectors.toList());
+    }
+
+    private String describe() throws Exception {
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{classes.toUri().toURL()}, null)) {
+            return (String) loader.loadClass("cz.app.App").getMethod("describe").invoke(null);
+        }
+    }
+}
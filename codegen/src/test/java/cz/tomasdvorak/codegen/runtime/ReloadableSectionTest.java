@@ -0,0 +1,90 @@
+package cz.tomasdvorak.codegen.runtime;
+
+import cz.tomasdvorak.codegen.dto.Config;
+import cz.tomasdvorak.codegen.dto.Section;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class ReloadableSectionTest {
+
+    private final ReloadableSection system = new ReloadableSection("SystemConstants",
+            new String[]{"MAX_MEMORY", "HOME_ROOT"}, new Object[]{120, "/home"});
+    private final ReloadableSection user = new ReloadableSection("UserConstants",
+            new String[]{"BOOST"}, new Object[]{1.5});
+
+    @Test
+    public void reload() throws Throwable {
+        final MethodHandle maxMemory = system.getter(0);
+        final MethodHandle homeRoot = system.getter(1);
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(120, (int) maxMemory.invokeExact());
+            Assert.assertEquals("/home", (String) homeRoot.invokeExact());
+        }
+
+        system.reload(new Section.Builder("SystemConstants").add("HOME_ROOT", "/users").add("MAX_MEMORY", 240).build());
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(240, (int) maxMemory.invokeExact());
+            Assert.assertEquals("/users", (String) homeRoot.invokeExact());
+        }
+    }
+
+    @Test
+    public void reloadConfig() throws Throwable {
+        ReloadableSection.reload(config(360, "/srv", 2.0), system, user);
+        Assert.assertEquals(360, (int) system.getter(0).invokeExact());
+        Assert.assertEquals("/srv", (String) system.getter(1).invokeExact());
+        Assert.assertEquals(2.0, (double) user.getter(0).invokeExact(), 0);
+    }
+
+    @Test
+    public void invalidConfigChangesNothing() throws Throwable {
+        final Config config = new Config(Arrays.asList(
+                new Section.Builder("SystemConstants").add("MAX_MEMORY", 360).add("HOME_ROOT", "/srv").build(),
+                new Section.Builder("UserConstants").add("BOOST", true).build()));
+        try {
+            ReloadableSection.reload(config, system, user);
+            Assert.fail("Type change has to be rejected");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("Key UserConstants.BOOST has type BOOLEAN, DOUBLE expected", e.getMessage());
+        }
+        Assert.assertEquals(120, (int) system.getter(0).invokeExact());
+        Assert.assertEquals(1.5, (double) user.getter(0).invokeExact(), 0);
+    }
+
+    @Test
+    public void differentKeys() {
+        assertRejected("Key SystemConstants.HOME_ROOT not found",
+                new Section.Builder("SystemConstants").add("MAX_MEMORY", 1).add("HOME", "/").build());
+        assertRejected("Section SystemConstants has 1 keys, 2 expected",
+                new Section.Builder("SystemConstants").add("MAX_MEMORY", 1).build());
+    }
+
+    @Test
+    public void missingSection() {
+        try {
+            ReloadableSection.reload(new Config(Collections.emptyList()), system);
+            Assert.fail("Missing section has to be rejected");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("Section SystemConstants not found in the config", e.getMessage());
+        }
+    }
+
+    private void assertRejected(final String message, final Section section) {
+        try {
+            system.reload(section);
+            Assert.fail("Expected rejected section " + section);
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals(message, e.getMessage());
+        }
+    }
+
+    private static Config config(final int maxMemory, final String homeRoot, final double boost) {
+        return new Config(Arrays.asList(
+                new Section.Builder("SystemConstants").add("MAX_MEMORY", maxMemory).add("HOME_ROOT", homeRoot).build(),
+                new Section.Builder("UserConstants").add("BOOST", boost).build()));
+    }
+}
@@ -0,0 +1,134 @@
+package cz.tomasdvorak.codegen.watch;
+
+import cz.tomasdvorak.codegen.Codegen;
+import cz.tomasdvorak.codegen.parser.ParserEngine;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+public class ConfigWatcherTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path config;
+    private Path target;
+    private Path classes;
+
+    @Before
+    public void setUp() throws Exception {
+        config = folder.newFolder("config").toPath().resolve("settings.cfg");
+        target = folder.newFolder("generated").toPath();
+        classes = target.resolve("cz/app");
+    }
+
+    @Test
+    public void onlyChangedSectionsRegenerated() throws Exception {
+        Files.write(config, "[A]\nX = 1\n[B]\nY = 2\n[C]\nZ = 3\n".getBytes());
+        try (ConfigWatcher watcher = new ConfigWatcher(new Codegen.Builder(ParserEngine.PARBOILED).build(), config, target.toString(), "cz.app", 10)) {
+            watcher.regenerate();
+            Assert.assertTrue(Files.exists(classes.resolve("A.java")));
+            Assert.assertTrue(Files.exists(classes.resolve("C.java")));
+
+            final FileTime old = FileTime.fromMillis(0);
+            Files.setLastModifiedTime(classes.resolve("A.java"), old);
+            Files.setLastModifiedTime(classes.resolve("B.java"), old);
+
+            Files.write(config, "[A]\nX = 1\n[B]\nY = 20\n".getBytes());
+            watcher.regenerate();
+            Assert.assertEquals(old, Files.getLastModifiedTime(classes.resolve("A.java")));
+            Assert.assertTrue(read(classes.resolve("B.java")).contains("Y = 20"));
+            Assert.assertFalse(Files.exists(classes.resolve("C.java")));
+
+            // invalid config is only reported, the last generated classes remain
+            Files.write(config, "[A]\nX = \n".getBytes());
+            watcher.regenerate();
+            Assert.assertTrue(Files.exists(classes.resolve("B.java")));
+        }
+    }
+
+    @Test
+    public void sectionsRemovedWhileNotWatchingPruned() throws Exception {
+        Files.write(config, "[A]\nX = 1\n[B]\nY = 2\n".getBytes());
+        try (ConfigWatcher watcher = new ConfigWatcher(new Codegen.Builder(ParserEngine.PARBOILED).build(), config, target.toString(), "cz.app", 10)) {
+            watcher.regenerate();
+        }
+        Assert.assertTrue(Files.exists(classes.resolve("B.java")));
+
+        Files.write(config, "[A]\nX = 1\n".getBytes());
+        try (ConfigWatcher watcher = new ConfigWatcher(new Codegen.Builder(ParserEngine.PARBOILED).build(), config, target.toString(), "cz.app", 10)) {
+            watcher.regenerate();
+        }
+        Assert.assertTrue(Files.exists(classes.resolve("A.java")));
+        Assert.assertFalse(Files.exists(classes.resolve("B.java")));
+    }
+
+    @Test
+    public void regeneratesOnFileChange() throws Exception {
+        Files.write(config, "[A]\nX = 1\n".getBytes());
+        final ConfigWatcher watcher = new ConfigWatcher(new Codegen.Builder(ParserEngine.PARBOILED).build(), config, target.toString(), "cz.app", 10);
+        final Thread thread = new Thread(() -> {
+            try {
+                watcher.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        try {
+            awaitContent(classes.resolve("A.java"), "X = 1");
+            Files.write(config, "[A]\nX = \n".getBytes());
+            Files.write(config, "[A]\nX = 2\n".getBytes());
+            awaitContent(classes.resolve("A.java"), "X = 2");
+        } finally {
+            watcher.close();
+            thread.join(5000);
+        }
+        Assert.assertFalse(thread.isAlive());
+    }
+
+    @Test
+    public void regeneratesOnIncludedFileChange() throws Exception {
+        final Path common = folder.newFolder("common").toPath().resolve("system.cfg");
+        Files.write(common, "[System]\nY = 1\n".getBytes());
+        Files.write(config, "[A]\nX = 1 include \"../common/system.cfg\"\n".getBytes());
+        final ConfigWatcher watcher = new ConfigWatcher(new Codegen.Builder(ParserEngine.PARBOILED).build(), config, target.toString(), "cz.app", 10);
+        final Thread thread = new Thread(() -> {
+            try {
+                watcher.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        try {
+            awaitContent(classes.resolve("System.java"), "Y = 1");
+            Files.write(common, "[System]\nY = 2\n".getBytes());
+            awaitContent(classes.resolve("System.java"), "Y = 2");
+        } finally {
+            watcher.close();
+            thread.join(5000);
+        }
+        Assert.assertFalse(thread.isAlive());
+    }
+
+    private void awaitContent(final Path file, final String expected) throws Exception {
+        final long deadline = System.currentTimeMillis() + 20000;
+        while (!(Files.exists(file) && read(file).contains(expected))) {
+            if (System.currentTimeMillis() > deadline) {
+                Assert.fail("File " + file + " doesn't contain " + expected);
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private String read(final Path file) throws Exception {
+        return new String(Files.readAllBytes(file));
+    }
+}
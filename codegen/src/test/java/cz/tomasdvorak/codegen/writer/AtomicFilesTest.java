@@ -0,0 +1,186 @@
+package cz.tomasdvorak.codegen.writer;
+
+import cz.tomasdvorak.codegen.Codegen;
+import cz.tomasdvorak.codegen.generator.EmitterType;
+import cz.tomasdvorak.codegen.parser.ParserEngine;
+import org.jboss.forge.roaster.Roaster;
+import org.jboss.forge.roaster.model.source.JavaClassSource;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AtomicFilesTest {
+
+    private static final int THREADS = 8;
+    private static final int SECTIONS = 20;
+    private static final int KEYS = 50;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void identicalContentNotWrittenAgain() throws Exception {
+        final Path file = folder.getRoot().toPath().resolve("A.java");
+        Assert.assertTrue(AtomicFiles.write(file, "class A {}".getBytes(StandardCharsets.UTF_8)));
+        final FileTime modified = FileTime.fromMillis(1_000_000);
+        Files.setLastModifiedTime(file, modified);
+
+        Assert.assertFalse(AtomicFiles.write(file, "class A {}".getBytes(StandardCharsets.UTF_8)));
+        Assert.assertEquals(modified, Files.getLastModifiedTime(file));
+        Assert.assertTrue(AtomicFiles.write(file, "class A { }".getBytes(StandardCharsets.UTF_8)));
+        Assert.assertEquals("class A { }", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        Assert.assertEquals(1, Files.list(folder.getRoot().toPath()).count()); // no temporary files left
+    }
+
+    @Test
+    public void directoryLockExcludesThreads() throws Exception {
+        final Path dir = folder.getRoot().toPath().resolve("a/b");
+        final AtomicInteger holders = new AtomicInteger();
+        final AtomicBoolean overlapped = new AtomicBoolean();
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Callable<Void>> tasks = new ArrayList<>();
+            for (int i = 0; i < THREADS * 4; i++) {
+                tasks.add(() -> {
+                    try (DirectoryLock lock = DirectoryLock.acquire(dir); DirectoryLock reentered = DirectoryLock.acquire(dir)) {
+                        if (holders.incrementAndGet() > 1) {
+                            overlapped.set(true);
+                        }
+                        Thread.sleep(1);
+                        holders.decrementAndGet();
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> result : executor.invokeAll(tasks)) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertFalse(overlapped.get());
+    }
+
+    @Test
+    public void lockReleasedByAllThreadsRemoved() throws Exception {
+        final Path dir = folder.getRoot().toPath().resolve("a");
+        final Path lockFile = folder.getRoot().toPath().resolve("a.lock");
+        try (DirectoryLock lock = DirectoryLock.acquire(dir, lockFile)) {
+            Assert.assertTrue(DirectoryLock.LOCKS.containsKey(lockFile.toRealPath()));
+            Assert.assertFalse(Files.exists(dir.resolve(DirectoryLock.LOCK_FILE)));
+        }
+        Assert.assertFalse(DirectoryLock.LOCKS.containsKey(lockFile.toRealPath()));
+    }
+
+    @Test
+    public void newFileHasDefaultPermissions() throws Exception {
+        final Path dir = folder.getRoot().toPath();
+        Assume.assumeTrue(Files.getFileStore(dir).supportsFileAttributeView(PosixFileAttributeView.class));
+        final Path reference = Files.createFile(dir.resolve("reference"));
+        final Path file = dir.resolve("A.java");
+        AtomicFiles.write(file, "class A {}".getBytes(StandardCharsets.UTF_8));
+        Assert.assertEquals(Files.getPosixFilePermissions(reference), Files.getPosixFilePermissions(file));
+    }
+
+    @Test
+    public void rewrittenFileKeepsPermissions() throws Exception {
+        final Path dir = folder.getRoot().toPath();
+        Assume.assumeTrue(Files.getFileStore(dir).supportsFileAttributeView(PosixFileAttributeView.class));
+        final Path file = dir.resolve("A.java");
+        AtomicFiles.write(file, "class A {}".getBytes(StandardCharsets.UTF_8));
+        final Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-r-----");
+        Files.setPosixFilePermissions(file, permissions);
+
+        Assert.assertTrue(AtomicFiles.write(file, "class A { }".getBytes(StandardCharsets.UTF_8)));
+        Assert.assertEquals(permissions, Files.getPosixFilePermissions(file));
+    }
+
+    /**
+     * Modules of a parallel build generating the same package, readers never see a partially written class
+     */
+    @Test
+    public void concurrentCodegensOfSameOutput() throws Exception {
+        final Path config = folder.getRoot().toPath().resolve("settings.cfg");
+        final StringBuilder content = new StringBuilder();
+        for (int section = 0; section < SECTIONS; section++) {
+            content.append("[Section").append(section).append("]\n");
+            for (int key = 0; key < KEYS; key++) {
+                content.append("KEY_").append(key).append(" = \"value ").append(key).append("\"\n");
+            }
+        }
+        Files.write(config, content.toString().getBytes(StandardCharsets.UTF_8));
+        final Path target = folder.newFolder("generated").toPath();
+        final Path generated = target.resolve("cz/app/Section0.java");
+
+        final AtomicBoolean done = new AtomicBoolean();
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        try {
+            final Future<Integer> reader = executor.submit(() -> {
+                final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+                int reads = 0;
+                while (!done.get() && System.nanoTime() < deadline) {
+                    if (Files.exists(generated)) {
+                        assertComplete(generated);
+                        reads++;
+                    }
+                    Thread.sleep(1);
+                }
+                return reads;
+            });
+            final List<Callable<Void>> tasks = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                final boolean incremental = i % 2 == 0;
+                tasks.add(() -> {
+                    final Codegen codegen = new Codegen.Builder(ParserEngine.SCANNER).incremental(incremental).emitter(EmitterType.STREAMING).build();
+                    for (int round = 0; round < 3; round++) {
+                        codegen.execute(config.toString(), target.toString(), "cz.app");
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> result : executor.invokeAll(tasks)) {
+                result.get();
+            }
+            done.set(true);
+            reader.get();
+        } finally {
+            done.set(true);
+            executor.shutdownNow();
+        }
+
+        final Path dir = target.resolve("cz/app");
+        assertComplete(generated);
+        Assert.assertEquals(SECTIONS, Files.list(dir).filter(file -> file.toString().endsWith(".java")).count());
+        Assert.assertEquals(0, Files.list(dir).filter(file -> file.toString().endsWith(".tmp")).count());
+    }
+
+    /**
+     * The class parses and has all fields of its section
+     */
+    private static void assertComplete(final Path file) throws Exception {
+        final String source = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        final JavaClassSource parsed = Roaster.parse(JavaClassSource.class, source);
+        Assert.assertEquals("Partially written class: " + source, KEYS, parsed.getFields().size());
+        Assert.assertTrue("Partially written class: " + source, source.trim().endsWith("}"));
+    }
+}
@@ -0,0 +1,96 @@
+package cz.tomasdvorak.codegen.writer;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+
+public class IncrementalWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void unchangedFilesAreNotRewritten() throws Exception {
+        final Path dir = folder.getRoot().toPath();
+        generate(dir, "class A {}", "class B {}");
+
+        final FileTime old = FileTime.fromMillis(0);
+        Files.setLastModifiedTime(dir.resolve("A.java"), old);
+        Files.setLastModifiedTime(dir.resolve("B.java"), old);
+        Files.setLastModifiedTime(dir.resolve(IncrementalWriter.MANIFEST_FILE), old);
+
+        final IncrementalWriter writer = new IncrementalWriter(dir);
+        Assert.assertFalse(writer.write("A.java", "class A {}".getBytes()));
+        Assert.assertTrue(writer.write("B.java", "class B { int x; }".getBytes()));
+        writer.prune();
+        writer.saveManifest();
+
+        Assert.assertEquals(old, Files.getLastModifiedTime(dir.resolve("A.java")));
+        Assert.assertNotEquals(old, Files.getLastModifiedTime(dir.resolve("B.java")));
+        Assert.assertNotEquals(old, Files.getLastModifiedTime(dir.resolve(IncrementalWriter.MANIFEST_FILE)));
+    }
+
+    @Test
+    public void noOpRunTouchesNothing() throws Exception {
+        final Path dir = folder.getRoot().toPath();
+        generate(dir, "class A {}", "class B {}");
+        final FileTime old = FileTime.fromMillis(0);
+        Files.setLastModifiedTime(dir.resolve(IncrementalWriter.MANIFEST_FILE), old);
+
+        generate(dir, "class A {}", "class B {}");
+        Assert.assertEquals(old, Files.getLastModifiedTime(dir.resolve(IncrementalWriter.MANIFEST_FILE)));
+    }
+
+    @Test
+    public void missingFileIsRewritten() throws Exception {
+        final Path dir = folder.getRoot().toPath();
+        generate(dir, "class A {}", "class B {}");
+        Files.delete(dir.resolve("A.java"));
+
+        final IncrementalWriter writer = new IncrementalWriter(dir);
+        Assert.assertTrue(writer.write("A.java", "class A {}".getBytes()));
+    }
+
+    @Test
+    public void editedFileOfSameSizeIsRestored() throws Exception {
+        final Path dir = folder.getRoot().toPath();
+        generate(dir, "class A {}", "class B {}");
+        Files.write(dir.resolve("A.java"), "class X {}".getBytes());
+        Files.setLastModifiedTime(dir.resolve("A.java"), FileTime.fromMillis(0));
+
+        final IncrementalWriter writer = new IncrementalWriter(dir);
+        Assert.assertTrue(writer.write("A.java", "class A {}".getBytes()));
+        Assert.assertFalse(writer.write("B.java", "class B {}".getBytes()));
+        Assert.assertEquals("class A {}", new String(Files.readAllBytes(dir.resolve("A.java"))));
+    }
+
+    @Test
+    public void staleFilesArePruned() throws Exception {
+        final Path dir = folder.getRoot().toPath();
+        generate(dir, "class A {}", "class B {}");
+        Files.write(dir.resolve("Handwritten.java"), "class Handwritten {}".getBytes());
+
+        final IncrementalWriter writer = new IncrementalWriter(dir);
+        writer.write("A.java", "class A {}".getBytes());
+        Assert.assertEquals(Collections.singletonList("B.java"), writer.prune());
+        writer.saveManifest();
+
+        Assert.assertTrue(Files.exists(dir.resolve("A.java")));
+        Assert.assertFalse(Files.exists(dir.resolve("B.java")));
+        Assert.assertTrue(Files.exists(dir.resolve("Handwritten.java")));
+    }
+
+    private void generate(final Path dir, final String a, final String b) throws Exception {
+        final IncrementalWriter writer = new IncrementalWriter(dir);
+        writer.write("A.java", a.getBytes());
+        writer.write("B.java", b.getBytes());
+        writer.prune();
+        writer.saveManifest();
+    }
+}
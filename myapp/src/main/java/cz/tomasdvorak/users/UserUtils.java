@@ -13,21 +13,14 @@ public class UserUtils {
         return SystemConstants.HOME_ROOT + "/" + username.toLowerCase();
     }
 
+    /**
+     * Boost is applied during the generation already, see the derived values in settings.cfg
+     */
     public static double getMaxMemory() {
-        if(UserConstants.BOOST_ENABLED) {
-            return SystemConstants.MAX_MEMORY * UserConstants.BOOST;
-        } else {
-            return SystemConstants.MAX_MEMORY;
-        }
+        return UserConstants.MAX_MEMORY;
     }
 
     public static double getDiskQuota() {
-        if(UserConstants.BOOST_ENABLED) {
-            return SystemConstants.DISK_QUOTA * UserConstants.BOOST;
-        } else {
-            return SystemConstants.DISK_QUOTA;
-        }
-
-//        int memory = Config.getInstance().getIntValue("SystemConstants", "MAX_MEMORY");
+        return UserConstants.DISK_QUOTA;
     }
 }